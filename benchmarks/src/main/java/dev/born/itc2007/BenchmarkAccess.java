@@ -0,0 +1,26 @@
+package dev.born.itc2007;
+
+/**
+ * Gives the benchmarks access to the package-private construction steps of a problem, which they measure on their
+ * own. It lives in the benchmark module so that the library does not widen its API for them.
+ */
+public final class BenchmarkAccess {
+	private BenchmarkAccess() {
+	}
+
+	/**
+	 * @param problem - the problem whose columns are built again.
+	 * @return new columns of the problem, equal to problem.columns.
+	 */
+	public static ProblemColumns buildColumns(ExamTimetablingProblem problem) {
+		return new ProblemColumns(problem);
+	}
+
+	/**
+	 * @param problem - the problem whose dense clash matrix is built from its clash graph.
+	 * @return the dense clash matrix, as loaded with LoadOptions.denseClashMatrix.
+	 */
+	public static int[][] buildClashMatrix(ExamTimetablingProblem problem) {
+		return ExamTimetablingProblem.buildClashMatrix(problem.exams, problem.clashGraph);
+	}
+}
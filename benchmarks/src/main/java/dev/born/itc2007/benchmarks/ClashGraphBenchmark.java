@@ -0,0 +1,39 @@
+package dev.born.itc2007.benchmarks;
+
+import dev.born.itc2007.BenchmarkAccess;
+import dev.born.itc2007.ClashGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the construction of the clash data of a problem instance: the sparse clash graph on one thread and on all
+ * cores, and the dense clash matrix that is built from it when a problem is loaded with a dense clash matrix.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ClashGraphBenchmark {
+	@Benchmark
+	public ClashGraph sequential(ProblemState state) {
+		return ClashGraph.of(state.problem.exams, false);
+	}
+
+	@Benchmark
+	public ClashGraph parallel(ProblemState state) {
+		return ClashGraph.of(state.problem.exams, true);
+	}
+
+	@Benchmark
+	public int[][] denseMatrix(ProblemState state) {
+		return BenchmarkAccess.buildClashMatrix(state.problem);
+	}
+}
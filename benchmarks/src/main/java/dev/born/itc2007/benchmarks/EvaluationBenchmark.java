@@ -0,0 +1,58 @@
+package dev.born.itc2007.benchmarks;
+
+import dev.born.itc2007.EvaluationReport;
+import dev.born.itc2007.ExamTimetablingSolution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the evaluation of a solution. Every penalty is computed by one pass over the bookings, so a full evaluation
+ * is measured on a fresh solution over the same bookings, and the getters are measured separately on a solution that
+ * has already been evaluated and only reads its cached report.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EvaluationBenchmark {
+	/**
+	 * A solution over the bookings of the problem state, evaluated once before measurement.
+	 */
+	@State(Scope.Benchmark)
+	public static class EvaluatedSolution {
+		public ExamTimetablingSolution solution;
+
+		@Setup
+		public void setUp(ProblemState state) {
+			solution = new ExamTimetablingSolution(state.problem, state.bookings);
+			solution.evaluationReport();
+		}
+	}
+
+	@Benchmark
+	public EvaluationReport evaluate(ProblemState state) {
+		return new ExamTimetablingSolution(state.problem, state.bookings).evaluationReport();
+	}
+
+	@Benchmark
+	public int cachedGetters(EvaluatedSolution evaluated) {
+		ExamTimetablingSolution solution = evaluated.solution;
+		return solution.distanceToFeasibility() + solution.softConstraintViolations()
+				+ solution.conflictingExams() + solution.overbookedPeriods() + solution.tooShortPeriods()
+				+ solution.periodConstraintViolations() + solution.roomConstraintViolations()
+				+ solution.twoInARowPenalty() + solution.twoInADayPenalty() + solution.periodSpreadPenalty()
+				+ solution.mixedDurationsPenalty() + solution.frontloadPenalty() + solution.roomPenalty()
+				+ solution.periodPenalty();
+	}
+}
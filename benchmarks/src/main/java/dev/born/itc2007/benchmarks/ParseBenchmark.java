@@ -0,0 +1,34 @@
+package dev.born.itc2007.benchmarks;
+
+import dev.born.itc2007.ExamTimetablingProblem;
+import dev.born.itc2007.LoadOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading a problem instance from a file, including the construction of its clash data.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseBenchmark {
+	@Benchmark
+	public ExamTimetablingProblem fromFile(ProblemState state) throws IOException {
+		return ExamTimetablingProblem.fromFile(state.path.toString());
+	}
+
+	@Benchmark
+	public ExamTimetablingProblem fromFileSparse(ProblemState state) throws IOException {
+		return ExamTimetablingProblem.fromFile(state.path.toString(), LoadOptions.DEFAULT.withDenseClashMatrix(false));
+	}
+}
@@ -0,0 +1,29 @@
+package dev.born.itc2007.benchmarks;
+
+import dev.born.itc2007.BenchmarkAccess;
+import dev.born.itc2007.ProblemColumns;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the primitive columns of a problem, which happens once whenever a problem is loaded or edited.
+ * The evaluation that reads them is measured in EvaluationBenchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProblemColumnsBenchmark {
+	@Benchmark
+	public ProblemColumns build(ProblemState state) {
+		return BenchmarkAccess.buildColumns(state.problem);
+	}
+}
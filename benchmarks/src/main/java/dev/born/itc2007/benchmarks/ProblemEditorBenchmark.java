@@ -0,0 +1,56 @@
+package dev.born.itc2007.benchmarks;
+
+import dev.born.itc2007.ProblemEditor;
+import dev.born.itc2007.ProblemUpdate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building a new version of a problem with a ProblemEditor, from the start of the editing session, for
+ * comparison with loading the whole instance again in ParseBenchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProblemEditorBenchmark {
+	/**
+	 * A late enrolment in an existing exam, which changes one row of the clash data.
+	 */
+	@Benchmark
+	public ProblemUpdate enrol(ProblemState state) {
+		ProblemEditor editor = new ProblemEditor(state.problem);
+		editor.enrol(state.problem.students.name(0), state.problem.exams.size() - 1);
+		return editor.build();
+	}
+
+	/**
+	 * A new exam for new and existing students, with a constraint tying it to an existing exam.
+	 */
+	@Benchmark
+	public ProblemUpdate addExam(ProblemState state) {
+		ProblemEditor editor = new ProblemEditor(state.problem);
+		int exam = editor.addExam(120, Arrays.asList("new-student", state.problem.students.name(0), state.problem.students.name(1)));
+		editor.addPeriodHardConstraint(exam, "AFTER", 0);
+		return editor.build();
+	}
+
+	/**
+	 * Removing an exam, which renumbers every later exam.
+	 */
+	@Benchmark
+	public ProblemUpdate removeExam(ProblemState state) {
+		ProblemEditor editor = new ProblemEditor(state.problem);
+		editor.removeExam(0);
+		return editor.build();
+	}
+}
@@ -0,0 +1,50 @@
+package dev.born.itc2007.benchmarks;
+
+import dev.born.itc2007.Booking;
+import dev.born.itc2007.Exam;
+import dev.born.itc2007.ExamTimetablingProblem;
+import dev.born.itc2007.InstanceGenerator;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A generated problem instance of increasing size, together with a random complete timetable for it.
+ */
+@State(Scope.Benchmark)
+public class ProblemState {
+	@Param({"250", "1000", "4000"})
+	public int numExams;
+
+	public Path path;
+	public ExamTimetablingProblem problem;
+	public List<Booking> bookings;
+
+	@Setup
+	public void setUp() throws IOException {
+		path = Files.createTempFile("itc2007-" + numExams + "-", ".exam");
+		path.toFile().deleteOnExit();
+		new InstanceGenerator(2007)
+				.exams(numExams, numExams * 4, numExams * 25L)
+				.faculties(Math.max(1, numExams / 500), 0.1)
+				.periods(Math.max(20, numExams / 20), 3, 180, 50)
+				.rooms(Math.max(5, numExams / 100), 50, 300, 10)
+				.constraints(numExams / 50, numExams / 50, numExams / 50, numExams / 100)
+				.write(path);
+		problem = ExamTimetablingProblem.fromFile(path.toString());
+
+		Random random = new Random(2007);
+		bookings = new ArrayList<>();
+		for (Exam exam : problem.exams) {
+			bookings.add(new Booking(exam, problem.periods.get(random.nextInt(problem.periods.size())), problem.rooms.get(random.nextInt(problem.rooms.size()))));
+		}
+	}
+}
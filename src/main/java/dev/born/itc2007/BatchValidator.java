@@ -0,0 +1,122 @@
+package dev.born.itc2007;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Scores many solution files against one problem in parallel. The problem is only read, so a single instance is
+ * shared by every thread, and each file is read and scored independently.
+ * <p>
+ * One line is written per file, in the order that files finish rather than the order they were given. Each line
+ * holds the path of the file, then tab separated name=value fields: hard and soft, followed by every hard and soft
+ * constraint violation that they are made up of. A file that cannot be read as a solution gets the field error
+ * instead, holding the reason.
+ */
+public class BatchValidator {
+	private final ExamTimetablingProblem problem;
+	private final int parallelism;
+
+	/**
+	 * @param problem - the problem that the solutions solve.
+	 */
+	public BatchValidator(ExamTimetablingProblem problem) {
+		this(problem, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param problem     - the problem that the solutions solve.
+	 * @param parallelism - the number of files scored at the same time.
+	 */
+	public BatchValidator(ExamTimetablingProblem problem, int parallelism) {
+		this.problem = problem;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * @param directory - the directory whose regular files are scored. Subdirectories are not searched.
+	 * @param out       - the writer that one line per file is written to. It is flushed but not closed.
+	 * @return the number of files scored.
+	 * @throws IOException if the directory could not be listed or the output could not be written.
+	 */
+	public int validateDirectory(Path directory, Writer out) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return validate(files.filter(Files::isRegularFile), out);
+		}
+	}
+
+	/**
+	 * @param files - the solution files to score.
+	 * @param out   - the writer that one line per file is written to. It is flushed but not closed.
+	 * @return the number of files scored.
+	 * @throws IOException if the output could not be written.
+	 */
+	public int validate(Stream<Path> files, Writer out) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		List<Future<?>> tasks = new ArrayList<>();
+		try {
+			files.forEach(path -> tasks.add(pool.submit(() -> write(out, validate(path)))));
+			for (Future<?> task : tasks) task.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while validating solutions.");
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof UncheckedIOException) throw ((UncheckedIOException) e.getCause()).getCause();
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+		out.flush();
+		return tasks.size();
+	}
+
+	/**
+	 * @param path - the solution file to score.
+	 * @return the line describing the score of the file, without a line terminator.
+	 */
+	public String validate(Path path) {
+		ExamTimetablingSolution solution;
+		try {
+			solution = ExamTimetablingSolution.fromPath(problem, path);
+		} catch (IOException | RuntimeException e) {
+			return path + "\terror=" + String.valueOf(e.getMessage()).replace('\n', ' ').replace('\t', ' ');
+		}
+
+		EvaluationReport report = solution.evaluationReport();
+		return path +
+				"\thard=" + report.distanceToFeasibility() +
+				"\tsoft=" + report.softConstraintViolations() +
+				"\tconflicts=" + report.conflictingExams +
+				"\troomOccupancy=" + report.overbookedPeriods +
+				"\tperiodUtilisation=" + report.tooShortPeriods +
+				"\tperiodRelated=" + report.periodConstraintViolations +
+				"\troomRelated=" + report.roomConstraintViolations +
+				"\ttwoInARow=" + report.twoInARowPenalty +
+				"\ttwoInADay=" + report.twoInADayPenalty +
+				"\tperiodSpread=" + report.periodSpreadPenalty +
+				"\tmixedDurations=" + report.mixedDurationsPenalty +
+				"\tfrontload=" + report.frontloadPenalty +
+				"\troomPenalty=" + report.roomPenalty +
+				"\tperiodPenalty=" + report.periodPenalty;
+	}
+
+	private static void write(Writer out, String line) {
+		try {
+			synchronized (out) {
+				out.write(line);
+				out.write('\n');
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,132 @@
+package dev.born.itc2007;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a stream of bytes through its own buffer for the line-based text formats of problems and solutions, skipping
+ * whitespace and tracking the line number for error messages. Bytes are returned unsigned, so that every byte of a
+ * non-ASCII identifier is distinct from EOF.
+ */
+class ByteTokenizer {
+	static final int EOF = -1;
+
+	private final InputStream in;
+	private final byte[] buffer = new byte[1 << 16];
+	private int position;
+	private int limit;
+	private int lineNumber = 1;
+
+	/**
+	 * @param in - the stream to read. It does not need to be buffered.
+	 */
+	ByteTokenizer(InputStream in) {
+		this.in = in;
+	}
+
+	/**
+	 * @return the number of the line at the current position, counting from 1.
+	 */
+	int lineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * @param message - what went wrong, without a full stop.
+	 * @return an exception for the message at the current line.
+	 */
+	IOException error(String message) {
+		return new IOException(message + " on line " + lineNumber + ".");
+	}
+
+	/**
+	 * @return the next byte without consuming it, or EOF.
+	 */
+	int peek() throws IOException {
+		if (position == limit) {
+			limit = in.read(buffer, 0, buffer.length);
+			position = 0;
+			if (limit <= 0) {
+				limit = 0;
+				return EOF;
+			}
+		}
+		return buffer[position] & 0xFF;
+	}
+
+	/**
+	 * Consumes the byte returned by the last peek, which must not be a line break or EOF.
+	 */
+	void skip() {
+		position++;
+	}
+
+	static boolean isWhitespace(int c) {
+		return c == ' ' || c == '\t' || c == '\r' || c == '\f' || c == 0x0B;
+	}
+
+	/**
+	 * Skips whitespace within the current line.
+	 *
+	 * @return the next byte without consuming it, or EOF.
+	 */
+	int skipWhitespace() throws IOException {
+		int c;
+		while (isWhitespace(c = peek())) position++;
+		return c;
+	}
+
+	/**
+	 * Skips whitespace and blank lines.
+	 *
+	 * @return the next byte without consuming it, or EOF.
+	 */
+	int skipBlank() throws IOException {
+		int c;
+		while (isWhitespace(c = peek()) || c == '\n') {
+			if (c == '\n') lineNumber++;
+			position++;
+		}
+		return c;
+	}
+
+	/**
+	 * @return the next non-whitespace byte after consuming it, or EOF.
+	 */
+	int next() throws IOException {
+		int c = skipWhitespace();
+		if (c == '\n') lineNumber++;
+		if (c != EOF) position++;
+		return c;
+	}
+
+	void expect(char expected) throws IOException {
+		int c = skipWhitespace();
+		if (c != expected) throw error("Expected '" + expected + "' but found " + describe(c));
+		position++;
+	}
+
+	void endLine() throws IOException {
+		int c = skipWhitespace();
+		if (c != '\n' && c != EOF) throw error("Expected the end of the line but found " + describe(c));
+		if (c == '\n') {
+			position++;
+			lineNumber++;
+		}
+	}
+
+	void skipLine() throws IOException {
+		int c;
+		while ((c = peek()) != EOF) {
+			position++;
+			if (c == '\n') {
+				lineNumber++;
+				return;
+			}
+		}
+	}
+
+	static String describe(int c) {
+		return c == EOF ? "the end of the input" : c == '\n' ? "the end of the line" : "'" + (char) c + "'";
+	}
+}
@@ -0,0 +1,205 @@
+package dev.born.itc2007;
+
+import dev.born.itc2007.metrics.ClashGraphEvent;
+import dev.born.itc2007.metrics.Metrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Models the clashes between exams as a sparse graph in compressed sparse row form. Only pairs of distinct exams that
+ * share at least one student are stored, so memory grows with the number of clashing pairs rather than with the square
+ * of the number of exams.
+ * <p>
+ * The neighbours of exam i are neighbours[offsets[i]] .. neighbours[offsets[i + 1] - 1], sorted by exam number, and
+ * weights[k] is the number of enrolments in exam i whose student also sits exam neighbours[k].
+ */
+public class ClashGraph {
+	/**
+	 * The start of the neighbours of each exam, with one extra trailing entry marking the end of the last exam.
+	 */
+	public final int[] offsets;
+
+	/**
+	 * The neighbouring exam numbers of all exams, one row after the other.
+	 */
+	public final int[] neighbours;
+
+	/**
+	 * The number of clashing enrolments for each entry in neighbours.
+	 */
+	public final int[] weights;
+
+	/**
+	 * @param offsets    - the start of the neighbours of each exam, followed by the total number of entries.
+	 * @param neighbours - the neighbouring exam numbers of all exams, one row after the other.
+	 * @param weights    - the number of clashing enrolments for each entry in neighbours.
+	 */
+	public ClashGraph(int[] offsets, int[] neighbours, int[] weights) {
+		this.offsets = offsets;
+		this.neighbours = neighbours;
+		this.weights = weights;
+	}
+
+	/**
+	 * @return the number of exams in the graph.
+	 */
+	public int numExams() {
+		return offsets.length - 1;
+	}
+
+	/**
+	 * @param exam - the exam number.
+	 * @return the number of other exams that share students with the given exam.
+	 */
+	public int degree(int exam) {
+		return offsets[exam + 1] - offsets[exam];
+	}
+
+	/**
+	 * @param examOne - the first exam number.
+	 * @param examTwo - the second exam number.
+	 * @return the number of enrolments in the first exam whose student also sits the second exam, or 0 if the exams
+	 * are the same.
+	 */
+	public int weight(int examOne, int examTwo) {
+		int k = Arrays.binarySearch(neighbours, offsets[examOne], offsets[examOne + 1], examTwo);
+		return k < 0 ? 0 : weights[k];
+	}
+
+	/**
+	 * @param exams - the exam numbers to keep, in ascending order. Exam exams[i] becomes exam i of the subgraph.
+	 * @return the graph induced by the given exams, keeping only the edges between them.
+	 */
+	public ClashGraph subgraph(int[] exams) {
+		int[] localOf = new int[offsets.length - 1];
+		Arrays.fill(localOf, -1);
+		for (int i = 0; i < exams.length; i++) localOf[exams[i]] = i;
+
+		int[] subOffsets = new int[exams.length + 1];
+		for (int i = 0; i < exams.length; i++) {
+			int count = 0;
+			for (int k = offsets[exams[i]]; k < offsets[exams[i] + 1]; k++) {
+				if (localOf[neighbours[k]] != -1) count++;
+			}
+			subOffsets[i + 1] = subOffsets[i] + count;
+		}
+		int[] subNeighbours = new int[subOffsets[exams.length]];
+		int[] subWeights = new int[subOffsets[exams.length]];
+		for (int i = 0, next = 0; i < exams.length; i++) {
+			for (int k = offsets[exams[i]]; k < offsets[exams[i] + 1]; k++) {
+				if (localOf[neighbours[k]] == -1) continue;
+				subNeighbours[next] = localOf[neighbours[k]];
+				subWeights[next++] = weights[k];
+			}
+		}
+		return new ClashGraph(subOffsets, subNeighbours, subWeights);
+	}
+
+	/**
+	 * Builds the clash graph from an inverted index of student to exams, so only exam pairs that actually share a
+	 * student are visited.
+	 *
+	 * @param exams    - the exams of the problem.
+	 * @param parallel - whether the rows of the graph should be computed in parallel.
+	 * @return the clash graph of the exams.
+	 */
+	public static ClashGraph of(List<Exam> exams, boolean parallel) {
+		boolean timed = Metrics.isEnabled();
+		long start = timed ? System.nanoTime() : 0;
+		ClashGraphEvent event = new ClashGraphEvent();
+		event.begin();
+
+		int numExams = exams.size();
+
+		// Exams built on their own have dictionaries of their own, so their students are interned again together.
+		StudentDictionary dictionary = numExams == 0 ? new StudentDictionary() : exams.get(0).dictionary;
+		boolean isShared = exams.stream().allMatch(exam -> exam.dictionary == dictionary);
+		StudentDictionary students = isShared ? dictionary : new StudentDictionary();
+		int[][] examStudents = new int[numExams][];
+		for (int i = 0; i < numExams; i++) {
+			Exam exam = exams.get(i);
+			if (isShared) {
+				examStudents[i] = exam.studentIds;
+				continue;
+			}
+			int[] ids = new int[exam.studentIds.length];
+			for (int k = 0; k < ids.length; k++) ids[k] = students.intern(exam.dictionary.name(exam.studentIds[k]));
+			examStudents[i] = ids;
+		}
+
+		// Distinct exams per student in the same compressed form as the graph itself.
+		int numStudents = students.size();
+		int[] lastExam = new int[numStudents];
+		Arrays.fill(lastExam, -1);
+		int[] studentOffsets = new int[numStudents + 1];
+		for (int i = 0; i < numExams; i++) {
+			for (int id : examStudents[i]) {
+				if (lastExam[id] != i) {
+					lastExam[id] = i;
+					studentOffsets[id + 1]++;
+				}
+			}
+		}
+		for (int s = 0; s < numStudents; s++) studentOffsets[s + 1] += studentOffsets[s];
+		int[] studentExams = new int[studentOffsets[numStudents]];
+		int[] next = Arrays.copyOf(studentOffsets, numStudents);
+		Arrays.fill(lastExam, -1);
+		for (int i = 0; i < numExams; i++) {
+			for (int id : examStudents[i]) {
+				if (lastExam[id] != i) {
+					lastExam[id] = i;
+					studentExams[next[id]++] = i;
+				}
+			}
+		}
+
+		int[][] rowNeighbours = new int[numExams][];
+		int[][] rowWeights = new int[numExams][];
+		ThreadLocal<int[]> counts = ThreadLocal.withInitial(() -> new int[numExams]);
+		IntStream rows = IntStream.range(0, numExams);
+		if (parallel) rows = rows.parallel();
+		rows.forEach(i -> {
+			int[] count = counts.get();
+			int[] touched = new int[8];
+			int numTouched = 0;
+			for (int id : examStudents[i]) {
+				for (int k = studentOffsets[id]; k < studentOffsets[id + 1]; k++) {
+					int j = studentExams[k];
+					if (j == i) continue;
+					if (count[j]++ == 0) {
+						if (numTouched == touched.length) touched = Arrays.copyOf(touched, numTouched * 2);
+						touched[numTouched++] = j;
+					}
+				}
+			}
+			int[] neighbours = Arrays.copyOf(touched, numTouched);
+			Arrays.sort(neighbours);
+			int[] weights = new int[numTouched];
+			for (int k = 0; k < numTouched; k++) {
+				weights[k] = count[neighbours[k]];
+				count[neighbours[k]] = 0;
+			}
+			rowNeighbours[i] = neighbours;
+			rowWeights[i] = weights;
+		});
+
+		int[] offsets = new int[numExams + 1];
+		for (int i = 0; i < numExams; i++) offsets[i + 1] = offsets[i] + rowNeighbours[i].length;
+		int[] neighbours = new int[offsets[numExams]];
+		int[] weights = new int[offsets[numExams]];
+		for (int i = 0; i < numExams; i++) {
+			System.arraycopy(rowNeighbours[i], 0, neighbours, offsets[i], rowNeighbours[i].length);
+			System.arraycopy(rowWeights[i], 0, weights, offsets[i], rowWeights[i].length);
+		}
+
+		if (timed) Metrics.CLASH_GRAPH_BUILD.recordSince(start);
+		if (event.shouldCommit()) {
+			event.exams = numExams;
+			event.clashingPairs = neighbours.length / 2;
+			event.commit();
+		}
+		return new ClashGraph(offsets, neighbours, weights);
+	}
+}
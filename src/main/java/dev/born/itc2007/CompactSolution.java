@@ -0,0 +1,141 @@
+package dev.born.itc2007;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Models a solution as two primitive arrays holding the period and room number of each exam, indexed by exam number.
+ * This takes a fraction of the memory of a list of bookings, and looking up the booking of an exam takes constant time.
+ */
+public class CompactSolution {
+	private final int[] periods;
+	private final int[] rooms;
+
+	/**
+	 * @param numExams - the number of exams in the problem. No exam is booked initially.
+	 */
+	public CompactSolution(int numExams) {
+		this.periods = new int[numExams];
+		this.rooms = new int[numExams];
+		Arrays.fill(periods, -1);
+		Arrays.fill(rooms, -1);
+	}
+
+	private CompactSolution(int[] periods, int[] rooms) {
+		this.periods = periods;
+		this.rooms = rooms;
+	}
+
+	/**
+	 * @param numExams - the number of exams in the problem.
+	 * @param bookings - the bookings to encode. If an exam is booked more than once, the first booking is used.
+	 * @return the compact encoding of the bookings.
+	 */
+	public static CompactSolution fromBookings(int numExams, List<Booking> bookings) {
+		CompactSolution solution = new CompactSolution(numExams);
+		for (Booking booking : bookings) {
+			if (!solution.isBooked(booking.exam.number))
+				solution.book(booking.exam.number, booking.period.number, booking.room.number);
+		}
+		return solution;
+	}
+
+	/**
+	 * @param solution - the solution to encode.
+	 * @return the compact encoding of the solution.
+	 */
+	public static CompactSolution fromSolution(ExamTimetablingSolution solution) {
+		return fromBookings(solution.getProblem().exams.size(), solution.bookings);
+	}
+
+	/**
+	 * @return the number of exams in the problem.
+	 */
+	public int numExams() {
+		return periods.length;
+	}
+
+	/**
+	 * @param exam - the exam number.
+	 * @return whether the exam is booked.
+	 */
+	public boolean isBooked(int exam) {
+		return periods[exam] != -1;
+	}
+
+	/**
+	 * @param exam - the exam number.
+	 * @return the period number of the exam, or -1 if the exam is not booked.
+	 */
+	public int periodOf(int exam) {
+		return periods[exam];
+	}
+
+	/**
+	 * @param exam - the exam number.
+	 * @return the room number of the exam, or -1 if the exam is not booked.
+	 */
+	public int roomOf(int exam) {
+		return rooms[exam];
+	}
+
+	/**
+	 * @param exam   - the exam number.
+	 * @param period - the period number to book the exam in.
+	 * @param room   - the room number to book the exam in.
+	 */
+	public void book(int exam, int period, int room) {
+		periods[exam] = period;
+		rooms[exam] = room;
+	}
+
+	/**
+	 * @param exam - the exam number to remove the booking of.
+	 */
+	public void unbook(int exam) {
+		periods[exam] = -1;
+		rooms[exam] = -1;
+	}
+
+	/**
+	 * @return an independent copy of this solution.
+	 */
+	public CompactSolution copy() {
+		return new CompactSolution(periods.clone(), rooms.clone());
+	}
+
+	/**
+	 * @param problem - the problem that this solution solves.
+	 * @return the bookings of this solution, in exam order.
+	 */
+	public List<Booking> toBookings(ExamTimetablingProblem problem) {
+		List<Booking> bookings = new ArrayList<>(periods.length);
+		for (int exam = 0; exam < periods.length; exam++) {
+			if (periods[exam] == -1) continue;
+			bookings.add(new Booking(problem.exams.get(exam), problem.periods.get(periods[exam]), problem.rooms.get(rooms[exam])));
+		}
+		return bookings;
+	}
+
+	/**
+	 * @param problem - the problem that this solution solves.
+	 * @return the solution with the bookings of this solution.
+	 */
+	public ExamTimetablingSolution toSolution(ExamTimetablingProblem problem) {
+		return new ExamTimetablingSolution(problem, toBookings(problem));
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof CompactSolution)) return false;
+		CompactSolution that = (CompactSolution) o;
+		return Arrays.equals(periods, that.periods) && Arrays.equals(rooms, that.rooms);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Arrays.hashCode(periods) + Arrays.hashCode(rooms);
+	}
+}
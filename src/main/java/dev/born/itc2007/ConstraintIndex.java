@@ -0,0 +1,300 @@
+package dev.born.itc2007;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Holds the hard constraints of a problem compiled into arrays indexed by exam, so that the constraints of one exam
+ * can be checked in time proportional to their number, without comparing strings or searching bookings.
+ * <p>
+ * Only constraints that can be violated are compiled: those whose type is known and whose exams exist, and leaving
+ * out coincidences between exams that share students, which are never enforced. Each remaining constraint is listed
+ * under both of its exams, or once if it relates an exam to itself. Duplicate constraints are kept, as they are each
+ * counted by the full evaluation.
+ * <p>
+ * The index also holds the coincidence groups of the exams, which must all share a period, and an order of the exams
+ * that respects every AFTER constraint. The public arrays are read directly by evaluators and searches, so they are
+ * built once with the problem and must not be modified.
+ */
+public class ConstraintIndex {
+	/**
+	 * The type of each compiled period constraint.
+	 */
+	public final ConstraintType[] types;
+
+	/**
+	 * The first exam of each compiled period constraint.
+	 */
+	public final int[] examOne;
+
+	/**
+	 * The second exam of each compiled period constraint.
+	 */
+	public final int[] examTwo;
+
+	/**
+	 * The period constraints of exam i are constraints[offsets[i]] .. constraints[offsets[i + 1] - 1].
+	 */
+	public final int[] offsets;
+
+	/**
+	 * The index, into types, examOne and examTwo, of each period constraint of each exam, grouped by exam as described
+	 * by offsets.
+	 */
+	public final int[] constraints;
+
+	/**
+	 * The number of room exclusive constraints of each exam, indexed by exam number.
+	 */
+	public final int[] roomExclusive;
+
+	/**
+	 * The chronological rank of each period, indexed by period number. Periods that start at the same time share a
+	 * rank.
+	 */
+	public final int[] periodOrder;
+
+	/**
+	 * The exams of coincidence group g are groupMembers[groupOffsets[g]] .. groupMembers[groupOffsets[g + 1] - 1],
+	 * in ascending order. Exams without coincidences are in groups of their own.
+	 */
+	private final int[] groupOfExam;
+	private final int[] groupOffsets;
+	private final int[] groupMembers;
+
+	/**
+	 * Every exam, ordered so that for each AFTER constraint the first exam comes before the second.
+	 */
+	private final int[] precedenceOrder;
+
+	/**
+	 * @param exams                 - the exams of the problem.
+	 * @param periods               - the periods of the problem.
+	 * @param periodHardConstraints - the period hard constraints of the problem.
+	 * @param roomHardConstraints   - the room hard constraints of the problem.
+	 * @param clashGraph            - the clash graph of the exams.
+	 */
+	ConstraintIndex(List<Exam> exams, List<Period> periods, List<PeriodHardConstraint> periodHardConstraints,
+					List<RoomHardConstraint> roomHardConstraints, ClashGraph clashGraph) {
+		int numExams = exams.size();
+
+		this.roomExclusive = new int[numExams];
+		for (RoomHardConstraint constraint : roomHardConstraints) {
+			if (constraint.examNum >= 0 && constraint.examNum < numExams) roomExclusive[constraint.examNum]++;
+		}
+
+		int numConstraints = 0;
+		for (PeriodHardConstraint constraint : periodHardConstraints) {
+			if (isEnforced(constraint, numExams, clashGraph)) numConstraints++;
+		}
+		this.types = new ConstraintType[numConstraints];
+		this.examOne = new int[numConstraints];
+		this.examTwo = new int[numConstraints];
+		this.offsets = new int[numExams + 1];
+		int c = 0;
+		for (PeriodHardConstraint constraint : periodHardConstraints) {
+			if (!isEnforced(constraint, numExams, clashGraph)) continue;
+			types[c] = constraint.type;
+			examOne[c] = constraint.examOneNum;
+			examTwo[c] = constraint.examTwoNum;
+			offsets[constraint.examOneNum + 1]++;
+			if (constraint.examTwoNum != constraint.examOneNum) offsets[constraint.examTwoNum + 1]++;
+			c++;
+		}
+		for (int i = 0; i < numExams; i++) offsets[i + 1] += offsets[i];
+		this.constraints = new int[offsets[numExams]];
+		int[] next = Arrays.copyOf(offsets, numExams);
+		for (c = 0; c < numConstraints; c++) {
+			constraints[next[examOne[c]]++] = c;
+			if (examTwo[c] != examOne[c]) constraints[next[examTwo[c]]++] = c;
+		}
+
+		this.periodOrder = new int[periods.size()];
+		Period[] byDateTime = periods.toArray(new Period[0]);
+		Arrays.sort(byDateTime, (p1, p2) -> p1.getDateTime().compareTo(p2.getDateTime()));
+		for (int i = 0; i < byDateTime.length; i++) {
+			LocalDateTime dateTime = byDateTime[i].getDateTime();
+			boolean sameAsPrevious = i > 0 && dateTime.isEqual(byDateTime[i - 1].getDateTime());
+			periodOrder[byDateTime[i].number] = sameAsPrevious ? periodOrder[byDateTime[i - 1].number] : i;
+		}
+
+		this.groupOfExam = new int[numExams];
+		this.groupOffsets = new int[numExams + 1];
+		this.groupMembers = new int[numExams];
+		groupCoincidences(numExams);
+		this.precedenceOrder = orderByPrecedence(numExams);
+	}
+
+	private static boolean isEnforced(PeriodHardConstraint constraint, int numExams, ClashGraph clashGraph) {
+		int one = constraint.examOneNum;
+		int two = constraint.examTwoNum;
+		if (constraint.type == null || one < 0 || one >= numExams || two < 0 || two >= numExams) return false;
+		return constraint.type != ConstraintType.EXAM_COINCIDENCE || clashGraph.weight(one, two) == 0;
+	}
+
+	/**
+	 * Merges the exams of every coincidence with union-find, then numbers the groups in order of their smallest exam.
+	 */
+	private void groupCoincidences(int numExams) {
+		int[] parent = new int[numExams];
+		for (int e = 0; e < numExams; e++) parent[e] = e;
+		for (int c = 0; c < types.length; c++) {
+			if (types[c] != ConstraintType.EXAM_COINCIDENCE) continue;
+			int rootOne = find(parent, examOne[c]);
+			int rootTwo = find(parent, examTwo[c]);
+			if (rootOne != rootTwo) parent[Math.max(rootOne, rootTwo)] = Math.min(rootOne, rootTwo);
+		}
+
+		// Each root is the smallest exam of its group, so roots are met in group order.
+		int numGroups = 0;
+		for (int e = 0; e < numExams; e++) {
+			int root = find(parent, e);
+			groupOfExam[e] = root == e ? numGroups++ : groupOfExam[root];
+			groupOffsets[groupOfExam[e] + 1]++;
+		}
+		for (int g = 0; g < numExams; g++) groupOffsets[g + 1] += groupOffsets[g];
+		int[] next = Arrays.copyOf(groupOffsets, numExams);
+		for (int e = 0; e < numExams; e++) groupMembers[next[groupOfExam[e]]++] = e;
+	}
+
+	private static int find(int[] parent, int exam) {
+		while (parent[exam] != exam) {
+			parent[exam] = parent[parent[exam]];
+			exam = parent[exam];
+		}
+		return exam;
+	}
+
+	/**
+	 * Orders the exams topologically over the AFTER constraints, taking the lowest numbered exam first whenever there
+	 * is a choice. Exams on a cycle of AFTER constraints can only be satisfied by sharing a start time, so they are
+	 * placed after every other exam, in number order.
+	 */
+	private int[] orderByPrecedence(int numExams) {
+		int[] inDegree = new int[numExams];
+		for (int c = 0; c < types.length; c++) {
+			if (types[c] == ConstraintType.AFTER && examOne[c] != examTwo[c]) inDegree[examTwo[c]]++;
+		}
+
+		int[] order = new int[numExams];
+		int size = 0;
+		int[] heap = new int[numExams];
+		int heapSize = 0;
+		for (int e = 0; e < numExams; e++) {
+			if (inDegree[e] == 0) heapSize = push(heap, heapSize, e);
+		}
+		boolean[] isOrdered = new boolean[numExams];
+		while (heapSize > 0) {
+			int exam = heap[0];
+			heapSize = pop(heap, heapSize);
+			order[size++] = exam;
+			isOrdered[exam] = true;
+			for (int k = offsets[exam]; k < offsets[exam + 1]; k++) {
+				int c = constraints[k];
+				if (types[c] != ConstraintType.AFTER || examOne[c] != exam || examTwo[c] == exam) continue;
+				if (--inDegree[examTwo[c]] == 0) heapSize = push(heap, heapSize, examTwo[c]);
+			}
+		}
+		for (int e = 0; e < numExams; e++) {
+			if (!isOrdered[e]) order[size++] = e;
+		}
+		return order;
+	}
+
+	private static int push(int[] heap, int size, int exam) {
+		int i = size;
+		while (i > 0 && heap[(i - 1) / 2] > exam) {
+			heap[i] = heap[(i - 1) / 2];
+			i = (i - 1) / 2;
+		}
+		heap[i] = exam;
+		return size + 1;
+	}
+
+	private static int pop(int[] heap, int size) {
+		int last = heap[--size];
+		int i = 0;
+		while (2 * i + 1 < size) {
+			int child = 2 * i + 1;
+			if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+			if (heap[child] >= last) break;
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = last;
+		return size;
+	}
+
+	/**
+	 * @param constraint - the index of a compiled period constraint.
+	 * @param periodOne  - the period number of the first exam of the constraint, or -1 if it is not booked.
+	 * @param periodTwo  - the period number of the second exam of the constraint, or -1 if it is not booked.
+	 * @return 1 if the constraint is violated by the periods, otherwise 0.
+	 */
+	public int violation(int constraint, int periodOne, int periodTwo) {
+		if (periodOne == -1 || periodTwo == -1) return 0;
+		switch (types[constraint]) {
+			case EXAM_COINCIDENCE:
+				return periodOne != periodTwo ? 1 : 0;
+			case EXCLUSION:
+				return periodOne == periodTwo ? 1 : 0;
+			default:
+				return periodOrder[periodOne] > periodOrder[periodTwo] ? 1 : 0;
+		}
+	}
+
+	/**
+	 * @param exam     - the exam number.
+	 * @param period   - the period number that the exam is booked in, or would be booked in.
+	 * @param periodOf - the period number of each exam, or -1 for exams that are not booked. The entry of the exam
+	 *                 itself is ignored.
+	 * @return the number of period constraints of the exam that would be violated.
+	 */
+	public int periodConstraintViolations(int exam, int period, int[] periodOf) {
+		int violations = 0;
+		for (int k = offsets[exam]; k < offsets[exam + 1]; k++) {
+			int c = constraints[k];
+			int periodOne = examOne[c] == exam ? period : periodOf[examOne[c]];
+			int periodTwo = examTwo[c] == exam ? period : periodOf[examTwo[c]];
+			violations += violation(c, periodOne, periodTwo);
+		}
+		return violations;
+	}
+
+	/**
+	 * @param periodOf - the period number of each exam, or -1 for exams that are not booked.
+	 * @return the number of period constraints violated.
+	 */
+	public int periodConstraintViolations(int[] periodOf) {
+		int violations = 0;
+		for (int c = 0; c < types.length; c++) violations += violation(c, periodOf[examOne[c]], periodOf[examTwo[c]]);
+		return violations;
+	}
+
+	/**
+	 * @param exam - the exam number.
+	 * @return the number of the coincidence group of the exam. Groups are numbered from 0 in order of their smallest
+	 * exam.
+	 */
+	public int coincidenceGroup(int exam) {
+		return groupOfExam[exam];
+	}
+
+	/**
+	 * @param exam - the exam number.
+	 * @return the exams that must share a period with the exam, including itself, in ascending order.
+	 */
+	public int[] coincidentExams(int exam) {
+		int group = groupOfExam[exam];
+		return Arrays.copyOfRange(groupMembers, groupOffsets[group], groupOffsets[group + 1]);
+	}
+
+	/**
+	 * @return every exam, ordered so that the first exam of each AFTER constraint comes before the second, except
+	 * among exams whose AFTER constraints form a cycle.
+	 */
+	public int[] precedenceOrder() {
+		return precedenceOrder.clone();
+	}
+}
@@ -0,0 +1,45 @@
+package dev.born.itc2007;
+
+/**
+ * The types of hard constraint that a problem can hold.
+ */
+public enum ConstraintType {
+	/**
+	 * Two exams must be booked in the same period, unless they share students.
+	 */
+	EXAM_COINCIDENCE,
+
+	/**
+	 * Two exams must not be booked in the same period.
+	 */
+	EXCLUSION,
+
+	/**
+	 * Two exams must be booked in order. As scored, the first exam is violated when its period starts after that of
+	 * the second exam.
+	 */
+	AFTER,
+
+	/**
+	 * An exam must be booked in a room by itself.
+	 */
+	ROOM_EXCLUSIVE;
+
+	/**
+	 * @param name - the name of the constraint type, as it appears in a problem file.
+	 * @return the constraint type with the name, or null if there is none.
+	 */
+	public static ConstraintType of(String name) {
+		for (ConstraintType type : values()) {
+			if (type.name().equals(name)) return type;
+		}
+		return null;
+	}
+
+	/**
+	 * @return whether the constraint relates the periods of two exams.
+	 */
+	public boolean isPeriodConstraint() {
+		return this != ROOM_EXCLUSIVE;
+	}
+}
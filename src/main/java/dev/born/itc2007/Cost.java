@@ -0,0 +1,89 @@
+package dev.born.itc2007;
+
+/**
+ * Models the cost of a solution, or the change in cost caused by a move, as a pair of hard and soft constraint
+ * violations.
+ */
+public class Cost implements Comparable<Cost> {
+	/**
+	 * The cost of an empty solution, and the change in cost of a move that changes nothing.
+	 */
+	public static final Cost ZERO = new Cost(0, 0);
+
+	/**
+	 * The hard constraint violations (distance to feasibility).
+	 */
+	public final int hard;
+
+	/**
+	 * The soft constraint violations.
+	 */
+	public final int soft;
+
+	/**
+	 * @param hard - the hard constraint violations.
+	 * @param soft - the soft constraint violations.
+	 */
+	public Cost(int hard, int soft) {
+		this.hard = hard;
+		this.soft = soft;
+	}
+
+	/**
+	 * @param other - the cost to add.
+	 * @return the sum of this cost and the other cost.
+	 */
+	public Cost plus(Cost other) {
+		return new Cost(hard + other.hard, soft + other.soft);
+	}
+
+	/**
+	 * @param other - the cost to compare to.
+	 * @return a negative number, zero or a positive number as this cost is better than, equal to or worse than the
+	 * other cost. Hard constraint violations always outweigh soft constraint violations.
+	 */
+	@Override
+	public int compareTo(Cost other) {
+		return compare(hard, soft, other.hard, other.soft);
+	}
+
+	/**
+	 * Compares two costs held as primitives, in the same order as compareTo, so that hot loops need not allocate them.
+	 *
+	 * @return a negative number, zero or a positive number as the first cost is better than, equal to or worse than
+	 * the second cost.
+	 */
+	public static int compare(int hard, int soft, int otherHard, int otherSoft) {
+		if (hard != otherHard) return Integer.compare(hard, otherHard);
+		return Integer.compare(soft, otherSoft);
+	}
+
+	/**
+	 * @param other - the cost to compare to.
+	 * @return whether this cost is strictly better than the other cost.
+	 */
+	public boolean isBetterThan(Cost other) {
+		return compareTo(other) < 0;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof Cost)) return false;
+		Cost cost = (Cost) o;
+		return hard == cost.hard && soft == cost.soft;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * hard + soft;
+	}
+
+	@Override
+	public String toString() {
+		return "Cost{" +
+				"hard=" + hard +
+				", soft=" + soft +
+				'}';
+	}
+}
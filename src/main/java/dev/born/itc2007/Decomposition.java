@@ -0,0 +1,370 @@
+package dev.born.itc2007;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+/**
+ * Splits a problem into subproblems that can be solved independently, and merges their solutions back into one.
+ * <p>
+ * Exams linked by a period hard constraint are always kept together, so no constraint crosses two parts. The exams are
+ * first split into the connected components of the clash graph. Components larger than an equal share of the exams
+ * are then cut into pieces by greedy graph growing: a piece starts from an exam on the edge of the component, and
+ * repeatedly takes the exam with the most clashing enrolments to exams already in the piece, which keeps the
+ * enrolments cut between pieces low. Finally, the pieces are packed into parts of roughly equal size.
+ * <p>
+ * Every part keeps all periods, but each room is given to exactly one part, in proportion to the enrolments of the
+ * parts, so parts never compete for seats and their room costs add up exactly. The only costs that parts cannot see
+ * are those of clashing enrolments cut between them, which the merged solution is scored with in full.
+ */
+public class Decomposition {
+	/**
+	 * The problem that was decomposed.
+	 */
+	public final ExamTimetablingProblem problem;
+
+	/**
+	 * The parts of the problem. Every exam is in exactly one part.
+	 */
+	public final List<Subproblem> subproblems;
+
+	/**
+	 * The number of connected components of the clash graph, counting exams linked by period hard constraints as
+	 * connected.
+	 */
+	public final int numComponents;
+
+	/**
+	 * The number of clashing enrolments between exams in different parts.
+	 */
+	public final long cutWeight;
+
+	private final int[] partOfExam;
+
+	private Decomposition(ExamTimetablingProblem problem, List<Subproblem> subproblems, int numComponents, long cutWeight, int[] partOfExam) {
+		this.problem = problem;
+		this.subproblems = subproblems;
+		this.numComponents = numComponents;
+		this.cutWeight = cutWeight;
+		this.partOfExam = partOfExam;
+	}
+
+	/**
+	 * @param exam - the exam number in the original problem.
+	 * @return the index of the subproblem holding the exam.
+	 */
+	public int partOf(int exam) {
+		return partOfExam[exam];
+	}
+
+	/**
+	 * @param problem  - the problem to decompose.
+	 * @param maxParts - the largest number of parts to split the problem into. Fewer parts are made if the problem has
+	 *                 fewer exams or rooms.
+	 * @return the decomposition of the problem.
+	 */
+	public static Decomposition of(ExamTimetablingProblem problem, int maxParts) {
+		int numExams = problem.exams.size();
+		ClashGraph clashGraph = problem.clashGraph;
+		ConstraintIndex constraints = problem.constraintIndex;
+
+		int[] group = new int[numExams];
+		for (int e = 0; e < numExams; e++) group[e] = e;
+		for (int c = 0; c < constraints.types.length; c++) union(group, constraints.examOne[c], constraints.examTwo[c]);
+		int[] component = group.clone();
+		for (int e = 0; e < numExams; e++) {
+			for (int k = clashGraph.offsets[e]; k < clashGraph.offsets[e + 1]; k++) union(component, e, clashGraph.neighbours[k]);
+		}
+		for (int e = 0; e < numExams; e++) {
+			group[e] = find(group, e);
+			component[e] = find(component, e);
+		}
+
+		int numParts = Math.max(1, Math.min(maxParts, Math.min(numExams, problem.rooms.size())));
+		int pieceSize = (numExams + numParts - 1) / Math.max(1, numParts);
+		int[] groupOffsets = new int[numExams + 1];
+		int[] groupMembers = members(group, groupOffsets);
+		int[] componentOffsets = new int[numExams + 1];
+		int[] componentMembers = members(component, componentOffsets);
+
+		List<int[]> pieces = new ArrayList<>();
+		int numComponents = 0;
+		for (int root = 0; root < numExams; root++) {
+			int size = componentOffsets[root + 1] - componentOffsets[root];
+			if (size == 0) continue;
+			numComponents++;
+			int[] exams = Arrays.copyOfRange(componentMembers, componentOffsets[root], componentOffsets[root + 1]);
+			if (size <= pieceSize) pieces.add(exams);
+			else pieces.addAll(cut(clashGraph, exams, pieceSize, group, groupOffsets, groupMembers));
+		}
+
+		// Largest pieces first, each into the smallest part so far.
+		pieces.sort(Comparator.<int[]>comparingInt(piece -> piece.length).reversed());
+		int[] partSizes = new int[numParts];
+		int[] partOfExam = new int[numExams];
+		for (int[] piece : pieces) {
+			int part = 0;
+			for (int p = 1; p < numParts; p++) {
+				if (partSizes[p] < partSizes[part]) part = p;
+			}
+			partSizes[part] += piece.length;
+			for (int exam : piece) partOfExam[exam] = part;
+		}
+		numParts = renumberNonEmpty(partOfExam, partSizes);
+
+		long cutWeight = 0;
+		for (int e = 0; e < numExams; e++) {
+			for (int k = clashGraph.offsets[e]; k < clashGraph.offsets[e + 1]; k++) {
+				int neighbour = clashGraph.neighbours[k];
+				if (e < neighbour && partOfExam[e] != partOfExam[neighbour]) cutWeight += clashGraph.weights[k];
+			}
+		}
+
+		int[] partOfRoom = dealRooms(problem, partOfExam, numParts);
+		List<Subproblem> subproblems = new ArrayList<>(numParts);
+		for (int part = 0; part < numParts; part++) subproblems.add(subproblem(problem, partOfExam, partOfRoom, part));
+		return new Decomposition(problem, subproblems, numComponents, cutWeight, partOfExam);
+	}
+
+	private static int find(int[] parent, int exam) {
+		while (parent[exam] != exam) {
+			parent[exam] = parent[parent[exam]];
+			exam = parent[exam];
+		}
+		return exam;
+	}
+
+	private static void union(int[] parent, int one, int two) {
+		int rootOne = find(parent, one);
+		int rootTwo = find(parent, two);
+		if (rootOne != rootTwo) parent[Math.max(rootOne, rootTwo)] = Math.min(rootOne, rootTwo);
+	}
+
+	/**
+	 * @param roots   - the root of the set of each exam.
+	 * @param offsets - filled so that the exams of root r are the result at offsets[r] .. offsets[r + 1] - 1.
+	 * @return the exams of every set, in ascending order within each set.
+	 */
+	private static int[] members(int[] roots, int[] offsets) {
+		for (int root : roots) offsets[root + 1]++;
+		for (int r = 0; r + 1 < offsets.length; r++) offsets[r + 1] += offsets[r];
+		int[] members = new int[roots.length];
+		int[] next = Arrays.copyOf(offsets, roots.length);
+		for (int e = 0; e < roots.length; e++) members[next[roots[e]]++] = e;
+		return members;
+	}
+
+	/**
+	 * Cuts a component into pieces of about the given size by greedy graph growing, keeping constraint groups whole.
+	 */
+	private static List<int[]> cut(ClashGraph clashGraph, int[] exams, int pieceSize, int[] group, int[] groupOffsets, int[] groupMembers) {
+		int numExams = group.length;
+		boolean[] isRemaining = new boolean[numExams];
+		for (int exam : exams) isRemaining[exam] = true;
+		int numRemaining = exams.length;
+		int[] gain = new int[numExams];
+		List<int[]> pieces = new ArrayList<>();
+
+		while (numRemaining > pieceSize) {
+			int[] piece = new int[numRemaining];
+			int size = 0;
+			PriorityQueue<Long> frontier = new PriorityQueue<>(Comparator.reverseOrder());
+			while (size < pieceSize) {
+				int exam = -1;
+				while (!frontier.isEmpty()) {
+					long entry = frontier.poll();
+					int candidate = (int) entry;
+					if (isRemaining[candidate] && gain[candidate] == (int) (entry >>> 32)) {
+						exam = candidate;
+						break;
+					}
+				}
+				if (exam == -1) exam = peripheralExam(clashGraph, exams, isRemaining);
+
+				int root = group[exam];
+				for (int g = groupOffsets[root]; g < groupOffsets[root + 1]; g++) {
+					int member = groupMembers[g];
+					isRemaining[member] = false;
+					piece[size++] = member;
+					for (int k = clashGraph.offsets[member]; k < clashGraph.offsets[member + 1]; k++) {
+						int neighbour = clashGraph.neighbours[k];
+						if (!isRemaining[neighbour]) continue;
+						gain[neighbour] += clashGraph.weights[k];
+						frontier.add(((long) gain[neighbour] << 32) | neighbour);
+					}
+				}
+			}
+			numRemaining -= size;
+			for (int exam : exams) gain[exam] = 0;
+			int[] grown = Arrays.copyOf(piece, size);
+			Arrays.sort(grown);
+			pieces.add(grown);
+		}
+
+		int[] rest = IntStream.of(exams).filter(exam -> isRemaining[exam]).toArray();
+		if (rest.length > 0) pieces.add(rest);
+		return pieces;
+	}
+
+	/**
+	 * @return the last exam reached by a breadth-first search of the remaining exams, which lies on the edge of the
+	 * component and so makes a good start for a piece.
+	 */
+	private static int peripheralExam(ClashGraph clashGraph, int[] exams, boolean[] isRemaining) {
+		int start = -1;
+		for (int exam : exams) {
+			if (isRemaining[exam]) {
+				start = exam;
+				break;
+			}
+		}
+		boolean[] isVisited = new boolean[isRemaining.length];
+		int[] queue = new int[exams.length];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = start;
+		isVisited[start] = true;
+		while (head < tail) {
+			int exam = queue[head++];
+			for (int k = clashGraph.offsets[exam]; k < clashGraph.offsets[exam + 1]; k++) {
+				int neighbour = clashGraph.neighbours[k];
+				if (!isRemaining[neighbour] || isVisited[neighbour]) continue;
+				isVisited[neighbour] = true;
+				queue[tail++] = neighbour;
+			}
+		}
+		return queue[tail - 1];
+	}
+
+	/**
+	 * Numbers the parts that hold exams from 0, keeping their order.
+	 *
+	 * @return the number of parts that hold exams.
+	 */
+	private static int renumberNonEmpty(int[] partOfExam, int[] partSizes) {
+		int[] newNumber = new int[partSizes.length];
+		int numParts = 0;
+		for (int p = 0; p < partSizes.length; p++) newNumber[p] = partSizes[p] > 0 ? numParts++ : -1;
+		for (int e = 0; e < partOfExam.length; e++) partOfExam[e] = newNumber[partOfExam[e]];
+		return Math.max(1, numParts);
+	}
+
+	/**
+	 * Gives every room to one part. Each part first gets one of the largest rooms, then every other room, largest
+	 * first, goes to the part furthest below its share of the seats, which is its share of the enrolments.
+	 *
+	 * @return the part of each room, indexed by room number.
+	 */
+	private static int[] dealRooms(ExamTimetablingProblem problem, int[] partOfExam, int numParts) {
+		long[] enrolments = new long[numParts];
+		long totalEnrolments = 0;
+		for (Exam exam : problem.exams) {
+			enrolments[partOfExam[exam.number]] += exam.studentIds.length;
+			totalEnrolments += exam.studentIds.length;
+		}
+
+		Room[] byCapacity = problem.rooms.toArray(new Room[0]);
+		Arrays.sort(byCapacity, Comparator.<Room>comparingInt(room -> room.capacity).reversed().thenComparingInt(room -> room.number));
+		Integer[] byEnrolments = new Integer[numParts];
+		for (int p = 0; p < numParts; p++) byEnrolments[p] = p;
+		Arrays.sort(byEnrolments, Comparator.<Integer>comparingLong(p -> enrolments[p]).reversed().thenComparingInt(p -> p));
+
+		int[] partOfRoom = new int[byCapacity.length];
+		long[] seats = new long[numParts];
+		long totalSeats = 0;
+		for (int i = 0; i < byCapacity.length; i++) {
+			Room room = byCapacity[i];
+			int part = 0;
+			if (i < numParts) {
+				part = byEnrolments[i];
+			} else {
+				double bestDeficit = Double.NEGATIVE_INFINITY;
+				for (int p = 0; p < numParts; p++) {
+					double share = totalEnrolments == 0 ? 1.0 / numParts : (double) enrolments[p] / totalEnrolments;
+					double deficit = share * (totalSeats + room.capacity) - seats[p];
+					if (deficit > bestDeficit) {
+						bestDeficit = deficit;
+						part = p;
+					}
+				}
+			}
+			partOfRoom[room.number] = part;
+			seats[part] += room.capacity;
+			totalSeats += room.capacity;
+		}
+		return partOfRoom;
+	}
+
+	private static Subproblem subproblem(ExamTimetablingProblem problem, int[] partOfExam, int[] partOfRoom, int part) {
+		int[] exams = IntStream.range(0, partOfExam.length).filter(e -> partOfExam[e] == part).toArray();
+		int[] rooms = IntStream.range(0, partOfRoom.length).filter(r -> partOfRoom[r] == part).toArray();
+		int[] localExam = new int[partOfExam.length];
+		Arrays.fill(localExam, -1);
+		for (int i = 0; i < exams.length; i++) localExam[exams[i]] = i;
+
+		List<Exam> subExams = new ArrayList<>(exams.length);
+		for (int i = 0; i < exams.length; i++) {
+			Exam exam = problem.exams.get(exams[i]);
+			subExams.add(new Exam(i, exam.duration, exam.studentIds, exam.dictionary));
+		}
+		List<Room> subRooms = new ArrayList<>(rooms.length);
+		for (int i = 0; i < rooms.length; i++) {
+			Room room = problem.rooms.get(rooms[i]);
+			subRooms.add(new Room(i, room.capacity, room.penalty));
+		}
+
+		ConstraintIndex constraints = problem.constraintIndex;
+		List<PeriodHardConstraint> periodHardConstraints = new ArrayList<>();
+		for (int c = 0; c < constraints.types.length; c++) {
+			if (localExam[constraints.examOne[c]] == -1) continue;
+			periodHardConstraints.add(new PeriodHardConstraint(localExam[constraints.examOne[c]], constraints.types[c].name(), localExam[constraints.examTwo[c]]));
+		}
+		List<RoomHardConstraint> roomHardConstraints = new ArrayList<>();
+		for (int i = 0; i < exams.length; i++) {
+			for (int n = 0; n < constraints.roomExclusive[exams[i]]; n++) roomHardConstraints.add(new RoomHardConstraint(i, "ROOM_EXCLUSIVE"));
+		}
+
+		// Frontloading applies to the largest exams of the whole problem, which are the largest exams of the part too.
+		List<InstitutionalWeighting> institutionalWeightings = new ArrayList<>();
+		for (InstitutionalWeighting weighting : problem.institutionalWeightings) {
+			if (!weighting.weightingType.equals("FRONTLOAD")) {
+				institutionalWeightings.add(weighting);
+				continue;
+			}
+			int numLargest = (int) problem.exams.stream()
+					.sorted((e1, e2) -> e2.studentIds.length - e1.studentIds.length)
+					.limit(weighting.paramOne)
+					.filter(exam -> localExam[exam.number] != -1)
+					.count();
+			institutionalWeightings.add(new InstitutionalWeighting(weighting.weightingType, numLargest, weighting.paramTwo, weighting.paramThree));
+		}
+
+		ExamTimetablingProblem subproblem = new ExamTimetablingProblem(subExams, problem.students, problem.periods, subRooms,
+				periodHardConstraints, roomHardConstraints, institutionalWeightings, problem.clashGraph.subgraph(exams),
+				LoadOptions.DEFAULT.withDenseClashMatrix(false));
+		return new Subproblem(subproblem, exams, rooms);
+	}
+
+	/**
+	 * @param solutions - a solution to each subproblem, in the order of subproblems.
+	 * @return the solution to the original problem that makes the same bookings. If a solution books an exam more than
+	 * once, its first booking is used.
+	 */
+	public ExamTimetablingSolution merge(List<ExamTimetablingSolution> solutions) {
+		if (solutions.size() != subproblems.size())
+			throw new IllegalArgumentException("Expected " + subproblems.size() + " solutions but got " + solutions.size() + ".");
+
+		CompactSolution merged = new CompactSolution(problem.exams.size());
+		for (int part = 0; part < subproblems.size(); part++) {
+			Subproblem subproblem = subproblems.get(part);
+			for (Booking booking : solutions.get(part).bookings) {
+				int exam = subproblem.exams[booking.exam.number];
+				if (!merged.isBooked(exam)) merged.book(exam, booking.period.number, subproblem.rooms[booking.room.number]);
+			}
+		}
+		return merged.toSolution(problem);
+	}
+}
@@ -0,0 +1,400 @@
+package dev.born.itc2007;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Evaluates the exact change in hard and soft cost caused by moving or swapping exams in a solution, without applying
+ * the change. Each evaluation costs time in proportion to the clash neighbours and period hard constraints of the exams
+ * involved, so it can be called for every candidate move of a local search.
+ * <p>
+ * The evaluator keeps its own copy of the assignment, which can be changed in place through move and swap, so that it
+ * can follow a search from one accepted move to the next. The deltas agree with the evaluation methods of
+ * ExamTimetablingSolution, assuming that each exam is booked at most once. Instances are not thread-safe.
+ */
+public class DeltaEvaluator {
+	private final ExamTimetablingProblem problem;
+	private final ClashGraph clashGraph;
+
+	/**
+	 * The weight of the reverse edge of each entry in the clash graph, which only differs from the weight itself when
+	 * exams list the same student more than once.
+	 */
+	private final int[] reverseWeights;
+
+	private final int[] examDuration;
+	private final int[] examRoomExclusive;
+	private final boolean[] examFrontload;
+
+	private final int[] periodDay;
+	private final int[] periodDuration;
+	private final int[] periodPenalty;
+	private final boolean[] periodLast;
+
+	private final int[] roomPenalty;
+
+	private final int twoInARowWeight;
+	private final int twoInADayWeight;
+	private final int periodSpread;
+	private final int mixedDurationsWeight;
+	private final int frontloadWeight;
+
+	private final ConstraintIndex constraintIndex;
+
+	private final int[] periodOf;
+	private final int[] roomOf;
+
+	private final OccupancyIndex occupancy;
+
+	private int hardCost;
+	private int softCost;
+
+	// The change being evaluated, where examTwo is -1 for a single exam move.
+	private int examOne = -1;
+	private int newPeriodOne;
+	private int newRoomOne;
+	private int examTwo = -1;
+	private int newPeriodTwo;
+	private int newRoomTwo;
+	private int deltaHard;
+	private int deltaSoft;
+
+	/**
+	 * @param solution - the solution from which changes will be evaluated.
+	 */
+	public DeltaEvaluator(ExamTimetablingSolution solution) {
+		this.problem = solution.getProblem();
+		this.clashGraph = problem.clashGraph;
+		int numExams = problem.exams.size();
+
+		this.reverseWeights = reverseWeights(clashGraph);
+
+		ProblemColumns columns = problem.columns;
+		this.examDuration = columns.examDuration;
+		this.examRoomExclusive = problem.constraintIndex.roomExclusive;
+		this.examFrontload = columns.examFrontload;
+		this.periodDay = columns.periodDay;
+		this.periodDuration = columns.periodDuration;
+		this.periodPenalty = columns.periodPenalty;
+		this.periodLast = columns.periodFrontload;
+		this.roomPenalty = columns.roomPenalty;
+
+		InstitutionalWeighting twoInARow = weighting("TWOINAROW");
+		InstitutionalWeighting twoInADay = weighting("TWOINADAY");
+		InstitutionalWeighting spread = weighting("PERIOD_SPREAD");
+		InstitutionalWeighting mixedDurations = weighting("NONMIXEDDURATIONS");
+		InstitutionalWeighting frontload = weighting("FRONTLOAD");
+		this.twoInARowWeight = twoInARow == null ? 0 : twoInARow.paramOne;
+		this.twoInADayWeight = twoInADay == null ? 0 : twoInADay.paramOne;
+		this.periodSpread = spread == null ? 0 : spread.paramOne;
+		this.mixedDurationsWeight = mixedDurations == null ? 0 : mixedDurations.paramOne;
+		this.frontloadWeight = frontload == null ? 0 : frontload.paramThree;
+
+		this.constraintIndex = problem.constraintIndex;
+
+		this.periodOf = new int[numExams];
+		this.roomOf = new int[numExams];
+		Arrays.fill(periodOf, -1);
+		Arrays.fill(roomOf, -1);
+		this.occupancy = new OccupancyIndex(problem);
+		for (Booking booking : solution.bookings) {
+			if (periodOf[booking.exam.number] != -1) continue;
+			periodOf[booking.exam.number] = booking.period.number;
+			roomOf[booking.exam.number] = booking.room.number;
+			occupancy.add(booking.exam.number, booking.period.number, booking.room.number);
+		}
+
+		this.hardCost = solution.distanceToFeasibility();
+		this.softCost = solution.softConstraintViolations();
+	}
+
+	/**
+	 * @param problem  - the problem that the solution solves.
+	 * @param solution - the solution from which changes will be evaluated.
+	 */
+	public DeltaEvaluator(ExamTimetablingProblem problem, CompactSolution solution) {
+		this(solution.toSolution(problem));
+	}
+
+	private InstitutionalWeighting weighting(String weightingType) {
+		return problem.institutionalWeightings.stream().filter(w -> w.weightingType.equals(weightingType)).findFirst().orElse(null);
+	}
+
+	private static int[] reverseWeights(ClashGraph clashGraph) {
+		int[] reverseWeights = new int[clashGraph.weights.length];
+		boolean isSymmetric = true;
+		for (int i = 0; i < clashGraph.numExams(); i++) {
+			for (int k = clashGraph.offsets[i]; k < clashGraph.offsets[i + 1]; k++) {
+				reverseWeights[k] = clashGraph.weight(clashGraph.neighbours[k], i);
+				if (reverseWeights[k] != clashGraph.weights[k]) isSymmetric = false;
+			}
+		}
+		return isSymmetric ? clashGraph.weights : reverseWeights;
+	}
+
+	/**
+	 * @return the cost of the current assignment.
+	 */
+	public Cost cost() {
+		return new Cost(hardCost, softCost);
+	}
+
+	/**
+	 * @return the hard cost of the current assignment, without allocating a Cost.
+	 */
+	int hardCost() {
+		return hardCost;
+	}
+
+	/**
+	 * @return the soft cost of the current assignment, without allocating a Cost.
+	 */
+	int softCost() {
+		return softCost;
+	}
+
+	/**
+	 * @param exam - the exam number.
+	 * @return the period number of the exam in the current assignment, or -1 if the exam is not booked.
+	 */
+	public int periodOf(int exam) {
+		return periodOf[exam];
+	}
+
+	/**
+	 * @param exam - the exam number.
+	 * @return the room number of the exam in the current assignment, or -1 if the exam is not booked.
+	 */
+	public int roomOf(int exam) {
+		return roomOf[exam];
+	}
+
+	/**
+	 * @param exam   - the exam number.
+	 * @param period - the period number to move the exam to.
+	 * @param room   - the room number to move the exam to.
+	 * @return the change in cost if the exam were booked in the given period and room. The exam does not need to be
+	 * booked already.
+	 */
+	public Cost moveDelta(int exam, int period, int room) {
+		evaluateMove(exam, period, room);
+		return new Cost(deltaHard, deltaSoft);
+	}
+
+	/**
+	 * Evaluates the same change as moveDelta without allocating a Cost, for the inner loops of searches. The change is
+	 * read with deltaHard() and deltaSoft() until the next evaluation, move or swap.
+	 *
+	 * @param exam   - the exam number.
+	 * @param period - the period number to move the exam to.
+	 * @param room   - the room number to move the exam to.
+	 */
+	public void evaluateMove(int exam, int period, int room) {
+		examOne = exam;
+		newPeriodOne = period;
+		newRoomOne = period == -1 ? -1 : room;
+		examTwo = -1;
+		deltaHard = 0;
+		deltaSoft = 0;
+		if (newPeriodOne != periodOf[exam] || newRoomOne != roomOf[exam]) {
+			examDelta(exam, -1, newPeriodOne, newRoomOne);
+			slotDelta(periodOf[exam], roomOf[exam], exam, -1);
+			slotDelta(newPeriodOne, newRoomOne, -1, exam);
+		}
+		examOne = -1;
+	}
+
+	/**
+	 * @param examOne - the first exam number.
+	 * @param examTwo - the second exam number.
+	 * @return the change in cost if the two exams exchanged their periods and rooms.
+	 */
+	public Cost swapDelta(int examOne, int examTwo) {
+		evaluateSwap(examOne, examTwo);
+		return new Cost(deltaHard, deltaSoft);
+	}
+
+	/**
+	 * Evaluates the same change as swapDelta without allocating a Cost. The change is read with deltaHard() and
+	 * deltaSoft() until the next evaluation, move or swap.
+	 *
+	 * @param exam      - the first exam number.
+	 * @param otherExam - the second exam number.
+	 */
+	public void evaluateSwap(int exam, int otherExam) {
+		examOne = exam;
+		newPeriodOne = periodOf[otherExam];
+		newRoomOne = roomOf[otherExam];
+		examTwo = otherExam;
+		newPeriodTwo = periodOf[exam];
+		newRoomTwo = roomOf[exam];
+		deltaHard = 0;
+		deltaSoft = 0;
+		if (exam != otherExam && (newPeriodOne != newPeriodTwo || newRoomOne != newRoomTwo)) {
+			examDelta(exam, -1, newPeriodOne, newRoomOne);
+			examDelta(otherExam, exam, newPeriodTwo, newRoomTwo);
+			slotDelta(newPeriodTwo, newRoomTwo, exam, otherExam);
+			slotDelta(newPeriodOne, newRoomOne, otherExam, exam);
+		}
+		examOne = -1;
+		examTwo = -1;
+	}
+
+	/**
+	 * @return the change in hard cost of the last move or swap evaluated.
+	 */
+	public int deltaHard() {
+		return deltaHard;
+	}
+
+	/**
+	 * @return the change in soft cost of the last move or swap evaluated.
+	 */
+	public int deltaSoft() {
+		return deltaSoft;
+	}
+
+	/**
+	 * Books the exam in the given period and room.
+	 *
+	 * @param exam   - the exam number.
+	 * @param period - the period number to move the exam to.
+	 * @param room   - the room number to move the exam to.
+	 */
+	public void move(int exam, int period, int room) {
+		evaluateMove(exam, period, room);
+		hardCost += deltaHard;
+		softCost += deltaSoft;
+		assign(exam, period, room);
+	}
+
+	/**
+	 * Exchanges the periods and rooms of two exams.
+	 *
+	 * @param examOne - the first exam number.
+	 * @param examTwo - the second exam number.
+	 */
+	public void swap(int examOne, int examTwo) {
+		evaluateSwap(examOne, examTwo);
+		hardCost += deltaHard;
+		softCost += deltaSoft;
+		int periodOne = periodOf[examOne];
+		int roomOne = roomOf[examOne];
+		assign(examOne, periodOf[examTwo], roomOf[examTwo]);
+		assign(examTwo, periodOne, roomOne);
+	}
+
+	/**
+	 * @return a solution with the bookings of the current assignment, in exam order.
+	 */
+	public ExamTimetablingSolution toSolution() {
+		List<Booking> bookings = new ArrayList<>();
+		for (Exam exam : problem.exams) {
+			if (periodOf[exam.number] == -1) continue;
+			bookings.add(new Booking(exam, problem.periods.get(periodOf[exam.number]), problem.rooms.get(roomOf[exam.number])));
+		}
+		return new ExamTimetablingSolution(problem, bookings);
+	}
+
+	/**
+	 * @return the compact encoding of the current assignment.
+	 */
+	public CompactSolution toCompactSolution() {
+		CompactSolution solution = new CompactSolution(periodOf.length);
+		for (int exam = 0; exam < periodOf.length; exam++) {
+			if (periodOf[exam] != -1) solution.book(exam, periodOf[exam], roomOf[exam]);
+		}
+		return solution;
+	}
+
+	private void assign(int exam, int period, int room) {
+		if (periodOf[exam] != -1) occupancy.remove(exam, periodOf[exam], roomOf[exam]);
+		periodOf[exam] = period;
+		roomOf[exam] = period == -1 ? -1 : room;
+		if (period != -1) occupancy.add(exam, period, room);
+	}
+
+	private int periodAfter(int exam) {
+		if (exam == examOne) return newPeriodOne;
+		if (exam == examTwo) return newPeriodTwo;
+		return periodOf[exam];
+	}
+
+	/**
+	 * Adds the change in the cost of everything that depends on the booking of one exam, other than the period and
+	 * room occupancy, to the delta being evaluated.
+	 *
+	 * @param exam      - the exam being moved.
+	 * @param skipExam  - an exam whose pairwise costs with this exam have already been counted, or -1.
+	 * @param newPeriod - the period the exam moves to, or -1.
+	 * @param newRoom   - the room the exam moves to, or -1.
+	 */
+	private void examDelta(int exam, int skipExam, int newPeriod, int newRoom) {
+		int oldPeriod = periodOf[exam];
+		int oldRoom = roomOf[exam];
+		if (oldPeriod != -1) examCost(exam, oldPeriod, oldRoom, -1);
+		if (newPeriod != -1) examCost(exam, newPeriod, newRoom, 1);
+
+		for (int k = clashGraph.offsets[exam]; k < clashGraph.offsets[exam + 1]; k++) {
+			int neighbour = clashGraph.neighbours[k];
+			if (neighbour == skipExam) continue;
+			int oldNeighbourPeriod = periodOf[neighbour];
+			int newNeighbourPeriod = periodAfter(neighbour);
+			if (oldPeriod != -1 && oldNeighbourPeriod != -1)
+				pairCost(oldPeriod, oldNeighbourPeriod, clashGraph.weights[k], reverseWeights[k], -1);
+			if (newPeriod != -1 && newNeighbourPeriod != -1)
+				pairCost(newPeriod, newNeighbourPeriod, clashGraph.weights[k], reverseWeights[k], 1);
+		}
+
+		ConstraintIndex index = constraintIndex;
+		for (int k = index.offsets[exam]; k < index.offsets[exam + 1]; k++) {
+			int c = index.constraints[k];
+			int one = index.examOne[c];
+			int two = index.examTwo[c];
+			if (skipExam != -1 && (one == skipExam || two == skipExam)) continue;
+			deltaHard += index.violation(c, periodAfter(one), periodAfter(two)) - index.violation(c, periodOf[one], periodOf[two]);
+		}
+	}
+
+	private void examCost(int exam, int period, int room, int sign) {
+		int hard = examRoomExclusive[exam];
+		if (examDuration[exam] > periodDuration[period]) hard++;
+		int soft = roomPenalty[room] + periodPenalty[period];
+		if (examFrontload[exam] && periodLast[period]) soft += frontloadWeight;
+		deltaHard += sign * hard;
+		deltaSoft += sign * soft;
+	}
+
+	/**
+	 * Adds the cost of a pair of clashing exams to the delta being evaluated. Conflicts, two in a row and two in a day
+	 * are counted in both directions, as they are by the full evaluation.
+	 */
+	private void pairCost(int period, int otherPeriod, int weight, int reverseWeight, int sign) {
+		if (period == otherPeriod) deltaHard += sign * 2;
+
+		int soft = 0;
+		int distance = otherPeriod - period;
+		if (periodDay[period] == periodDay[otherPeriod]) {
+			if (distance == 1 || distance == -1) soft += twoInARowWeight * (weight + reverseWeight);
+			else soft += twoInADayWeight * (weight + reverseWeight);
+		}
+		if (distance > 0 && distance <= periodSpread) soft += weight;
+		if (distance < 0 && -distance <= periodSpread) soft += reverseWeight;
+		deltaSoft += sign * soft;
+	}
+
+	/**
+	 * Adds the change in overbooking and mixed durations of one period and room to the delta being evaluated.
+	 *
+	 * @param period      - the period number, or -1.
+	 * @param room        - the room number.
+	 * @param removedExam - the exam leaving the period and room, or -1.
+	 * @param addedExam   - the exam joining the period and room, or -1.
+	 */
+	private void slotDelta(int period, int room, int removedExam, int addedExam) {
+		if (period == -1) return;
+		deltaHard += occupancy.overbookedPeriodsDelta(period, room, removedExam, addedExam);
+		deltaSoft += mixedDurationsWeight * occupancy.mixedDurationsDelta(period, room, removedExam, addedExam);
+	}
+}
@@ -0,0 +1,125 @@
+package dev.born.itc2007;
+
+/**
+ * Models the full evaluation of a solution: every hard and soft constraint violation, and their totals. Reports are
+ * immutable, so they can be shared freely between threads.
+ * <p>
+ * See http://www.cs.qub.ac.uk/itc2007/examtrack/exam_track_index_files/examevaluation.htm for the meaning of each
+ * component.
+ */
+public class EvaluationReport {
+	/**
+	 * The number of exams that occur at the same time and share students.
+	 */
+	public final int conflictingExams;
+
+	/**
+	 * The number of periods and rooms where the required capacity exceeds the capacity of the room.
+	 */
+	public final int overbookedPeriods;
+
+	/**
+	 * The number of bookings in periods that are too short for the exam.
+	 */
+	public final int tooShortPeriods;
+
+	/**
+	 * The number of period hard constraint violations.
+	 */
+	public final int periodConstraintViolations;
+
+	/**
+	 * The number of room hard constraint violations.
+	 */
+	public final int roomConstraintViolations;
+
+	/**
+	 * The penalty for students sitting two exams in a row.
+	 */
+	public final int twoInARowPenalty;
+
+	/**
+	 * The penalty for students sitting two exams in a day that are not in a row.
+	 */
+	public final int twoInADayPenalty;
+
+	/**
+	 * The penalty for students sitting exams within the period spread of each other.
+	 */
+	public final int periodSpreadPenalty;
+
+	/**
+	 * The penalty for periods and rooms holding exams of different durations.
+	 */
+	public final int mixedDurationsPenalty;
+
+	/**
+	 * The penalty for large exams booked in the last periods.
+	 */
+	public final int frontloadPenalty;
+
+	/**
+	 * The total penalty of the rooms used by each booking.
+	 */
+	public final int roomPenalty;
+
+	/**
+	 * The total penalty of the periods used by each booking.
+	 */
+	public final int periodPenalty;
+
+	EvaluationReport(int conflictingExams, int overbookedPeriods, int tooShortPeriods, int periodConstraintViolations, int roomConstraintViolations,
+					 int twoInARowPenalty, int twoInADayPenalty, int periodSpreadPenalty, int mixedDurationsPenalty, int frontloadPenalty, int roomPenalty, int periodPenalty) {
+		this.conflictingExams = conflictingExams;
+		this.overbookedPeriods = overbookedPeriods;
+		this.tooShortPeriods = tooShortPeriods;
+		this.periodConstraintViolations = periodConstraintViolations;
+		this.roomConstraintViolations = roomConstraintViolations;
+		this.twoInARowPenalty = twoInARowPenalty;
+		this.twoInADayPenalty = twoInADayPenalty;
+		this.periodSpreadPenalty = periodSpreadPenalty;
+		this.mixedDurationsPenalty = mixedDurationsPenalty;
+		this.frontloadPenalty = frontloadPenalty;
+		this.roomPenalty = roomPenalty;
+		this.periodPenalty = periodPenalty;
+	}
+
+	/**
+	 * @return the number of hard constraint violations (Distance to Feasibility).
+	 */
+	public int distanceToFeasibility() {
+		return conflictingExams + overbookedPeriods + tooShortPeriods + periodConstraintViolations + roomConstraintViolations;
+	}
+
+	/**
+	 * @return the total penalty of soft constraint violations.
+	 */
+	public int softConstraintViolations() {
+		return twoInARowPenalty + twoInADayPenalty + periodSpreadPenalty + mixedDurationsPenalty + frontloadPenalty + roomPenalty + periodPenalty;
+	}
+
+	/**
+	 * @return the hard and soft totals as a cost.
+	 */
+	public Cost cost() {
+		return new Cost(distanceToFeasibility(), softConstraintViolations());
+	}
+
+	@Override
+	public String toString() {
+		return "EvaluationReport{" +
+				"conflictingExams=" + conflictingExams +
+				", overbookedPeriods=" + overbookedPeriods +
+				", tooShortPeriods=" + tooShortPeriods +
+				", periodConstraintViolations=" + periodConstraintViolations +
+				", roomConstraintViolations=" + roomConstraintViolations +
+				", twoInARowPenalty=" + twoInARowPenalty +
+				", twoInADayPenalty=" + twoInADayPenalty +
+				", periodSpreadPenalty=" + periodSpreadPenalty +
+				", mixedDurationsPenalty=" + mixedDurationsPenalty +
+				", frontloadPenalty=" + frontloadPenalty +
+				", roomPenalty=" + roomPenalty +
+				", periodPenalty=" + periodPenalty +
+				'}';
+	}
+}
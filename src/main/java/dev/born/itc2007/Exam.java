@@ -1,6 +1,9 @@
 package dev.born.itc2007;
 
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * Models a single exam that needs to be booked.
@@ -8,17 +11,66 @@ import java.util.List;
 public class Exam {
 	public final int number;
 	public final int duration;
+
+	/**
+	 * The id of the student of each enrolment in ascending order, as assigned by the StudentDictionary of the problem.
+	 * A student enrolled more than once appears more than once. The array must not be modified.
+	 */
+	public final int[] studentIds;
+
+	/**
+	 * The identifier of the student of each enrolment, in the same order as studentIds. This is a view that looks each
+	 * student up in the dictionary, kept for compatibility.
+	 */
 	public final List<String> students;
 
+	final StudentDictionary dictionary;
+
 	/**
+	 * Creates an exam with a small dictionary of its own. The student ids of such an exam cannot be compared with those
+	 * of other exams, so ClashGraph.of interns the students of all of them again; exams built together should share a
+	 * dictionary instead.
+	 *
 	 * @param number - the identifier for the exam.
 	 * @param duration - the duration that the exam will last.
 	 * @param students - the list of students partaking in the exam.
 	 */
 	public Exam(int number, int duration, List<String> students) {
+		this(number, duration, students, new StudentDictionary(students.size()));
+	}
+
+	/**
+	 * Creates an exam whose students are interned in a dictionary shared with other exams, so that ClashGraph.of can
+	 * use their student ids as they are.
+	 *
+	 * @param number     - the identifier for the exam.
+	 * @param duration   - the duration that the exam will last.
+	 * @param students   - the list of students partaking in the exam.
+	 * @param dictionary - the dictionary shared by the exams, which assigns ids to students it has not seen before.
+	 */
+	public Exam(int number, int duration, List<String> students, StudentDictionary dictionary) {
 		this.number = number;
 		this.duration = duration;
-		this.students = students;
+		this.dictionary = dictionary;
+		int[] ids = new int[students.size()];
+		for (int i = 0; i < ids.length; i++) ids[i] = dictionary.intern(students.get(i));
+		Arrays.sort(ids);
+		this.studentIds = ids;
+		this.students = new StudentList(ids, dictionary);
+	}
+
+	/**
+	 * @param number     - the identifier for the exam.
+	 * @param duration   - the duration that the exam will last.
+	 * @param studentIds - the student id of each enrolment in ascending order. The array is kept, not copied.
+	 * @param dictionary - the dictionary that assigned the student ids.
+	 */
+	Exam(int number, int duration, int[] studentIds, StudentDictionary dictionary) {
+		this.number = number;
+		this.duration = duration;
+		this.studentIds = studentIds;
+		this.students = new StudentList(studentIds, dictionary);
+		this.dictionary = dictionary;
 	}
 
 	@Override
@@ -26,7 +78,27 @@ public class Exam {
 		return "Exam{" +
 				"number=" + number +
 				", duration=" + duration +
-				", #students=" + students.size() +
+				", #students=" + studentIds.length +
 				'}';
 	}
+
+	private static class StudentList extends AbstractList<String> implements RandomAccess {
+		private final int[] ids;
+		private final StudentDictionary dictionary;
+
+		StudentList(int[] ids, StudentDictionary dictionary) {
+			this.ids = ids;
+			this.dictionary = dictionary;
+		}
+
+		@Override
+		public String get(int index) {
+			return dictionary.name(ids[index]);
+		}
+
+		@Override
+		public int size() {
+			return ids.length;
+		}
+	}
 }
@@ -0,0 +1,300 @@
+package dev.born.itc2007;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Holds the periods and rooms that each exam can use without violating a hard constraint on its own, so that searches
+ * can sample moves from them instead of from every period and room.
+ * <p>
+ * A period is allowed if it is long enough for the exam, and a room if it can seat every student of the exam. The
+ * periods are then narrowed by propagating the period hard constraints, with the same meaning they have when scored:
+ * <ul>
+ * <li>the exams of a coincidence group keep only the periods that all of them allow,</li>
+ * <li>the first exam of an AFTER constraint keeps only periods that start no later than the last period of the
+ * second exam, and the second exam only periods that start no earlier than the first period of the first exam,</li>
+ * <li>an exam excluded from another exam that has a single period left loses that period.</li>
+ * </ul>
+ * A domain is never left empty: an exam that no period or room suits on its own can use all of them, and a narrowing
+ * that would empty a domain is skipped. Room exclusive constraints depend on the other bookings of a room, so they do
+ * not narrow the rooms of an exam. Instances are immutable.
+ */
+public class ExamDomains {
+	private final int numPeriods;
+	private final int wordsPerExam;
+
+	/**
+	 * The allowed periods of exam e are the set bits of periodBits[e * wordsPerExam] ..
+	 * periodBits[(e + 1) * wordsPerExam - 1].
+	 */
+	private final long[] periodBits;
+	private final int[] periodCounts;
+
+	/**
+	 * Every room number, in ascending order of capacity, then of room number.
+	 */
+	private final int[] roomsByCapacity;
+
+	/**
+	 * The allowed rooms of exam e are roomsByCapacity[firstRoom[e]] to the end.
+	 */
+	private final int[] firstRoom;
+
+	/**
+	 * @param problem - the problem whose domains are computed. Its constraint index must already be built.
+	 */
+	ExamDomains(ExamTimetablingProblem problem) {
+		int numExams = problem.exams.size();
+		this.numPeriods = problem.periods.size();
+		this.wordsPerExam = (numPeriods + 63) >>> 6;
+		this.periodBits = new long[numExams * wordsPerExam];
+		this.periodCounts = new int[numExams];
+
+		ProblemColumns columns = problem.columns;
+		for (int e = 0; e < numExams; e++) {
+			for (int p = 0; p < numPeriods; p++) {
+				if (columns.examDuration[e] <= columns.periodDuration[p]) allow(e, p);
+			}
+			if (periodCounts[e] == 0) {
+				for (int p = 0; p < numPeriods; p++) allow(e, p);
+			}
+		}
+
+		int[] roomCapacity = columns.roomCapacity;
+		this.roomsByCapacity = IntStream.range(0, roomCapacity.length)
+				.boxed()
+				.sorted((r1, r2) -> roomCapacity[r1] != roomCapacity[r2] ? Integer.compare(roomCapacity[r1], roomCapacity[r2]) : Integer.compare(r1, r2))
+				.mapToInt(Integer::intValue)
+				.toArray();
+		this.firstRoom = new int[numExams];
+		for (int e = 0; e < numExams; e++) {
+			int first = 0;
+			while (first < roomsByCapacity.length && roomCapacity[roomsByCapacity[first]] < columns.examSize[e]) first++;
+			firstRoom[e] = first == roomsByCapacity.length ? 0 : first;
+		}
+
+		if (numPeriods > 0) propagate(problem.constraintIndex);
+	}
+
+	private void allow(int exam, int period) {
+		periodBits[exam * wordsPerExam + (period >>> 6)] |= 1L << period;
+		periodCounts[exam]++;
+	}
+
+	/**
+	 * Narrows the periods of each exam until no constraint narrows them further, revisiting the constraints of an exam
+	 * whenever its periods change.
+	 */
+	private void propagate(ConstraintIndex constraints) {
+		int numExams = periodCounts.length;
+		int[] periodOrder = constraints.periodOrder;
+		Integer[] byOrder = new Integer[numPeriods];
+		for (int p = 0; p < numPeriods; p++) byOrder[p] = p;
+		Arrays.sort(byOrder, (p1, p2) -> Integer.compare(periodOrder[p1], periodOrder[p2]));
+
+		for (int e = 0; e < numExams; e++) {
+			int[] group = constraints.coincidentExams(e);
+			if (group.length < 2 || group[0] != e) continue;
+			long[] common = new long[wordsPerExam];
+			Arrays.fill(common, -1L);
+			for (int member : group) {
+				for (int w = 0; w < wordsPerExam; w++) common[w] &= periodBits[member * wordsPerExam + w];
+			}
+			for (int member : group) restrict(member, common);
+		}
+
+		Deque<Integer> queue = new ArrayDeque<>();
+		boolean[] isQueued = new boolean[numExams];
+		for (int e = 0; e < numExams; e++) {
+			if (constraints.offsets[e] == constraints.offsets[e + 1]) continue;
+			queue.add(e);
+			isQueued[e] = true;
+		}
+		long[] mask = new long[wordsPerExam];
+		while (!queue.isEmpty()) {
+			int exam = queue.poll();
+			isQueued[exam] = false;
+			for (int k = constraints.offsets[exam]; k < constraints.offsets[exam + 1]; k++) {
+				int c = constraints.constraints[k];
+				int one = constraints.examOne[c];
+				int two = constraints.examTwo[c];
+				if (one == two) continue;
+				int other = one == exam ? two : one;
+
+				Arrays.fill(mask, 0);
+				switch (constraints.types[c]) {
+					case AFTER:
+						if (exam == two) {
+							int latest = periodOrder[lastByOrder(two, byOrder)];
+							for (int p = 0; p < numPeriods; p++) {
+								if (periodOrder[p] <= latest) mask[p >>> 6] |= 1L << p;
+							}
+						} else {
+							int earliest = periodOrder[firstByOrder(one, byOrder)];
+							for (int p = 0; p < numPeriods; p++) {
+								if (periodOrder[p] >= earliest) mask[p >>> 6] |= 1L << p;
+							}
+						}
+						break;
+					case EXCLUSION:
+						if (periodCounts[exam] != 1) continue;
+						Arrays.fill(mask, -1L);
+						int only = firstPeriod(exam);
+						mask[only >>> 6] &= ~(1L << only);
+						break;
+					default:
+						System.arraycopy(periodBits, exam * wordsPerExam, mask, 0, wordsPerExam);
+				}
+
+				if (restrict(other, mask) && !isQueued[other]) {
+					queue.add(other);
+					isQueued[other] = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return whether the periods of the exam changed. They are left as they are if the mask would remove them all.
+	 */
+	private boolean restrict(int exam, long[] mask) {
+		int base = exam * wordsPerExam;
+		int count = 0;
+		boolean isChanged = false;
+		for (int w = 0; w < wordsPerExam; w++) {
+			long bits = periodBits[base + w] & mask[w];
+			count += Long.bitCount(bits);
+			isChanged |= bits != periodBits[base + w];
+		}
+		if (!isChanged || count == 0) return false;
+		for (int w = 0; w < wordsPerExam; w++) periodBits[base + w] &= mask[w];
+		periodCounts[exam] = count;
+		return true;
+	}
+
+	private int firstPeriod(int exam) {
+		int base = exam * wordsPerExam;
+		for (int w = 0; w < wordsPerExam; w++) {
+			if (periodBits[base + w] != 0) return (w << 6) + Long.numberOfTrailingZeros(periodBits[base + w]);
+		}
+		return -1;
+	}
+
+	private int firstByOrder(int exam, Integer[] byOrder) {
+		for (int p : byOrder) {
+			if (isAllowed(exam, p)) return p;
+		}
+		return -1;
+	}
+
+	private int lastByOrder(int exam, Integer[] byOrder) {
+		for (int i = byOrder.length - 1; i >= 0; i--) {
+			if (isAllowed(exam, byOrder[i])) return byOrder[i];
+		}
+		return -1;
+	}
+
+	/**
+	 * @param exam   - the exam number.
+	 * @param period - the period number.
+	 * @return whether the period is in the domain of the exam.
+	 */
+	public boolean isAllowed(int exam, int period) {
+		return (periodBits[exam * wordsPerExam + (period >>> 6)] & (1L << period)) != 0;
+	}
+
+	/**
+	 * @param exam - the exam number.
+	 * @return the number of periods in the domain of the exam.
+	 */
+	public int periodCount(int exam) {
+		return periodCounts[exam];
+	}
+
+	/**
+	 * @param exam - the exam number.
+	 * @return the periods in the domain of the exam, in ascending order of period number.
+	 */
+	public int[] periods(int exam) {
+		int[] periods = new int[periodCounts[exam]];
+		int size = 0;
+		for (int p = 0; p < numPeriods; p++) {
+			if (isAllowed(exam, p)) periods[size++] = p;
+		}
+		return periods;
+	}
+
+	/**
+	 * Writes the periods in the domain of an exam to a buffer, for loops that would otherwise copy them on every call.
+	 *
+	 * @param exam    - the exam number.
+	 * @param periods - the buffer to write to, with room for at least periodCount(exam) periods.
+	 * @return the number of periods written, in ascending order of period number.
+	 */
+	public int periods(int exam, int[] periods) {
+		int size = 0;
+		int base = exam * wordsPerExam;
+		for (int w = 0; w < wordsPerExam; w++) {
+			for (long bits = periodBits[base + w]; bits != 0; bits &= bits - 1)
+				periods[size++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+		}
+		return size;
+	}
+
+	/**
+	 * @param exam   - the exam number.
+	 * @param random - the source of randomness.
+	 * @return a period chosen uniformly from the domain of the exam.
+	 */
+	public int randomPeriod(int exam, SplittableRandom random) {
+		int remaining = random.nextInt(periodCounts[exam]);
+		int base = exam * wordsPerExam;
+		for (int w = 0; ; w++) {
+			long bits = periodBits[base + w];
+			int count = Long.bitCount(bits);
+			if (remaining >= count) {
+				remaining -= count;
+				continue;
+			}
+			for (; remaining > 0; remaining--) bits &= bits - 1;
+			return (w << 6) + Long.numberOfTrailingZeros(bits);
+		}
+	}
+
+	/**
+	 * @param exam - the exam number.
+	 * @return the number of rooms in the domain of the exam.
+	 */
+	public int roomCount(int exam) {
+		return roomsByCapacity.length - firstRoom[exam];
+	}
+
+	/**
+	 * @param exam - the exam number.
+	 * @return the rooms in the domain of the exam, in ascending order of capacity, so the first is the best fit.
+	 */
+	public int[] rooms(int exam) {
+		return Arrays.copyOfRange(roomsByCapacity, firstRoom[exam], roomsByCapacity.length);
+	}
+
+	/**
+	 * @param exam  - the exam number.
+	 * @param index - the index of the room in the domain, from 0 to roomCount(exam) - 1.
+	 * @return the room at the index of rooms(exam), without copying the domain.
+	 */
+	public int room(int exam, int index) {
+		return roomsByCapacity[firstRoom[exam] + index];
+	}
+
+	/**
+	 * @param exam   - the exam number.
+	 * @param random - the source of randomness.
+	 * @return a room chosen uniformly from the domain of the exam.
+	 */
+	public int randomRoom(int exam, SplittableRandom random) {
+		return roomsByCapacity[firstRoom[exam] + random.nextInt(roomCount(exam))];
+	}
+}
@@ -1,13 +1,13 @@
 package dev.born.itc2007;
 
+import dev.born.itc2007.metrics.ClashGraphEvent;
+import dev.born.itc2007.metrics.Metrics;
+
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.time.LocalDate;
-import java.time.LocalTime;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -21,6 +21,11 @@ public class ExamTimetablingProblem {
 	 */
 	public final List<Exam> exams;
 
+	/**
+	 * The ids of the students enrolled in the exams.
+	 */
+	public final StudentDictionary students;
+
 	/**
 	 * The periods in which exams can be booked.
 	 */
@@ -45,24 +50,103 @@ public class ExamTimetablingProblem {
 	 * The institutional weightings which provide information on values given to 'global' soft constraints.
 	 */
 	public final List<InstitutionalWeighting> institutionalWeightings;
+
+	/**
+	 * The number of clashing enrolments between exams, indexed by exam number. This is null when the problem was loaded
+	 * without a dense clash matrix, in which case clashGraph holds the same information.
+	 */
 	public final int[][] clashMatrix;
 
-	private ExamTimetablingProblem(List<Exam> exams, List<Period> periods, List<Room> rooms, List<PeriodHardConstraint> periodHardConstraints, List<RoomHardConstraint> roomHardConstraints, List<InstitutionalWeighting> institutionalWeightings) {
+	/**
+	 * The number of clashing enrolments between exams, stored only for pairs that share students.
+	 */
+	public final ClashGraph clashGraph;
+
+	/**
+	 * The hard constraints compiled into per exam adjacency lists.
+	 */
+	public final ConstraintIndex constraintIndex;
+
+	/**
+	 * The periods and rooms that each exam can use without violating a hard constraint on its own.
+	 */
+	public final ExamDomains domains;
+
+	/**
+	 * The attributes of the exams, periods and rooms as primitive arrays indexed by number.
+	 */
+	public final ProblemColumns columns;
+
+	/**
+	 * An empty occupancy index for each thread that evaluates solutions of this problem. An evaluation adds its
+	 * bookings and removes them again, so only the slots it used are reset.
+	 */
+	final ThreadLocal<OccupancyIndex> scratchOccupancy;
+
+	ExamTimetablingProblem(List<Exam> exams, StudentDictionary students, List<Period> periods, List<Room> rooms, List<PeriodHardConstraint> periodHardConstraints, List<RoomHardConstraint> roomHardConstraints, List<InstitutionalWeighting> institutionalWeightings, LoadOptions options) {
+		this(exams, students, periods, rooms, periodHardConstraints, roomHardConstraints, institutionalWeightings, ClashGraph.of(exams, options.parallel), options);
+	}
+
+	ExamTimetablingProblem(List<Exam> exams, StudentDictionary students, List<Period> periods, List<Room> rooms, List<PeriodHardConstraint> periodHardConstraints, List<RoomHardConstraint> roomHardConstraints, List<InstitutionalWeighting> institutionalWeightings, ClashGraph clashGraph, LoadOptions options) {
+		this(exams, students, periods, rooms, periodHardConstraints, roomHardConstraints, institutionalWeightings, clashGraph, options.denseClashMatrix ? buildClashMatrix(exams, clashGraph) : null);
+	}
+
+	/**
+	 * @param clashMatrix - the dense clash matrix equivalent to the clash graph, or null to go without one.
+	 */
+	ExamTimetablingProblem(List<Exam> exams, StudentDictionary students, List<Period> periods, List<Room> rooms, List<PeriodHardConstraint> periodHardConstraints, List<RoomHardConstraint> roomHardConstraints, List<InstitutionalWeighting> institutionalWeightings, ClashGraph clashGraph, int[][] clashMatrix) {
 		this.exams = exams;
+		this.students = students;
 		this.periods = periods;
 		this.rooms = rooms;
 		this.periodHardConstraints = periodHardConstraints;
 		this.roomHardConstraints = roomHardConstraints;
 		this.institutionalWeightings = institutionalWeightings;
-		this.clashMatrix = new int[exams.size()][exams.size()];
+		this.columns = new ProblemColumns(this);
+		this.clashGraph = clashGraph;
+		this.constraintIndex = new ConstraintIndex(exams, periods, periodHardConstraints, roomHardConstraints, clashGraph);
+		this.domains = new ExamDomains(this);
+		this.clashMatrix = clashMatrix;
+		this.scratchOccupancy = ThreadLocal.withInitial(() -> new OccupancyIndex(this));
+	}
+
+	/**
+	 * @param period - the period number.
+	 * @return the index of the day of the period, where periods on the same date share an index and later dates have
+	 * larger indices.
+	 */
+	public int dayIndex(int period) {
+		return columns.periodDay[period];
+	}
+
+	/**
+	 * @param exams      - the exams of the problem.
+	 * @param clashGraph - the clash graph of the exams.
+	 * @return the dense clash matrix equivalent to the clash graph, as loaded with LoadOptions.denseClashMatrix. The
+	 * diagonal holds the number of enrolments of each exam.
+	 */
+	static int[][] buildClashMatrix(List<Exam> exams, ClashGraph clashGraph) {
+		boolean timed = Metrics.isEnabled();
+		long start = timed ? System.nanoTime() : 0;
+		ClashGraphEvent event = new ClashGraphEvent();
+		event.begin();
+
+		int[][] clashMatrix = new int[exams.size()][exams.size()];
 		for (int i = 0; i < exams.size(); i++) {
-			for (int j = 0; j < exams.size(); j++) {
-				Exam examOne = exams.get(i);
-				Exam examTwo = exams.get(j);
-				int numClashes = (int) examOne.students.stream().filter(s1 -> examTwo.students.stream().anyMatch(s1::equals)).count();
-				this.clashMatrix[i][j] = numClashes;
+			clashMatrix[i][i] = exams.get(i).studentIds.length;
+			for (int k = clashGraph.offsets[i]; k < clashGraph.offsets[i + 1]; k++) {
+				clashMatrix[i][clashGraph.neighbours[k]] = clashGraph.weights[k];
 			}
 		}
+
+		if (timed) Metrics.CLASH_MATRIX_BUILD.recordSince(start);
+		if (event.shouldCommit()) {
+			event.exams = exams.size();
+			event.clashingPairs = clashGraph.neighbours.length / 2;
+			event.matrix = true;
+			event.commit();
+		}
+		return clashMatrix;
 	}
 
 	/**
@@ -74,118 +158,86 @@ public class ExamTimetablingProblem {
 	 * @throws IOException if no file could be found at the provided path.
 	 */
 	public static ExamTimetablingProblem fromFile(String filePath) throws IOException {
-		String content = Files.readString(Path.of(filePath), StandardCharsets.US_ASCII);
-		List<String> sections = Arrays.asList(content.split("\\[.*]\n"));
-
-		List<Exam> exams = readExams(sections.get(1));
-		List<Period> periods = readPeriods(sections.get(2));
-		List<Room> rooms = readRooms(sections.get(3));
-		List<PeriodHardConstraint> periodHardConstraints = readPeriodHardConstraints(sections.get(4));
-		List<RoomHardConstraint> roomHardConstraints = readRoomHardConstraints(sections.get(5));
-		List<InstitutionalWeighting> institutionalWeightings = readInstitutionalWeightings(sections.get(6));
-
-		return new ExamTimetablingProblem(exams, periods, rooms, periodHardConstraints, roomHardConstraints, institutionalWeightings);
+		return fromFile(filePath, LoadOptions.DEFAULT);
 	}
 
-	private static List<Exam> readExams(String examSection) {
-		List<Exam> exams = new ArrayList<>();
-
-		String[] lines = examSection.split("\n");
-		for (String line : lines) {
-			line = line.replaceAll("\\s+","");
-			List<String> parts = Arrays.asList(line.split(","));
-			int durationInMinutes = Integer.parseInt(parts.get(0));
-			List<String> students = parts.subList(1, parts.size());
-			exams.add(new Exam(exams.size(), durationInMinutes, students));
-		}
-
-		return exams;
+	/**
+	 * Get a problem instance from a file. The file must be in the format specified at the following URL:
+	 * http://www.cs.qub.ac.uk/itc2007/examtrack/exam_track_index_files/Inputformat.htm
+	 *
+	 * @param filePath - the path of the file describing the problem.
+	 * @param options  - the options controlling how the problem is loaded.
+	 * @return an instance of the Problem class representing the problem described in filePath.
+	 * @throws IOException if no file could be found at the provided path.
+	 */
+	public static ExamTimetablingProblem fromFile(String filePath, LoadOptions options) throws IOException {
+		return fromPath(Path.of(filePath), options);
 	}
 
-	private static List<Period> readPeriods(String periodSection) {
-		List<Period> periods = new ArrayList<>();
-
-		String[] lines = periodSection.split("\n");
-		for (String line : lines) {
-			line = line.replaceAll("\\s+","");
-			List<String> parts = Arrays.asList(line.split(","));
-			List<String> dateParts = Arrays.asList(parts.get(0).split(":"));
-			LocalDate date = LocalDate.of(Integer.parseInt(dateParts.get(2)), Integer.parseInt(dateParts.get(1)), Integer.parseInt(dateParts.get(0)));
-			List<String> timeParts = Arrays.asList(parts.get(1).split(":"));
-			LocalTime time = LocalTime.of(Integer.parseInt(timeParts.get(0)), Integer.parseInt(timeParts.get(1)), Integer.parseInt(timeParts.get(2)));
-			int duration = Integer.parseInt(parts.get(2));
-			int penalty = Integer.parseInt(parts.get(3));
-			periods.add(new Period(periods.size(), date, time, duration, penalty));
+	/**
+	 * Get a problem instance from a file in the ITC2007 input format.
+	 *
+	 * @param path    - the path of the file describing the problem.
+	 * @param options - the options controlling how the problem is loaded.
+	 * @return an instance of the Problem class representing the problem described in the file.
+	 * @throws IOException if the file could not be read or is not in the expected format.
+	 */
+	public static ExamTimetablingProblem fromPath(Path path, LoadOptions options) throws IOException {
+		try (InputStream in = Files.newInputStream(path)) {
+			return fromStream(in, options);
 		}
-
-		return periods;
 	}
 
-	private static List<Room> readRooms(String roomSection) {
-		List<Room> rooms = new ArrayList<>();
-
-		String[] lines = roomSection.split("\n");
-		for (String line : lines) {
-			line = line.replaceAll("\\s+","");
-			List<String> parts = Arrays.asList(line.split(","));
-			int capacity = Integer.parseInt(parts.get(0));
-			int penalty = Integer.parseInt(parts.get(1));
-			rooms.add(new Room(rooms.size(), capacity, penalty));
-		}
-
-		return rooms;
+	/**
+	 * Get a problem instance from a stream in the ITC2007 input format, e.g. a decompressing or in-memory stream. The
+	 * stream is read in a single pass and is not closed.
+	 *
+	 * @param in      - the stream describing the problem.
+	 * @param options - the options controlling how the problem is loaded.
+	 * @return an instance of the Problem class representing the problem described by the stream.
+	 * @throws IOException if the stream could not be read or is not in the expected format.
+	 */
+	public static ExamTimetablingProblem fromStream(InputStream in, LoadOptions options) throws IOException {
+		return new ProblemReader(in).read(options);
 	}
 
-	private static List<PeriodHardConstraint> readPeriodHardConstraints(String periodHardConstraintSection) {
-		List<PeriodHardConstraint> periodHardConstraints = new ArrayList<>();
-
-		String[] lines = periodHardConstraintSection.split("\n");
-		for (String line : lines) {
-			line = line.replaceAll("\\s+","");
-			List<String> parts = Arrays.asList(line.split(","));
-			int examOneNum = Integer.parseInt(parts.get(0));
-			String constraintType = parts.get(1);
-			int examTwoNum = Integer.parseInt(parts.get(2));
-			periodHardConstraints.add(new PeriodHardConstraint(examOneNum, constraintType, examTwoNum));
+	/**
+	 * Save this problem as a binary snapshot, which holds everything read from the input file along with the clash
+	 * graph, so that it can be loaded again without parsing or recomputing anything.
+	 *
+	 * @param path - the path of the snapshot file to write.
+	 * @throws IOException if the file could not be written.
+	 */
+	public void saveSnapshot(Path path) throws IOException {
+		try (OutputStream out = Files.newOutputStream(path)) {
+			ProblemSnapshot.write(this, out);
 		}
-
-		return periodHardConstraints;
 	}
 
-	private static List<RoomHardConstraint> readRoomHardConstraints(String roomHardConstraintSection) {
-		if (roomHardConstraintSection.isEmpty()) return new ArrayList<>();
-		List<RoomHardConstraint> roomHardConstraints = new ArrayList<>();
-
-		String[] lines = roomHardConstraintSection.split("\n");
-		for (String line : lines) {
-			line = line.replaceAll("\\s+","");
-			List<String> parts = Arrays.asList(line.split(","));
-			int examNum = Integer.parseInt(parts.get(0));
-			String constraintType = parts.get(1);
-			roomHardConstraints.add(new RoomHardConstraint(examNum, constraintType));
-		}
-
-		return roomHardConstraints;
+	/**
+	 * Get a problem instance from a snapshot written by saveSnapshot, read onto the heap with the sparse clash graph
+	 * only, so that no clash data is computed.
+	 *
+	 * @param path - the path of the snapshot file.
+	 * @return an instance of the Problem class representing the problem saved in the snapshot.
+	 * @throws IOException if the file could not be read, or is not a snapshot of a supported version.
+	 */
+	public static ExamTimetablingProblem fromSnapshot(Path path) throws IOException {
+		return fromSnapshot(path, LoadOptions.DEFAULT.withDenseClashMatrix(false));
 	}
 
-	private static List<InstitutionalWeighting> readInstitutionalWeightings(String institutionalWeightingsSection) {
-		List<InstitutionalWeighting> institutionalWeightings = new ArrayList<>();
-
-		String[] lines = institutionalWeightingsSection.split("\n");
-		for (String line : lines) {
-			line = line.replaceAll("\\s+","");
-			List<String> parts = Arrays.asList(line.split(","));
-			String type = parts.get(0);
-			int paramOne = Integer.parseInt(parts.get(1));
-			if (!type.equals("FRONTLOAD")) {
-				institutionalWeightings.add(new InstitutionalWeighting(type, paramOne));
-			} else {
-				int paramTwo = Integer.parseInt(parts.get(2));
-				int paramThree = Integer.parseInt(parts.get(3));
-				institutionalWeightings.add(new InstitutionalWeighting(type, paramOne, paramTwo, paramThree));
-			}
-		}
-
-		return institutionalWeightings;
+	/**
+	 * Get a problem instance from a snapshot written by saveSnapshot. The clash graph is taken from the snapshot, but
+	 * the problem is still decoded onto the heap, and its constraint index, domains and columns are derived again.
+	 *
+	 * @param path    - the path of the snapshot file.
+	 * @param options - the options controlling how the problem is loaded. The snapshot is memory-mapped if they ask
+	 *                for it, and the dense clash matrix is built if they ask for it, which takes time and memory
+	 *                quadratic in the number of exams.
+	 * @return an instance of the Problem class representing the problem saved in the snapshot.
+	 * @throws IOException if the file could not be read, or is not a snapshot of a supported version.
+	 */
+	public static ExamTimetablingProblem fromSnapshot(Path path, LoadOptions options) throws IOException {
+		return ProblemSnapshot.read(path, options);
 	}
 }
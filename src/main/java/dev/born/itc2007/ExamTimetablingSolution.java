@@ -1,11 +1,21 @@
 package dev.born.itc2007;
 
+import dev.born.itc2007.metrics.EvaluationEvent;
+import dev.born.itc2007.metrics.Metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Models a solution to a exam timetabling problem instance.
+ * <p>
+ * All penalties are computed together on first use, into an immutable EvaluationReport that is then remembered. The
+ * report is published through a volatile field, so a solution may be scored from several threads at once, at worst
+ * evaluating it more than once.
  */
 public class ExamTimetablingSolution {
 	/**
@@ -27,16 +37,62 @@ public class ExamTimetablingSolution {
 		this.bookings = bookings;
 	}
 
+	/**
+	 * Get a solution from a file in the format written by toString(): one "period,room" line per exam, in exam order.
+	 *
+	 * @param problem  - the problem that the solution solves.
+	 * @param filePath - the path of the file describing the solution.
+	 * @return the solution described in the file.
+	 * @throws IOException if the file could not be read, or does not describe a solution to the problem.
+	 */
+	public static ExamTimetablingSolution fromFile(ExamTimetablingProblem problem, String filePath) throws IOException {
+		return fromPath(problem, Path.of(filePath));
+	}
+
+	/**
+	 * Get a solution from a file in the format written by toString().
+	 *
+	 * @param problem - the problem that the solution solves.
+	 * @param path    - the path of the file describing the solution.
+	 * @return the solution described in the file.
+	 * @throws IOException if the file could not be read, or does not describe a solution to the problem.
+	 */
+	public static ExamTimetablingSolution fromPath(ExamTimetablingProblem problem, Path path) throws IOException {
+		try (InputStream in = Files.newInputStream(path)) {
+			return fromStream(problem, in);
+		}
+	}
+
+	/**
+	 * Get a solution from a stream in the format written by toString(). The stream is not closed.
+	 *
+	 * @param problem - the problem that the solution solves.
+	 * @param in      - the stream describing the solution.
+	 * @return the solution described by the stream.
+	 * @throws IOException if the stream could not be read, or does not describe a solution to the problem.
+	 */
+	public static ExamTimetablingSolution fromStream(ExamTimetablingProblem problem, InputStream in) throws IOException {
+		return new SolutionReader(in).read(problem);
+	}
+
+	/**
+	 * @return the problem that this solution solves.
+	 */
+	public ExamTimetablingProblem getProblem() {
+		return problem;
+	}
+
 	/**
 	 * @return a string representation of the bookings. One line should describe each exam.
 	 * The exams should be in sequential order as that given in the input file. The timeslot number, the room number.
 	 */
 	@Override
 	public String toString() {
+		Booking[] bookingByExam = bookingByExam();
 		StringBuilder builder = new StringBuilder();
 		for (int i = 0; i < bookings.size(); i++) {
-			final int examNum = i;
-			Booking booking = bookings.stream().filter(b -> b.exam.number == examNum).findFirst().orElseThrow(UnknownError::new);
+			Booking booking = i < bookingByExam.length ? bookingByExam[i] : null;
+			if (booking == null) throw new UnknownError();
 
 			builder.append(booking.period.number).append(",").append(booking.room.number).append("\n");
 		}
@@ -60,8 +116,7 @@ public class ExamTimetablingSolution {
 	 * See http://www.cs.qub.ac.uk/itc2007/examtrack/exam_track_index_files/examevaluation.htm for more details.
 	 */
 	public int distanceToFeasibility() {
-		return this.conflictingExams() + this.overbookedPeriods() + this.tooShortPeriods()
-				+ this.periodConstraintViolations() + this.roomConstraintViolations();
+		return evaluationReport().distanceToFeasibility();
 	}
 
 	/**
@@ -82,270 +137,242 @@ public class ExamTimetablingSolution {
 	 * See http://www.cs.qub.ac.uk/itc2007/examtrack/exam_track_index_files/examevaluation.htm for more details.
 	 */
 	public int softConstraintViolations() {
-		return this.twoInARowPenalty() + this.twoInADayPenalty() + this.frontloadPenalty() +
-				this.mixedDurationsPenalty() + this.periodSpreadPenalty() + this.roomPenalty() + this.periodPenalty();
+		return evaluationReport().softConstraintViolations();
 	}
 
-	private int conflictingExams = -1;
+	private volatile EvaluationReport evaluationReport;
 
 	/**
-	 * @return the number of exams that occur at the same time and share students.
+	 * @return every hard and soft constraint violation of this solution. The report is computed on first use, in a
+	 * single pass over the bookings, and then shared by every caller.
 	 */
-	public int conflictingExams() {
-		if (conflictingExams != -1) return conflictingExams;
-
-		conflictingExams = 0;
-		for (Booking bookingA : bookings) {
-			for (Booking bookingB : bookings) {
-				if (bookingA.equals(bookingB)) continue;
-				boolean doClash = bookingA.period.number == bookingB.period.number;
-				boolean doShareStudents = problem.clashMatrix[bookingA.exam.number][bookingB.exam.number] > 0;
-				if (doClash && doShareStudents) conflictingExams++;
-			}
+	public EvaluationReport evaluationReport() {
+		EvaluationReport report = evaluationReport;
+		if (report == null) evaluationReport = report = evaluate();
+		return report;
+	}
+
+	private volatile Booking[] bookingByExam;
+
+	/**
+	 * @return the booking of each exam indexed by exam number, or null for exams that have not been booked.
+	 */
+	private Booking[] bookingByExam() {
+		Booking[] byExam = bookingByExam;
+		if (byExam != null) return byExam;
+
+		byExam = new Booking[problem.exams.size()];
+		for (Booking booking : bookings) {
+			if (byExam[booking.exam.number] == null) byExam[booking.exam.number] = booking;
 		}
-		return conflictingExams;
+		bookingByExam = byExam;
+		return byExam;
 	}
 
-	private int overbookedPeriods = -1;
+	private InstitutionalWeighting weighting(String weightingType) {
+		return problem.institutionalWeightings.stream().filter(w -> w.weightingType.equals(weightingType)).findFirst().orElse(null);
+	}
 
 	/**
-	 * @return the number of periods where the required capacity exceeds the capacity of the room.
+	 * Computes every constraint violation. Everything that depends on the bookings is counted in one pass over them:
+	 * conflicts and proximity penalties over the clash neighbours of each booked exam, period and room penalties,
+	 * too short periods and frontloading from the booking itself, and capacity and mixed durations through the
+	 * occupancy index that the problem keeps for each thread, so that no index of every period and room is allocated
+	 * per evaluation. Only the hard constraints are then visited separately, through the constraint index of the
+	 * problem.
 	 */
-	public int overbookedPeriods() {
-		if (overbookedPeriods != -1) return overbookedPeriods;
-
-		overbookedPeriods = 0;
-		for (Period period : problem.periods) {
-			for (Room room : problem.rooms) {
-				List<Booking> periodRoomBookings = bookings.stream().filter(b -> b.period.number == period.number && b.room.number == room.number).collect(Collectors.toList());
-				int numSeatsNeeded = periodRoomBookings.stream().mapToInt(b -> b.exam.students.size()).sum();
-				if (numSeatsNeeded > room.capacity) overbookedPeriods++;
+	private EvaluationReport evaluate() {
+		boolean timed = Metrics.isEnabled();
+		long start = timed ? System.nanoTime() : 0;
+		EvaluationEvent event = new EvaluationEvent();
+		event.begin();
+
+		InstitutionalWeighting twoInARow = weighting("TWOINAROW");
+		InstitutionalWeighting twoInADay = weighting("TWOINADAY");
+		InstitutionalWeighting periodSpread = weighting("PERIOD_SPREAD");
+		InstitutionalWeighting mixedDurations = weighting("NONMIXEDDURATIONS");
+		InstitutionalWeighting frontload = weighting("FRONTLOAD");
+		int spread = periodSpread == null ? 0 : periodSpread.paramOne;
+
+		ProblemColumns columns = problem.columns;
+		int[] periodDay = columns.periodDay;
+		ClashGraph clashGraph = problem.clashGraph;
+		Booking[] bookingByExam = bookingByExam();
+		OccupancyIndex occupancy = problem.scratchOccupancy.get();
+		HashSet<Booking> tooShortBookings = new HashSet<>();
+		int conflicts = 0;
+		int inARowClashes = 0;
+		int inADayClashes = 0;
+		int withinSpreadClashes = 0;
+		int frontloaded = 0;
+		int roomPenalty = 0;
+		int periodPenalty = 0;
+		long bookingsEnd;
+		int periodConstraintViolations;
+		long periodConstraintsEnd;
+		int roomConstraintViolations = 0;
+		int overbookedPeriods;
+		int mixedDurationCount;
+		int numAdded = 0;
+		try {
+			for (Booking bookingA : bookings) {
+				int examA = bookingA.exam.number;
+				int periodA = bookingA.period.number;
+				int roomA = bookingA.room.number;
+				int dayA = periodDay[periodA];
+				for (int k = clashGraph.offsets[examA]; k < clashGraph.offsets[examA + 1]; k++) {
+					Booking bookingB = bookingByExam[clashGraph.neighbours[k]];
+					if (bookingB == null) continue;
+					int distance = bookingB.period.number - periodA;
+					if (distance == 0) conflicts++;
+					if (periodDay[bookingB.period.number] == dayA) {
+						if (distance == 1 || distance == -1) inARowClashes += clashGraph.weights[k];
+						else inADayClashes += clashGraph.weights[k];
+					}
+					if (distance > 0 && distance <= spread) withinSpreadClashes += clashGraph.weights[k];
+				}
+
+				occupancy.add(examA, periodA, roomA);
+				numAdded++;
+				if (columns.examDuration[examA] > columns.periodDuration[periodA]) tooShortBookings.add(bookingA);
+				if (columns.examFrontload[examA] && columns.periodFrontload[periodA] && bookingByExam[examA] == bookingA) frontloaded++;
+				roomPenalty += columns.roomPenalty[roomA];
+				periodPenalty += columns.periodPenalty[periodA];
+			}
+			bookingsEnd = timed ? System.nanoTime() : 0;
+			if (timed) Metrics.EVALUATION_BOOKINGS.record(bookingsEnd - start);
+
+			ConstraintIndex constraintIndex = problem.constraintIndex;
+			int[] periodOf = new int[bookingByExam.length];
+			for (int exam = 0; exam < periodOf.length; exam++)
+				periodOf[exam] = bookingByExam[exam] == null ? -1 : bookingByExam[exam].period.number;
+			periodConstraintViolations = constraintIndex.periodConstraintViolations(periodOf);
+			periodConstraintsEnd = timed ? System.nanoTime() : 0;
+			if (timed) Metrics.EVALUATION_PERIOD_CONSTRAINTS.record(periodConstraintsEnd - bookingsEnd);
+
+			// An exclusive exam is never alone by this count, since its own booking shares its room and period.
+			for (int exam = 0; exam < bookingByExam.length; exam++) {
+				Booking booking = bookingByExam[exam];
+				if (booking == null || constraintIndex.roomExclusive[exam] == 0) continue;
+				boolean isNotBookedAlone = occupancy.exams(booking.period.number, booking.room.number) > 0;
+				if (isNotBookedAlone) roomConstraintViolations += constraintIndex.roomExclusive[exam];
+			}
+			overbookedPeriods = occupancy.overbookedPeriods();
+			mixedDurationCount = occupancy.mixedDurations();
+		} finally {
+			// Leave the index empty for the next evaluation on this thread, resetting only the slots booked here.
+			for (Booking booking : bookings) {
+				if (numAdded-- == 0) break;
+				occupancy.remove(booking.exam.number, booking.period.number, booking.room.number);
 			}
 		}
-		return overbookedPeriods;
+
+		if (timed) {
+			long end = System.nanoTime();
+			Metrics.EVALUATION_ROOM_CONSTRAINTS.record(end - periodConstraintsEnd);
+			Metrics.EVALUATION.record(end - start);
+		}
+
+		EvaluationReport report = new EvaluationReport(conflicts, overbookedPeriods, tooShortBookings.size(),
+				periodConstraintViolations, roomConstraintViolations,
+				twoInARow == null ? 0 : twoInARow.paramOne * inARowClashes,
+				twoInADay == null ? 0 : twoInADay.paramOne * inADayClashes,
+				periodSpread == null ? 0 : withinSpreadClashes,
+				mixedDurations == null ? 0 : mixedDurations.paramOne * mixedDurationCount,
+				frontload == null ? 0 : frontload.paramThree * frontloaded,
+				roomPenalty, periodPenalty);
+		if (event.shouldCommit()) {
+			event.bookings = bookings.size();
+			event.hard = report.distanceToFeasibility();
+			event.soft = report.softConstraintViolations();
+			event.commit();
+		}
+		return report;
+	}
+
+	/**
+	 * @return the number of exams that occur at the same time and share students.
+	 */
+	public int conflictingExams() {
+		return evaluationReport().conflictingExams;
 	}
 
-	private int tooShortPeriods = -1;
+	/**
+	 * @return the number of periods where the required capacity exceeds the capacity of the room.
+	 */
+	public int overbookedPeriods() {
+		return evaluationReport().overbookedPeriods;
+	}
 
 	/**
 	 * @return the number of periods that are too short for the exams that have been booked in those periods.
 	 */
 	public int tooShortPeriods() {
-		if (tooShortPeriods != -1) return tooShortPeriods;
-
-		tooShortPeriods = 0;
-		HashSet<Booking> seen = new HashSet<>();
-		for (Booking booking : bookings) {
-			if (booking.exam.duration > booking.period.duration && seen.add(booking)) tooShortPeriods++;
-		}
-		return tooShortPeriods;
+		return evaluationReport().tooShortPeriods;
 	}
 
-	private int periodConstraintViolations = -1;
-
 	/**
 	 * @return the number of period constraint violations - See 'PeriodRelated' http://www.cs.qub.ac.uk/itc2007/examtrack/exam_track_index_files/examevaluation.htm.
 	 */
 	public int periodConstraintViolations() {
-		if (periodConstraintViolations != -1) return periodConstraintViolations;
-
-		periodConstraintViolations = 0;
-		for (PeriodHardConstraint constraint : problem.periodHardConstraints) {
-			Booking bookingOne = bookings.stream().filter(b -> b.exam.number == constraint.examOneNum).findFirst().orElse(null);
-			Booking bookingTwo = bookings.stream().filter(b -> b.exam.number == constraint.examTwoNum).findFirst().orElse(null);
-			if (bookingOne == null || bookingTwo == null) continue;
-
-			if (constraint.constraintType.equals("EXAM_COINCIDENCE")) {
-				if (problem.clashMatrix[constraint.examOneNum][constraint.examTwoNum] > 0) continue;
-				if (bookingOne.period.number != bookingTwo.period.number) periodConstraintViolations++;
-			}
-
-			if (constraint.constraintType.equals("EXCLUSION")) {
-				if (bookingOne.period.number == bookingTwo.period.number) periodConstraintViolations++;
-			}
-
-			if (constraint.constraintType.equals("AFTER")) {
-				if (bookingOne.period.getDateTime().isAfter(bookingTwo.period.getDateTime()))
-					periodConstraintViolations++;
-			}
-		}
-		return periodConstraintViolations;
+		return evaluationReport().periodConstraintViolations;
 	}
 
-	private int roomConstraintViolations = -1;
-
 	/**
 	 * @return The number of room hard constraint violations in this solution. See 'RoomRelated' at http://www.cs.qub.ac.uk/itc2007/examtrack/exam_track_index_files/examevaluation.htm.
 	 */
 	public int roomConstraintViolations() {
-		if (roomConstraintViolations != -1) return roomConstraintViolations;
-
-		roomConstraintViolations = 0;
-		for (RoomHardConstraint constraint : problem.roomHardConstraints) {
-			if (constraint.constraintType.equals("ROOM_EXCLUSIVE")) {
-				Booking booking = bookings.stream().filter(b -> b.exam.number == constraint.examNum).findFirst().orElse(null);
-				if (booking == null) continue;
-				boolean isNotBookedAlone = bookings.stream().anyMatch(b -> b.room.number == booking.room.number && b.period.number == booking.period.number);
-				if (isNotBookedAlone) roomConstraintViolations++;
-			}
-		}
-		return roomConstraintViolations;
+		return evaluationReport().roomConstraintViolations;
 	}
 
-	private int twoInARowPenalty = -1;
-
 	/**
 	 * @return The number of occurrences where two examinations are taken by students straight after one another. See 'Two Exams in a Row' at http://www.cs.qub.ac.uk/itc2007/examtrack/exam_track_index_files/examevaluation.htm.
 	 */
 	public int twoInARowPenalty() {
-		if (twoInARowPenalty != -1) return twoInARowPenalty;
-
-		InstitutionalWeighting weighting = problem.institutionalWeightings.stream().filter(w -> w.weightingType.equals("TWOINAROW")).findFirst().orElse(null);
-		if (weighting == null) return 0;
-
-		twoInARowPenalty = 0;
-		for (Booking bookingA : bookings) {
-			for (Booking bookingB : bookings) {
-				boolean areInARow = Math.abs(bookingA.period.number - bookingB.period.number) == 1;
-				boolean areOnSameDay = bookingA.period.date.isEqual(bookingB.period.date);
-				if (areInARow && areOnSameDay)
-					twoInARowPenalty += weighting.paramOne * problem.clashMatrix[bookingA.exam.number][bookingB.exam.number];
-			}
-		}
-		return twoInARowPenalty;
+		return evaluationReport().twoInARowPenalty;
 	}
 
-	private int twoInADayPenalty = -1;
-
 	/**
 	 * @return The number of occurrences of students having two exams in a day which are not directly adjacent. See 'Two Exams in a Day' at http://www.cs.qub.ac.uk/itc2007/examtrack/exam_track_index_files/examevaluation.htm.
 	 */
 	public int twoInADayPenalty() {
-		if (twoInADayPenalty != -1) return twoInADayPenalty;
-
-		InstitutionalWeighting weighting = problem.institutionalWeightings.stream().filter(w -> w.weightingType.equals("TWOINADAY")).findFirst().orElse(null);
-		if (weighting == null) return 0;
-
-		twoInADayPenalty = 0;
-		for (Booking bookingA : bookings) {
-			for (Booking bookingB : bookings) {
-				if (bookingA.equals(bookingB)) continue;
-				boolean areNotAdjacent = Math.abs(bookingA.period.number - bookingB.period.number) != 1;
-				boolean areOnSameDay = bookingA.period.date.isEqual(bookingB.period.date);
-				if (areNotAdjacent && areOnSameDay)
-					twoInADayPenalty += weighting.paramOne * problem.clashMatrix[bookingA.exam.number][bookingB.exam.number];
-			}
-		}
-		return twoInADayPenalty;
+		return evaluationReport().twoInADayPenalty;
 	}
 
-	private int periodSpreadPenalty = -1;
-
 	/**
 	 * @return Occurrences of enrolled students who have to sit other exams within the desired period spread. See 'Period Spread' at http://www.cs.qub.ac.uk/itc2007/examtrack/exam_track_index_files/examevaluation.htm.
 	 */
 	public int periodSpreadPenalty() {
-		if (periodSpreadPenalty != -1) return periodSpreadPenalty;
-
-		InstitutionalWeighting weighting = problem.institutionalWeightings.stream().filter(w -> w.weightingType.equals("PERIOD_SPREAD")).findFirst().orElse(null);
-		if (weighting == null) return 0;
-
-		periodSpreadPenalty = 0;
-		for (Booking bookingA : bookings) {
-			for (Booking bookingB : bookings) {
-				int spread = bookingB.period.number - bookingA.period.number;
-				if (spread <= 0) continue;
-				boolean areWithinSpread = spread <= weighting.paramOne;
-				if (areWithinSpread)
-					periodSpreadPenalty += problem.clashMatrix[bookingA.exam.number][bookingB.exam.number];
-			}
-		}
-		return periodSpreadPenalty;
+		return evaluationReport().periodSpreadPenalty;
 	}
 
-	private int mixedDurationsPenalty = -1;
-
 	/**
 	 * @return This applies a penalty to a ROOM and PERIOD (not Exam) where there are mixed durations. See 'Mixed Durations' at http://www.cs.qub.ac.uk/itc2007/examtrack/exam_track_index_files/examevaluation.htm.
 	 */
 	public int mixedDurationsPenalty() {
-		if (mixedDurationsPenalty != -1) return mixedDurationsPenalty;
-
-		InstitutionalWeighting weighting = problem.institutionalWeightings.stream().filter(w -> w.weightingType.equals("NONMIXEDDURATIONS")).findFirst().orElse(null);
-		if (weighting == null) return 0;
-
-		mixedDurationsPenalty = 0;
-		for (Period period : problem.periods) {
-			for (Room room : problem.rooms) {
-				List<Booking> myBookings = bookings.stream().filter(b -> b.period.number == period.number && b.room.number == room.number).collect(Collectors.toList());
-				if (myBookings.isEmpty()) continue;
-				HashSet<Object> seen = new HashSet<>();
-				myBookings.removeIf(b -> !seen.add(b.exam.duration));
-				int numDifferentDurations = myBookings.size();
-				mixedDurationsPenalty += (numDifferentDurations - 1) * weighting.paramOne;
-			}
-		}
-		return mixedDurationsPenalty;
+		return evaluationReport().mixedDurationsPenalty;
 	}
 
-	private int frontloadPenalty = -1;
-
 	/**
 	 * @return This applies a penalty for largest numbers of students are timetabled at the beginning of the examination session. See 'Larger Exams Constraints' at http://www.cs.qub.ac.uk/itc2007/examtrack/exam_track_index_files/examevaluation.htm.
 	 */
 	public int frontloadPenalty() {
-		if (frontloadPenalty != -1) return frontloadPenalty;
-
-		InstitutionalWeighting weighting = problem.institutionalWeightings.stream().filter(w -> w.weightingType.equals("FRONTLOAD")).findFirst().orElse(null);
-		if (weighting == null) return 0;
-
-		List<Exam> largestExams = problem.exams.stream()
-				.sorted((e1, e2) -> e2.students.size() - e1.students.size())
-				.collect(Collectors.toList()).subList(0, weighting.paramOne);
-		int lastPeriodIndex = problem.periods.size() - weighting.paramTwo;
-		if (lastPeriodIndex < 0) lastPeriodIndex = 0;
-		List<Period> lastPeriods = problem.periods.subList(lastPeriodIndex, problem.periods.size());
-
-		frontloadPenalty = 0;
-		for (Exam exam : largestExams) {
-			Booking examBooking = bookings.stream().filter(b -> b.exam.number == exam.number).findFirst().orElse(null);
-			if (examBooking == null) continue;
-			boolean isInLastPeriods = lastPeriods.stream().anyMatch(p -> p.number == examBooking.period.number);
-			if (isInLastPeriods) frontloadPenalty += weighting.paramThree;
-		}
-
-		return frontloadPenalty;
+		return evaluationReport().frontloadPenalty;
 	}
 
-	private int roomPenalty = -1;
-
 	/**
 	 * @return For each period, if a room used within the solution has an associated penalty, the penalty for that room for that
 	 * period is calculated by multiplying the associated penalty by the number of times the room is used. See 'Room Penalty' at http://www.cs.qub.ac.uk/itc2007/examtrack/exam_track_index_files/examevaluation.htm.
 	 */
 	public int roomPenalty() {
-		if (roomPenalty != -1) return roomPenalty;
-
-		roomPenalty = 0;
-		for (Booking booking : bookings) {
-			roomPenalty += booking.room.penalty;
-		}
-		return roomPenalty;
+		return evaluationReport().roomPenalty;
 	}
 
-	private int periodPenalty = -1;
-
 	/**
 	 * @return For each period the penalty is calculated by multiplying the associated penalty by the number of times the exams
 	 * timetabled within that period. See 'Period Penalty' at http://www.cs.qub.ac.uk/itc2007/examtrack/exam_track_index_files/examevaluation.htm.
 	 */
 	public int periodPenalty() {
-		if (periodPenalty != -1) return periodPenalty;
-
-		periodPenalty = 0;
-		for (Booking booking : bookings) {
-			periodPenalty += booking.period.penalty;
-		}
-		return periodPenalty;
+		return evaluationReport().periodPenalty;
 	}
 }
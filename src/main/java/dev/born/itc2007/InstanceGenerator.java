@@ -0,0 +1,325 @@
+package dev.born.itc2007;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates synthetic problem instances in the ITC2007 input format, for testing at sizes well beyond the published
+ * instances. The same settings and seed always produce the same file.
+ * <p>
+ * Students are split into faculties, and each exam draws most of its students from its own faculty, so the clash graph
+ * has the clustered structure of real institutions. Exam sizes follow a skewed distribution whose total matches the
+ * requested number of enrolments. The instance is written exam by exam, so only per-exam sizes are held in memory.
+ * <p>
+ * Each setting is checked when it is set, and an IllegalArgumentException is thrown for settings that cannot describe
+ * an instance, such as a problem without exams, periods or rooms.
+ */
+public class InstanceGenerator {
+	private final long seed;
+
+	private int numExams = 1000;
+	private int numStudents = 5000;
+	private long numEnrolments = 25000;
+	private int numFaculties = 1;
+	private double crossFacultyRate = 0.1;
+	private int[] durations = {60, 90, 120, 180};
+
+	private int numPeriods = 30;
+	private int periodsPerDay = 3;
+	private int periodDuration = 180;
+	private int maxPeriodPenalty = 0;
+	private LocalDate startDate = LocalDate.of(2005, 4, 15);
+
+	private int numRooms = 10;
+	private int minRoomCapacity = 50;
+	private int maxRoomCapacity = 300;
+	private int maxRoomPenalty = 0;
+
+	private int numCoincidenceConstraints = 0;
+	private int numExclusionConstraints = 0;
+	private int numAfterConstraints = 0;
+	private int numRoomExclusiveConstraints = 0;
+
+	private int twoInARow = 7;
+	private int twoInADay = 5;
+	private int periodSpread = 5;
+	private int nonMixedDurations = 10;
+	private int frontloadExams = 100;
+	private int frontloadPeriods = 5;
+	private int frontloadPenalty = 5;
+
+	/**
+	 * @param seed - the seed from which the instance is generated.
+	 */
+	public InstanceGenerator(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * @param numExams      - the number of exams.
+	 * @param numStudents   - the number of distinct students.
+	 * @param numEnrolments - the total number of exam enrolments, which sets the enrolment density.
+	 * @return this generator.
+	 */
+	public InstanceGenerator exams(int numExams, int numStudents, long numEnrolments) {
+		requireAtLeast("number of exams", numExams, 1);
+		requireAtLeast("number of students", numStudents, 1);
+		if (numEnrolments < 0) throw new IllegalArgumentException("The number of enrolments must be at least 0 but was " + numEnrolments + ".");
+		this.numExams = numExams;
+		this.numStudents = numStudents;
+		this.numEnrolments = numEnrolments;
+		return this;
+	}
+
+	/**
+	 * @param numFaculties     - the number of groups that students and exams are split into.
+	 * @param crossFacultyRate - the fraction of enrolments drawn from any faculty rather than the exam's own faculty.
+	 * @return this generator.
+	 */
+	public InstanceGenerator faculties(int numFaculties, double crossFacultyRate) {
+		requireAtLeast("number of faculties", numFaculties, 1);
+		if (!(crossFacultyRate >= 0 && crossFacultyRate <= 1))
+			throw new IllegalArgumentException("The cross faculty rate must be between 0 and 1 but was " + crossFacultyRate + ".");
+		this.numFaculties = numFaculties;
+		this.crossFacultyRate = crossFacultyRate;
+		return this;
+	}
+
+	/**
+	 * @param durations - the exam durations to choose from, in minutes.
+	 * @return this generator.
+	 */
+	public InstanceGenerator durations(int... durations) {
+		if (durations.length == 0) throw new IllegalArgumentException("At least one duration is required.");
+		for (int duration : durations) requireAtLeast("duration", duration, 1);
+		this.durations = durations.clone();
+		return this;
+	}
+
+	/**
+	 * @param numPeriods       - the number of periods.
+	 * @param periodsPerDay    - the number of periods on each day.
+	 * @param periodDuration   - the duration of every period, in minutes.
+	 * @param maxPeriodPenalty - the largest penalty given to a period. Penalties are drawn uniformly up to it.
+	 * @return this generator.
+	 */
+	public InstanceGenerator periods(int numPeriods, int periodsPerDay, int periodDuration, int maxPeriodPenalty) {
+		requireAtLeast("number of periods", numPeriods, 1);
+		requireAtLeast("number of periods per day", periodsPerDay, 1);
+		requireAtLeast("period duration", periodDuration, 1);
+		requirePenalty("period", maxPeriodPenalty);
+		this.numPeriods = numPeriods;
+		this.periodsPerDay = periodsPerDay;
+		this.periodDuration = periodDuration;
+		this.maxPeriodPenalty = maxPeriodPenalty;
+		return this;
+	}
+
+	/**
+	 * @param startDate - the date of the first period.
+	 * @return this generator.
+	 */
+	public InstanceGenerator startDate(LocalDate startDate) {
+		this.startDate = Objects.requireNonNull(startDate, "startDate");
+		return this;
+	}
+
+	/**
+	 * @param numRooms        - the number of rooms.
+	 * @param minRoomCapacity - the smallest room capacity.
+	 * @param maxRoomCapacity - the largest room capacity.
+	 * @param maxRoomPenalty  - the largest penalty given to a room. Penalties are drawn uniformly up to it.
+	 * @return this generator.
+	 */
+	public InstanceGenerator rooms(int numRooms, int minRoomCapacity, int maxRoomCapacity, int maxRoomPenalty) {
+		requireAtLeast("number of rooms", numRooms, 1);
+		requireAtLeast("smallest room capacity", minRoomCapacity, 1);
+		requireAtLeast("largest room capacity", maxRoomCapacity, minRoomCapacity);
+		if (maxRoomCapacity == Integer.MAX_VALUE) throw new IllegalArgumentException("The largest room capacity must be less than " + Integer.MAX_VALUE + ".");
+		requirePenalty("room", maxRoomPenalty);
+		this.numRooms = numRooms;
+		this.minRoomCapacity = minRoomCapacity;
+		this.maxRoomCapacity = maxRoomCapacity;
+		this.maxRoomPenalty = maxRoomPenalty;
+		return this;
+	}
+
+	/**
+	 * @param numCoincidence   - the number of EXAM_COINCIDENCE period hard constraints.
+	 * @param numExclusion     - the number of EXCLUSION period hard constraints.
+	 * @param numAfter         - the number of AFTER period hard constraints.
+	 * @param numRoomExclusive - the number of ROOM_EXCLUSIVE room hard constraints.
+	 * @return this generator.
+	 */
+	public InstanceGenerator constraints(int numCoincidence, int numExclusion, int numAfter, int numRoomExclusive) {
+		requireAtLeast("number of EXAM_COINCIDENCE constraints", numCoincidence, 0);
+		requireAtLeast("number of EXCLUSION constraints", numExclusion, 0);
+		requireAtLeast("number of AFTER constraints", numAfter, 0);
+		requireAtLeast("number of ROOM_EXCLUSIVE constraints", numRoomExclusive, 0);
+		if ((long) numCoincidence + numExclusion + numAfter > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("There can be at most " + Integer.MAX_VALUE + " period hard constraints.");
+		this.numCoincidenceConstraints = numCoincidence;
+		this.numExclusionConstraints = numExclusion;
+		this.numAfterConstraints = numAfter;
+		this.numRoomExclusiveConstraints = numRoomExclusive;
+		return this;
+	}
+
+	/**
+	 * @param twoInARow         - the TWOINAROW weighting.
+	 * @param twoInADay         - the TWOINADAY weighting.
+	 * @param periodSpread      - the PERIOD_SPREAD weighting.
+	 * @param nonMixedDurations - the NONMIXEDDURATIONS weighting.
+	 * @param frontloadExams    - the number of largest exams of the FRONTLOAD weighting.
+	 * @param frontloadPeriods  - the number of last periods of the FRONTLOAD weighting.
+	 * @param frontloadPenalty  - the penalty of the FRONTLOAD weighting.
+	 * @return this generator.
+	 */
+	public InstanceGenerator weightings(int twoInARow, int twoInADay, int periodSpread, int nonMixedDurations, int frontloadExams, int frontloadPeriods, int frontloadPenalty) {
+		requireAtLeast("TWOINAROW weighting", twoInARow, 0);
+		requireAtLeast("TWOINADAY weighting", twoInADay, 0);
+		requireAtLeast("PERIOD_SPREAD weighting", periodSpread, 0);
+		requireAtLeast("NONMIXEDDURATIONS weighting", nonMixedDurations, 0);
+		requireAtLeast("number of FRONTLOAD exams", frontloadExams, 0);
+		requireAtLeast("number of FRONTLOAD periods", frontloadPeriods, 0);
+		requireAtLeast("FRONTLOAD penalty", frontloadPenalty, 0);
+		this.twoInARow = twoInARow;
+		this.twoInADay = twoInADay;
+		this.periodSpread = periodSpread;
+		this.nonMixedDurations = nonMixedDurations;
+		this.frontloadExams = frontloadExams;
+		this.frontloadPeriods = frontloadPeriods;
+		this.frontloadPenalty = frontloadPenalty;
+		return this;
+	}
+
+	private static void requireAtLeast(String setting, int value, int min) {
+		if (value < min) throw new IllegalArgumentException("The " + setting + " must be at least " + min + " but was " + value + ".");
+	}
+
+	/**
+	 * Penalties are drawn with Random.nextInt(maxPenalty + 1), which must not overflow.
+	 */
+	private static void requirePenalty(String setting, int maxPenalty) {
+		if (maxPenalty < 0 || maxPenalty == Integer.MAX_VALUE)
+			throw new IllegalArgumentException("The largest " + setting + " penalty must be between 0 and " + (Integer.MAX_VALUE - 1) + " but was " + maxPenalty + ".");
+	}
+
+	/**
+	 * @param path - the path of the file to write the instance to.
+	 * @throws IOException if the file could not be written.
+	 */
+	public void write(Path path) throws IOException {
+		try (OutputStream out = Files.newOutputStream(path)) {
+			write(out);
+		}
+	}
+
+	/**
+	 * @param out - the stream to write the instance to. The stream is flushed but not closed.
+	 * @throws IOException if the stream could not be written.
+	 */
+	public void write(OutputStream out) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII), 1 << 16);
+		Random random = new Random(seed);
+		writeExams(writer, random);
+		writePeriods(writer, random);
+		writeRooms(writer, random);
+		writeConstraints(writer, random);
+		writeWeightings(writer);
+		writer.flush();
+	}
+
+	private void writeExams(Writer writer, Random random) throws IOException {
+		// Pareto distributed sizes give a few very large exams and many small ones.
+		double[] shares = new double[numExams];
+		double totalShare = 0;
+		for (int e = 0; e < numExams; e++) {
+			shares[e] = 1 / Math.pow(1 - random.nextDouble(), 1 / 1.5);
+			totalShare += shares[e];
+		}
+
+		int studentsPerFaculty = Math.max(1, numStudents / numFaculties);
+		Set<Integer> examStudents = new HashSet<>();
+		writer.write("[Exams:" + numExams + "]\n");
+		for (int e = 0; e < numExams; e++) {
+			int faculty = e % numFaculties;
+			int firstStudent = faculty * studentsPerFaculty;
+			int facultySize = faculty == numFaculties - 1 ? numStudents - firstStudent : studentsPerFaculty;
+			int size = (int) Math.min(Math.round(numEnrolments * shares[e] / totalShare), numStudents);
+
+			examStudents.clear();
+			writer.write(Integer.toString(durations[random.nextInt(durations.length)]));
+			while (examStudents.size() < size) {
+				boolean isCrossFaculty = random.nextDouble() < crossFacultyRate || facultySize <= examStudents.size();
+				int student = isCrossFaculty ? random.nextInt(numStudents) : firstStudent + random.nextInt(facultySize);
+				if (!examStudents.add(student)) continue;
+				writer.write(", ");
+				writer.write(Integer.toString(student));
+			}
+			writer.write('\n');
+		}
+	}
+
+	private void writePeriods(Writer writer, Random random) throws IOException {
+		int minutesBetweenPeriods = Math.max(periodDuration, 60);
+		writer.write("[Periods:" + numPeriods + "]\n");
+		for (int p = 0; p < numPeriods; p++) {
+			LocalDate date = startDate.plusDays(p / periodsPerDay);
+			LocalTime time = LocalTime.of(9, 0).plusMinutes((long) (p % periodsPerDay) * minutesBetweenPeriods);
+			writer.write(String.format(Locale.ROOT, "%02d:%02d:%04d, %02d:%02d:%02d, %d, %d\n", date.getDayOfMonth(), date.getMonthValue(), date.getYear(),
+					time.getHour(), time.getMinute(), time.getSecond(), periodDuration, random.nextInt(maxPeriodPenalty + 1)));
+		}
+	}
+
+	private void writeRooms(Writer writer, Random random) throws IOException {
+		writer.write("[Rooms:" + numRooms + "]\n");
+		for (int r = 0; r < numRooms; r++) {
+			int capacity = minRoomCapacity + random.nextInt(maxRoomCapacity - minRoomCapacity + 1);
+			writer.write(capacity + ", " + random.nextInt(maxRoomPenalty + 1) + "\n");
+		}
+	}
+
+	private void writeConstraints(Writer writer, Random random) throws IOException {
+		writer.write("[PeriodHardConstraints]\n");
+		String[] types = new String[numCoincidenceConstraints + numExclusionConstraints + numAfterConstraints];
+		Arrays.fill(types, 0, numCoincidenceConstraints, "EXAM_COINCIDENCE");
+		Arrays.fill(types, numCoincidenceConstraints, numCoincidenceConstraints + numExclusionConstraints, "EXCLUSION");
+		Arrays.fill(types, numCoincidenceConstraints + numExclusionConstraints, types.length, "AFTER");
+		for (String type : types) {
+			if (numExams < 2) break;
+			int examOne = random.nextInt(numExams);
+			int examTwo = random.nextInt(numExams - 1);
+			if (examTwo >= examOne) examTwo++;
+			writer.write(examOne + ", " + type + ", " + examTwo + "\n");
+		}
+
+		writer.write("[RoomHardConstraints]\n");
+		for (int c = 0; c < numRoomExclusiveConstraints && numExams > 0; c++) {
+			writer.write(random.nextInt(numExams) + ", ROOM_EXCLUSIVE\n");
+		}
+	}
+
+	private void writeWeightings(Writer writer) throws IOException {
+		writer.write("[InstitutionalWeightings]\n");
+		writer.write("TWOINAROW, " + twoInARow + "\n");
+		writer.write("TWOINADAY, " + twoInADay + "\n");
+		writer.write("PERIOD_SPREAD, " + periodSpread + "\n");
+		writer.write("NONMIXEDDURATIONS, " + nonMixedDurations + "\n");
+		writer.write("FRONTLOAD, " + Math.min(frontloadExams, numExams) + ", " + frontloadPeriods + ", " + frontloadPenalty + "\n");
+	}
+}
@@ -0,0 +1,60 @@
+package dev.born.itc2007;
+
+/**
+ * Models the options used when loading a problem instance.
+ */
+public class LoadOptions {
+	/**
+	 * The options used when none are specified: everything is computed on the calling thread, the dense clash
+	 * matrix is built and snapshots are read onto the heap.
+	 */
+	public static final LoadOptions DEFAULT = new LoadOptions(false, true, false);
+
+	/**
+	 * Whether derived data such as the clash matrix should be computed in parallel across all available cores.
+	 */
+	public final boolean parallel;
+
+	/**
+	 * Whether the dense clashMatrix should be built next to the sparse clashGraph. Large instances should disable it,
+	 * since its size grows with the square of the number of exams.
+	 */
+	public final boolean denseClashMatrix;
+
+	/**
+	 * Whether snapshot files should be memory-mapped rather than read onto the heap. Mapping only saves copying the
+	 * file into a heap buffer, and lets processes share one page-cached copy of it; the problem decoded from it is held
+	 * on the heap either way.
+	 */
+	public final boolean memoryMapped;
+
+	private LoadOptions(boolean parallel, boolean denseClashMatrix, boolean memoryMapped) {
+		this.parallel = parallel;
+		this.denseClashMatrix = denseClashMatrix;
+		this.memoryMapped = memoryMapped;
+	}
+
+	/**
+	 * @param parallel - whether derived data should be computed in parallel.
+	 * @return a copy of these options with the given parallel setting.
+	 */
+	public LoadOptions withParallel(boolean parallel) {
+		return new LoadOptions(parallel, denseClashMatrix, memoryMapped);
+	}
+
+	/**
+	 * @param denseClashMatrix - whether the dense clash matrix should be built.
+	 * @return a copy of these options with the given dense clash matrix setting.
+	 */
+	public LoadOptions withDenseClashMatrix(boolean denseClashMatrix) {
+		return new LoadOptions(parallel, denseClashMatrix, memoryMapped);
+	}
+
+	/**
+	 * @param memoryMapped - whether snapshot files should be memory-mapped.
+	 * @return a copy of these options with the given memory-mapped setting.
+	 */
+	public LoadOptions withMemoryMapped(boolean memoryMapped) {
+		return new LoadOptions(parallel, denseClashMatrix, memoryMapped);
+	}
+}
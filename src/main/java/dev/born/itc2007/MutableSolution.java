@@ -0,0 +1,231 @@
+package dev.born.itc2007;
+
+import java.util.Arrays;
+
+/**
+ * Models a solution that is changed in place, for search loops that would otherwise build a new solution for every
+ * move. Each change updates the cost incrementally through a DeltaEvaluator and is recorded in an undo journal, so
+ * that any sequence of changes can be rolled back to an earlier mark. Immutable copies are only made on request, e.g.
+ * when a new best solution is found.
+ * <p>
+ * The journal holds three ints per booking changed and only grows, so long searches should call commit() whenever
+ * they no longer need to roll back past the current state. Instances are not thread-safe.
+ */
+public class MutableSolution {
+	private final ExamTimetablingProblem problem;
+	private final DeltaEvaluator evaluator;
+
+	/**
+	 * The exam, previous period and previous room of each change, oldest first.
+	 */
+	private int[] journal = new int[3 * 64];
+	private int journalSize;
+
+	/**
+	 * @param solution - the solution to start from. If an exam is booked more than once, the first booking is used.
+	 */
+	public MutableSolution(ExamTimetablingSolution solution) {
+		this.problem = solution.getProblem();
+		this.evaluator = new DeltaEvaluator(solution);
+	}
+
+	/**
+	 * @param problem  - the problem that the solution solves.
+	 * @param solution - the solution to start from.
+	 */
+	public MutableSolution(ExamTimetablingProblem problem, CompactSolution solution) {
+		this.problem = problem;
+		this.evaluator = new DeltaEvaluator(problem, solution);
+	}
+
+	/**
+	 * @return the number of hard constraint violations (Distance to Feasibility).
+	 */
+	public int distanceToFeasibility() {
+		return evaluator.hardCost();
+	}
+
+	/**
+	 * @return the total penalty of soft constraint violations.
+	 */
+	public int softConstraintViolations() {
+		return evaluator.softCost();
+	}
+
+	/**
+	 * @return the hard and soft totals as a cost.
+	 */
+	public Cost cost() {
+		return evaluator.cost();
+	}
+
+	/**
+	 * @param exam - the exam number.
+	 * @return the period number of the exam, or -1 if the exam is not booked.
+	 */
+	public int periodOf(int exam) {
+		return evaluator.periodOf(exam);
+	}
+
+	/**
+	 * @param exam - the exam number.
+	 * @return the room number of the exam, or -1 if the exam is not booked.
+	 */
+	public int roomOf(int exam) {
+		return evaluator.roomOf(exam);
+	}
+
+	/**
+	 * @param exam   - the exam number.
+	 * @param period - the period number.
+	 * @param room   - the room number.
+	 * @return the change in cost if the exam were booked in the given period and room, without booking it.
+	 */
+	public Cost moveDelta(int exam, int period, int room) {
+		return evaluator.moveDelta(exam, period, room);
+	}
+
+	/**
+	 * @param examOne - the first exam number.
+	 * @param examTwo - the second exam number.
+	 * @return the change in cost if the two exams exchanged their periods and rooms, without exchanging them.
+	 */
+	public Cost swapDelta(int examOne, int examTwo) {
+		return evaluator.swapDelta(examOne, examTwo);
+	}
+
+	/**
+	 * Evaluates the same change as moveDelta without allocating a Cost. The change is read with deltaHard() and
+	 * deltaSoft() until the next evaluation or change to the solution.
+	 *
+	 * @param exam   - the exam number.
+	 * @param period - the period number.
+	 * @param room   - the room number.
+	 */
+	public void evaluateMove(int exam, int period, int room) {
+		evaluator.evaluateMove(exam, period, room);
+	}
+
+	/**
+	 * @return the change in hard cost of the last move evaluated.
+	 */
+	public int deltaHard() {
+		return evaluator.deltaHard();
+	}
+
+	/**
+	 * @return the change in soft cost of the last move evaluated.
+	 */
+	public int deltaSoft() {
+		return evaluator.deltaSoft();
+	}
+
+	/**
+	 * Books an exam that is not booked yet.
+	 *
+	 * @param exam   - the exam number.
+	 * @param period - the period number.
+	 * @param room   - the room number.
+	 * @throws IllegalStateException if the exam is already booked.
+	 */
+	public void assign(int exam, int period, int room) {
+		if (evaluator.periodOf(exam) != -1) throw new IllegalStateException("Exam " + exam + " is already booked.");
+		change(exam, period, room);
+	}
+
+	/**
+	 * Moves a booked exam to another period and room.
+	 *
+	 * @param exam   - the exam number.
+	 * @param period - the period number.
+	 * @param room   - the room number.
+	 * @throws IllegalStateException if the exam is not booked.
+	 */
+	public void move(int exam, int period, int room) {
+		if (evaluator.periodOf(exam) == -1) throw new IllegalStateException("Exam " + exam + " is not booked.");
+		change(exam, period, room);
+	}
+
+	/**
+	 * Removes the booking of an exam, if it has one.
+	 *
+	 * @param exam - the exam number.
+	 */
+	public void unassign(int exam) {
+		if (evaluator.periodOf(exam) != -1) change(exam, -1, -1);
+	}
+
+	/**
+	 * Exchanges the periods and rooms of two exams.
+	 *
+	 * @param examOne - the first exam number.
+	 * @param examTwo - the second exam number.
+	 */
+	public void swap(int examOne, int examTwo) {
+		record(examOne);
+		record(examTwo);
+		evaluator.swap(examOne, examTwo);
+	}
+
+	private void change(int exam, int period, int room) {
+		record(exam);
+		evaluator.move(exam, period, room);
+	}
+
+	private void record(int exam) {
+		if (journalSize == journal.length) journal = Arrays.copyOf(journal, journal.length * 2);
+		journal[journalSize++] = exam;
+		journal[journalSize++] = evaluator.periodOf(exam);
+		journal[journalSize++] = evaluator.roomOf(exam);
+	}
+
+	/**
+	 * @return a mark that rollback() can return the solution to.
+	 */
+	public int mark() {
+		return journalSize;
+	}
+
+	/**
+	 * Undoes every change made since the mark was taken, newest first. The cost is restored exactly.
+	 *
+	 * @param mark - a mark taken since the last commit.
+	 * @throws IllegalArgumentException if the mark is not one that can be returned to.
+	 */
+	public void rollback(int mark) {
+		if (mark < 0 || mark > journalSize || mark % 3 != 0)
+			throw new IllegalArgumentException("Mark " + mark + " cannot be rolled back to.");
+		while (journalSize > mark) {
+			journalSize -= 3;
+			evaluator.move(journal[journalSize], journal[journalSize + 1], journal[journalSize + 2]);
+		}
+	}
+
+	/**
+	 * Discards the journal, so that the current state can no longer be rolled back and earlier marks are invalid.
+	 */
+	public void commit() {
+		journalSize = 0;
+	}
+
+	/**
+	 * @return an immutable solution with the current bookings, in exam order.
+	 */
+	public ExamTimetablingSolution snapshot() {
+		return evaluator.toSolution();
+	}
+
+	/**
+	 * @return the compact encoding of the current bookings.
+	 */
+	public CompactSolution toCompactSolution() {
+		return evaluator.toCompactSolution();
+	}
+
+	/**
+	 * @return the problem that the solution solves.
+	 */
+	public ExamTimetablingProblem getProblem() {
+		return problem;
+	}
+}
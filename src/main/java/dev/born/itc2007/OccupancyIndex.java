@@ -0,0 +1,178 @@
+package dev.born.itc2007;
+
+/**
+ * Models the occupancy of every period and room: the seats taken, the number of exams and the number of exams of each
+ * duration. The index is kept current as exams are added and removed, along with the totals that the capacity and
+ * mixed duration constraints are computed from, so neither needs a scan over all periods and rooms.
+ */
+public class OccupancyIndex {
+	private final int numRooms;
+	private final int numDurations;
+	private final int[] roomCapacity;
+	private final int[] examSize;
+	private final int[] examDurationIndex;
+
+	/**
+	 * The seats, exams and distinct durations booked in each period and room, indexed by period * numRooms + room.
+	 */
+	private final int[] seats;
+	private final int[] exams;
+	private final int[] distinctDurations;
+	private final int[] durationCounts;
+
+	private int overbookedPeriods;
+	private int mixedDurations;
+
+	/**
+	 * @param problem - the problem whose periods and rooms are indexed. No exam is booked initially.
+	 */
+	public OccupancyIndex(ExamTimetablingProblem problem) {
+		this.numRooms = problem.rooms.size();
+		ProblemColumns columns = problem.columns;
+		this.examSize = columns.examSize;
+		this.examDurationIndex = columns.examDurationIndex;
+		this.numDurations = columns.numDurations;
+		this.roomCapacity = columns.roomCapacity;
+
+		int numSlots = problem.periods.size() * numRooms;
+		this.seats = new int[numSlots];
+		this.exams = new int[numSlots];
+		this.distinctDurations = new int[numSlots];
+		this.durationCounts = new int[numSlots * numDurations];
+		for (int slot = 0; slot < numSlots; slot++) {
+			if (0 > roomCapacity[slot % numRooms]) overbookedPeriods++;
+		}
+	}
+
+	/**
+	 * @param problem  - the problem whose periods and rooms are indexed.
+	 * @param bookings - the bookings to add to the index.
+	 * @return an index holding the given bookings.
+	 */
+	public static OccupancyIndex of(ExamTimetablingProblem problem, Iterable<Booking> bookings) {
+		OccupancyIndex index = new OccupancyIndex(problem);
+		for (Booking booking : bookings) index.add(booking.exam.number, booking.period.number, booking.room.number);
+		return index;
+	}
+
+	/**
+	 * @param exam   - the exam number.
+	 * @param period - the period number the exam is booked in.
+	 * @param room   - the room number the exam is booked in.
+	 */
+	public void add(int exam, int period, int room) {
+		int slot = period * numRooms + room;
+		boolean wasOverbooked = seats[slot] > roomCapacity[room];
+		if (exams[slot] > 0) mixedDurations -= distinctDurations[slot] - 1;
+
+		seats[slot] += examSize[exam];
+		exams[slot]++;
+		if (durationCounts[slot * numDurations + examDurationIndex[exam]]++ == 0) distinctDurations[slot]++;
+
+		if (seats[slot] > roomCapacity[room] != wasOverbooked) overbookedPeriods += wasOverbooked ? -1 : 1;
+		mixedDurations += distinctDurations[slot] - 1;
+	}
+
+	/**
+	 * @param exam   - the exam number.
+	 * @param period - the period number the exam was booked in.
+	 * @param room   - the room number the exam was booked in.
+	 */
+	public void remove(int exam, int period, int room) {
+		int slot = period * numRooms + room;
+		boolean wasOverbooked = seats[slot] > roomCapacity[room];
+		mixedDurations -= distinctDurations[slot] - 1;
+
+		seats[slot] -= examSize[exam];
+		exams[slot]--;
+		if (--durationCounts[slot * numDurations + examDurationIndex[exam]] == 0) distinctDurations[slot]--;
+
+		if (seats[slot] > roomCapacity[room] != wasOverbooked) overbookedPeriods += wasOverbooked ? -1 : 1;
+		if (exams[slot] > 0) mixedDurations += distinctDurations[slot] - 1;
+	}
+
+	/**
+	 * @param period - the period number.
+	 * @param room   - the room number.
+	 * @return the number of seats taken in the room during the period.
+	 */
+	public int seats(int period, int room) {
+		return seats[period * numRooms + room];
+	}
+
+	/**
+	 * @param period - the period number.
+	 * @param room   - the room number.
+	 * @return the number of exams booked in the room during the period.
+	 */
+	public int exams(int period, int room) {
+		return exams[period * numRooms + room];
+	}
+
+	/**
+	 * @param period - the period number.
+	 * @param room   - the room number.
+	 * @return the number of different exam durations booked in the room during the period.
+	 */
+	public int distinctDurations(int period, int room) {
+		return distinctDurations[period * numRooms + room];
+	}
+
+	/**
+	 * @return the number of periods and rooms where the seats taken exceed the capacity of the room.
+	 */
+	public int overbookedPeriods() {
+		return overbookedPeriods;
+	}
+
+	/**
+	 * @return the number of different durations beyond the first, summed over all periods and rooms that are in use.
+	 */
+	public int mixedDurations() {
+		return mixedDurations;
+	}
+
+	/**
+	 * @param period      - the period number.
+	 * @param room        - the room number.
+	 * @param removedExam - an exam leaving the room during the period, or -1.
+	 * @param addedExam   - an exam joining the room during the period, or -1.
+	 * @return the change in the number of overbooked periods and rooms if the exams left and joined.
+	 */
+	int overbookedPeriodsDelta(int period, int room, int removedExam, int addedExam) {
+		int slot = period * numRooms + room;
+		int newSeats = seats[slot];
+		if (removedExam != -1) newSeats -= examSize[removedExam];
+		if (addedExam != -1) newSeats += examSize[addedExam];
+		return (newSeats > roomCapacity[room] ? 1 : 0) - (seats[slot] > roomCapacity[room] ? 1 : 0);
+	}
+
+	/**
+	 * @param period      - the period number.
+	 * @param room        - the room number.
+	 * @param removedExam - an exam leaving the room during the period, or -1.
+	 * @param addedExam   - an exam joining the room during the period, or -1.
+	 * @return the change in mixedDurations if the exams left and joined.
+	 */
+	int mixedDurationsDelta(int period, int room, int removedExam, int addedExam) {
+		int slot = period * numRooms + room;
+		int newExams = exams[slot];
+		int newDistinctDurations = distinctDurations[slot];
+		int removedDuration = -1;
+		if (removedExam != -1) {
+			newExams--;
+			removedDuration = examDurationIndex[removedExam];
+			if (durationCounts[slot * numDurations + removedDuration] == 1) newDistinctDurations--;
+		}
+		if (addedExam != -1) {
+			newExams++;
+			int addedDuration = examDurationIndex[addedExam];
+			int count = durationCounts[slot * numDurations + addedDuration];
+			if (addedDuration == removedDuration) count--;
+			if (count == 0) newDistinctDurations++;
+		}
+		int oldMixed = exams[slot] > 0 ? distinctDurations[slot] - 1 : 0;
+		int newMixed = newExams > 0 ? newDistinctDurations - 1 : 0;
+		return newMixed - oldMixed;
+	}
+}
@@ -8,6 +8,12 @@ public class PeriodHardConstraint {
 	public final String constraintType;
 	public final int examTwoNum;
 
+	/**
+	 * The type named by constraintType, or null if it does not name a period constraint. Constraints without a type are
+	 * never violated.
+	 */
+	public final ConstraintType type;
+
 	/**
 	 * @param examOneNum     the first exam for the constraint.
 	 * @param constraintType the constraint type (one of EXAM_COINCIDENCE, EXCLUSION, and AFTER).
@@ -24,5 +30,8 @@ public class PeriodHardConstraint {
 		this.examOneNum = examOneNum;
 		this.constraintType = constraintType;
 		this.examTwoNum = examTwoNum;
+
+		ConstraintType type = ConstraintType.of(constraintType);
+		this.type = type != null && type.isPeriodConstraint() ? type : null;
 	}
 }
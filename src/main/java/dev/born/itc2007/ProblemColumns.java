@@ -0,0 +1,127 @@
+package dev.born.itc2007;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Holds the attributes of the exams, periods and rooms of a problem as primitive arrays indexed by number, so that
+ * evaluators and searches read them from a few contiguous arrays instead of following references from each booking.
+ * The arrays are built once with the problem and must not be modified.
+ */
+public class ProblemColumns {
+	/**
+	 * The number of enrolments of each exam.
+	 */
+	public final int[] examSize;
+
+	/**
+	 * The duration of each exam.
+	 */
+	public final int[] examDuration;
+
+	/**
+	 * The index of the duration of each exam among the distinct exam durations, numbered in order of first appearance.
+	 */
+	public final int[] examDurationIndex;
+
+	/**
+	 * The number of distinct exam durations, or 1 if there are no exams.
+	 */
+	public final int numDurations;
+
+	/**
+	 * Whether each exam is one of the largest exams that the FRONTLOAD weighting penalises late in the timetable.
+	 */
+	public final boolean[] examFrontload;
+
+	/**
+	 * The index of the day of each period, where periods on the same date share an index and later dates have larger
+	 * indices.
+	 */
+	public final int[] periodDay;
+
+	/**
+	 * The start of each period, in minutes since 1970-01-01T00:00.
+	 */
+	public final long[] periodEpochMinute;
+
+	/**
+	 * The duration of each period.
+	 */
+	public final int[] periodDuration;
+
+	/**
+	 * The penalty for using each period.
+	 */
+	public final int[] periodPenalty;
+
+	/**
+	 * Whether each period is one of the last periods that the FRONTLOAD weighting penalises.
+	 */
+	public final boolean[] periodFrontload;
+
+	/**
+	 * The number of students each room can seat.
+	 */
+	public final int[] roomCapacity;
+
+	/**
+	 * The penalty for using each room.
+	 */
+	public final int[] roomPenalty;
+
+	/**
+	 * @param problem - the problem whose exams, periods, rooms and weightings are read.
+	 */
+	ProblemColumns(ExamTimetablingProblem problem) {
+		int numExams = problem.exams.size();
+		int numPeriods = problem.periods.size();
+		int numRooms = problem.rooms.size();
+
+		Map<Integer, Integer> durationIndices = new HashMap<>();
+		this.examSize = new int[numExams];
+		this.examDuration = new int[numExams];
+		this.examDurationIndex = new int[numExams];
+		for (Exam exam : problem.exams) {
+			examSize[exam.number] = exam.studentIds.length;
+			examDuration[exam.number] = exam.duration;
+			examDurationIndex[exam.number] = durationIndices.computeIfAbsent(exam.duration, d -> durationIndices.size());
+		}
+		this.numDurations = Math.max(1, durationIndices.size());
+
+		LocalDate[] dates = problem.periods.stream().map(p -> p.date).distinct().sorted().toArray(LocalDate[]::new);
+		this.periodDay = new int[numPeriods];
+		this.periodEpochMinute = new long[numPeriods];
+		this.periodDuration = new int[numPeriods];
+		this.periodPenalty = new int[numPeriods];
+		for (Period period : problem.periods) {
+			periodDay[period.number] = Arrays.binarySearch(dates, period.date);
+			periodEpochMinute[period.number] = period.getDateTime().toEpochSecond(ZoneOffset.UTC) / 60;
+			periodDuration[period.number] = period.duration;
+			periodPenalty[period.number] = period.penalty;
+		}
+
+		this.roomCapacity = new int[numRooms];
+		this.roomPenalty = new int[numRooms];
+		for (Room room : problem.rooms) {
+			roomCapacity[room.number] = room.capacity;
+			roomPenalty[room.number] = room.penalty;
+		}
+
+		// The largest exams by a stable sort, so exams of equal size count in exam order.
+		this.examFrontload = new boolean[numExams];
+		this.periodFrontload = new boolean[numPeriods];
+		InstitutionalWeighting frontload = problem.institutionalWeightings.stream()
+				.filter(w -> w.weightingType.equals("FRONTLOAD")).findFirst().orElse(null);
+		if (frontload != null) {
+			Exam[] largestExams = problem.exams.toArray(new Exam[0]);
+			Arrays.sort(largestExams, (e1, e2) -> e2.studentIds.length - e1.studentIds.length);
+			for (int i = 0; i < Math.min(frontload.paramOne, largestExams.length); i++)
+				examFrontload[largestExams[i].number] = true;
+			for (int p = Math.max(0, numPeriods - frontload.paramTwo); p < numPeriods; p++) periodFrontload[p] = true;
+		}
+	}
+}
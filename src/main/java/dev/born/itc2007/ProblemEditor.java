@@ -0,0 +1,560 @@
+package dev.born.itc2007;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Edits a problem in place of rewriting its input file and loading it again, e.g. to add a late enrolment or a new
+ * exam. Each edit updates the clash graph only in the rows of the exams it touches, and build() assembles the new
+ * version from those rows without counting clashes again. The constraint index and domains of the new version are
+ * rebuilt, which takes time in proportion to the exams, periods and constraints rather than to their clashes.
+ * <p>
+ * During an editing session, exams, periods and rooms keep the numbers they have in the version being edited, and
+ * added ones are numbered after them. build() then numbers the remaining ones from 0 in the same order, and the
+ * returned ProblemUpdate maps solutions of the previous version onto the new one. Editing carries on from the new
+ * version, so one editor can produce any number of versions. Versions are immutable and never share anything that
+ * the editor changes afterwards. Instances are not thread-safe.
+ */
+public class ProblemEditor {
+	private ExamTimetablingProblem base;
+	private StudentDictionary dictionary;
+	private boolean isDictionaryShared;
+
+	private int numExams;
+	private int[] durations;
+	private int[][] examStudents;
+	private boolean[] isExamRemoved;
+	private int numExamsRemoved;
+
+	/**
+	 * The changed rows of the clash graph in the editing session numbering, or null where a row is unchanged from the
+	 * clash graph of the base version. isRowChanged also marks rows whose exam has changed enrolments.
+	 */
+	private int[][] rowNeighbours;
+	private int[][] rowWeights;
+	private boolean[] isRowChanged;
+	private boolean isClashChanged;
+
+	/**
+	 * The exams of each student in ascending order, one entry per enrolment, built on the first change of enrolments.
+	 */
+	private int[][] studentExams;
+	private int[] studentExamCounts;
+
+	private final List<Period> periods = new ArrayList<>();
+	private final List<Boolean> isPeriodRemoved = new ArrayList<>();
+	private final List<Room> rooms = new ArrayList<>();
+	private final List<Boolean> isRoomRemoved = new ArrayList<>();
+	private final List<PeriodHardConstraint> periodHardConstraints = new ArrayList<>();
+	private final List<RoomHardConstraint> roomHardConstraints = new ArrayList<>();
+
+	/**
+	 * @param problem - the version of the problem to start editing from. It is not changed.
+	 */
+	public ProblemEditor(ExamTimetablingProblem problem) {
+		reset(problem);
+	}
+
+	private void reset(ExamTimetablingProblem problem) {
+		this.base = problem;
+		this.dictionary = problem.students;
+		this.isDictionaryShared = true;
+		this.numExams = problem.exams.size();
+		this.durations = new int[Math.max(8, numExams)];
+		this.examStudents = new int[durations.length][];
+		this.isExamRemoved = new boolean[durations.length];
+		this.numExamsRemoved = 0;
+		for (Exam exam : problem.exams) {
+			durations[exam.number] = exam.duration;
+			examStudents[exam.number] = exam.dictionary == dictionary ? exam.studentIds : reintern(exam);
+		}
+		this.rowNeighbours = new int[durations.length][];
+		this.rowWeights = new int[durations.length][];
+		this.isRowChanged = new boolean[durations.length];
+		this.isClashChanged = false;
+
+		periods.clear();
+		isPeriodRemoved.clear();
+		for (Period period : problem.periods) {
+			periods.add(period);
+			isPeriodRemoved.add(false);
+		}
+		rooms.clear();
+		isRoomRemoved.clear();
+		for (Room room : problem.rooms) {
+			rooms.add(room);
+			isRoomRemoved.add(false);
+		}
+		periodHardConstraints.clear();
+		periodHardConstraints.addAll(problem.periodHardConstraints);
+		roomHardConstraints.clear();
+		roomHardConstraints.addAll(problem.roomHardConstraints);
+	}
+
+	private int[] reintern(Exam exam) {
+		if (isDictionaryShared) {
+			dictionary = dictionary.copy();
+			isDictionaryShared = false;
+		}
+		int[] ids = new int[exam.studentIds.length];
+		for (int k = 0; k < ids.length; k++) ids[k] = dictionary.intern(exam.dictionary.name(exam.studentIds[k]));
+		Arrays.sort(ids);
+		return ids;
+	}
+
+	/**
+	 * @return the version that is being edited.
+	 */
+	public ExamTimetablingProblem getBase() {
+		return base;
+	}
+
+	/**
+	 * @param duration - the duration of the exam.
+	 * @param students - the identifiers of the students enrolled in the exam.
+	 * @return the number of the new exam in this editing session.
+	 */
+	public int addExam(int duration, Collection<String> students) {
+		if (numExams == durations.length) {
+			int capacity = numExams * 2;
+			durations = Arrays.copyOf(durations, capacity);
+			examStudents = Arrays.copyOf(examStudents, capacity);
+			isExamRemoved = Arrays.copyOf(isExamRemoved, capacity);
+			rowNeighbours = Arrays.copyOf(rowNeighbours, capacity);
+			rowWeights = Arrays.copyOf(rowWeights, capacity);
+			isRowChanged = Arrays.copyOf(isRowChanged, capacity);
+		}
+		int exam = numExams++;
+		durations[exam] = duration;
+		examStudents[exam] = new int[0];
+		rowNeighbours[exam] = new int[0];
+		rowWeights[exam] = new int[0];
+		isRowChanged[exam] = true;
+		isClashChanged = true;
+		for (String student : students) enrol(student, exam);
+		return exam;
+	}
+
+	/**
+	 * Removes an exam along with its enrolments. Constraints on the exam are dropped when the new version is built.
+	 *
+	 * @param exam - the exam number in this editing session.
+	 */
+	public void removeExam(int exam) {
+		checkExam(exam);
+		int[] ids = examStudents[exam];
+		for (int k = ids.length - 1; k >= 0; k--) unenrol(ids[k], exam);
+		isExamRemoved[exam] = true;
+		numExamsRemoved++;
+		isClashChanged = true;
+	}
+
+	/**
+	 * Enrols a student in an exam, adding the student to the problem if no exam enrols them yet.
+	 *
+	 * @param student - the identifier of the student.
+	 * @param exam    - the exam number in this editing session.
+	 */
+	public void enrol(String student, int exam) {
+		checkExam(exam);
+		int id = dictionary.id(student);
+		if (id == -1) {
+			if (isDictionaryShared) {
+				dictionary = dictionary.copy();
+				isDictionaryShared = false;
+			}
+			id = dictionary.intern(student);
+		}
+		indexStudents();
+		if (id >= studentExams.length) {
+			studentExams = Arrays.copyOf(studentExams, Math.max(id + 1, studentExams.length * 2));
+			studentExamCounts = Arrays.copyOf(studentExamCounts, studentExams.length);
+		}
+
+		int multiplicity = multiplicity(id, exam);
+		int[] exams = studentExams[id];
+		int count = studentExamCounts[id];
+		for (int k = 0; k < count; k++) {
+			int other = exams[k];
+			if (other == exam) continue;
+			// Every enrolment of the exam clashes once with each distinct other exam of the student, and the other
+			// exams gain a clash for each of their enrolments when the student is new to the exam.
+			if (k == 0 || exams[k - 1] != other) addWeight(exam, other, 1);
+			if (multiplicity == 0) addWeight(other, exam, 1);
+		}
+
+		examStudents[exam] = insert(examStudents[exam], examStudents[exam].length, id);
+		if (exams == null || count == exams.length) exams = Arrays.copyOf(exams == null ? new int[0] : exams, Math.max(4, count * 2));
+		studentExams[id] = insert(exams, count, exam);
+		studentExamCounts[id]++;
+		isRowChanged[exam] = true;
+		isClashChanged = true;
+	}
+
+	/**
+	 * Removes one enrolment of a student in an exam.
+	 *
+	 * @param student - the identifier of the student.
+	 * @param exam    - the exam number in this editing session.
+	 * @throws IllegalArgumentException if the student is not enrolled in the exam.
+	 */
+	public void unenrol(String student, int exam) {
+		checkExam(exam);
+		int id = dictionary.id(student);
+		if (id == -1 || Arrays.binarySearch(examStudents[exam], id) < 0)
+			throw new IllegalArgumentException("Student " + student + " is not enrolled in exam " + exam + ".");
+		unenrol(id, exam);
+	}
+
+	/**
+	 * Removes every enrolment of a student.
+	 *
+	 * @param student - the identifier of the student.
+	 */
+	public void removeStudent(String student) {
+		int id = dictionary.id(student);
+		if (id == -1) return;
+		indexStudents();
+		if (id >= studentExams.length) return;
+		while (studentExamCounts[id] > 0) unenrol(id, studentExams[id][studentExamCounts[id] - 1]);
+	}
+
+	private void unenrol(int id, int exam) {
+		indexStudents();
+		int[] exams = studentExams[id];
+		int count = --studentExamCounts[id];
+		int k = Arrays.binarySearch(exams, 0, count + 1, exam);
+		System.arraycopy(exams, k + 1, exams, k, count - k);
+		int[] ids = examStudents[exam];
+		int at = Arrays.binarySearch(ids, id);
+		int[] newIds = new int[ids.length - 1];
+		System.arraycopy(ids, 0, newIds, 0, at);
+		System.arraycopy(ids, at + 1, newIds, at, ids.length - at - 1);
+		examStudents[exam] = newIds;
+
+		int multiplicity = multiplicity(id, exam);
+		for (int j = 0; j < count; j++) {
+			int other = exams[j];
+			if (other == exam) continue;
+			if (j == 0 || exams[j - 1] != other) addWeight(exam, other, -1);
+			if (multiplicity == 0) addWeight(other, exam, -1);
+		}
+		isRowChanged[exam] = true;
+		isClashChanged = true;
+	}
+
+	/**
+	 * @return the number of enrolments of the student in the exam.
+	 */
+	private int multiplicity(int id, int exam) {
+		int[] ids = examStudents[exam];
+		int k = Arrays.binarySearch(ids, id);
+		if (k < 0) return 0;
+		int first = k;
+		int last = k;
+		while (first > 0 && ids[first - 1] == id) first--;
+		while (last + 1 < ids.length && ids[last + 1] == id) last++;
+		return last - first + 1;
+	}
+
+	/**
+	 * Builds the exams of each student from the enrolments of each exam, the first time it is needed.
+	 */
+	private void indexStudents() {
+		if (studentExams != null) return;
+		studentExamCounts = new int[dictionary.size()];
+		for (int exam = 0; exam < numExams; exam++) {
+			for (int id : examStudents[exam]) studentExamCounts[id]++;
+		}
+		studentExams = new int[dictionary.size()][];
+		for (int id = 0; id < studentExams.length; id++) studentExams[id] = new int[studentExamCounts[id]];
+		Arrays.fill(studentExamCounts, 0);
+		for (int exam = 0; exam < numExams; exam++) {
+			for (int id : examStudents[exam]) studentExams[id][studentExamCounts[id]++] = exam;
+		}
+	}
+
+	/**
+	 * @return the array with the value inserted in order among its first size entries, in place if there is room.
+	 */
+	private static int[] insert(int[] values, int size, int value) {
+		int k = Arrays.binarySearch(values, 0, size, value);
+		if (k < 0) k = -k - 1;
+		int[] result = size == values.length ? new int[size + 1] : values;
+		if (result != values) System.arraycopy(values, 0, result, 0, k);
+		System.arraycopy(values, k, result, k + 1, size - k);
+		result[k] = value;
+		return result;
+	}
+
+	/**
+	 * Changes the number of enrolments of one exam whose student also sits another, dropping the pair when none are
+	 * left.
+	 */
+	private void addWeight(int exam, int other, int delta) {
+		if (rowNeighbours[exam] == null) {
+			ClashGraph clashGraph = base.clashGraph;
+			rowNeighbours[exam] = Arrays.copyOfRange(clashGraph.neighbours, clashGraph.offsets[exam], clashGraph.offsets[exam + 1]);
+			rowWeights[exam] = Arrays.copyOfRange(clashGraph.weights, clashGraph.offsets[exam], clashGraph.offsets[exam + 1]);
+		}
+		int[] neighbours = rowNeighbours[exam];
+		int[] weights = rowWeights[exam];
+		int k = Arrays.binarySearch(neighbours, other);
+		if (k >= 0 && weights[k] + delta != 0) {
+			weights[k] += delta;
+		} else if (k >= 0) {
+			int[] newNeighbours = new int[neighbours.length - 1];
+			int[] newWeights = new int[neighbours.length - 1];
+			System.arraycopy(neighbours, 0, newNeighbours, 0, k);
+			System.arraycopy(neighbours, k + 1, newNeighbours, k, neighbours.length - k - 1);
+			System.arraycopy(weights, 0, newWeights, 0, k);
+			System.arraycopy(weights, k + 1, newWeights, k, neighbours.length - k - 1);
+			rowNeighbours[exam] = newNeighbours;
+			rowWeights[exam] = newWeights;
+		} else {
+			rowNeighbours[exam] = insert(neighbours, neighbours.length, other);
+			int at = -k - 1;
+			int[] newWeights = new int[weights.length + 1];
+			System.arraycopy(weights, 0, newWeights, 0, at);
+			System.arraycopy(weights, at, newWeights, at + 1, weights.length - at);
+			newWeights[at] = delta;
+			rowWeights[exam] = newWeights;
+		}
+		isRowChanged[exam] = true;
+	}
+
+	/**
+	 * @param date     - the date of the period.
+	 * @param time     - the start time of the period.
+	 * @param duration - the duration of the period.
+	 * @param penalty  - the penalty for using the period.
+	 * @return the number of the new period in this editing session.
+	 */
+	public int addPeriod(LocalDate date, LocalTime time, int duration, int penalty) {
+		periods.add(new Period(periods.size(), date, time, duration, penalty));
+		isPeriodRemoved.add(false);
+		return periods.size() - 1;
+	}
+
+	/**
+	 * @param period - the period number in this editing session.
+	 */
+	public void removePeriod(int period) {
+		if (period < 0 || period >= periods.size() || isPeriodRemoved.get(period))
+			throw new IllegalArgumentException("Period " + period + " does not exist.");
+		isPeriodRemoved.set(period, true);
+	}
+
+	/**
+	 * @param capacity - the number of students the room can seat.
+	 * @param penalty  - the penalty for using the room.
+	 * @return the number of the new room in this editing session.
+	 */
+	public int addRoom(int capacity, int penalty) {
+		rooms.add(new Room(rooms.size(), capacity, penalty));
+		isRoomRemoved.add(false);
+		return rooms.size() - 1;
+	}
+
+	/**
+	 * @param room - the room number in this editing session.
+	 */
+	public void removeRoom(int room) {
+		if (room < 0 || room >= rooms.size() || isRoomRemoved.get(room))
+			throw new IllegalArgumentException("Room " + room + " does not exist.");
+		isRoomRemoved.set(room, true);
+	}
+
+	/**
+	 * @param examOne        - the first exam number in this editing session.
+	 * @param constraintType - the constraint type (one of EXAM_COINCIDENCE, EXCLUSION, and AFTER).
+	 * @param examTwo        - the second exam number in this editing session.
+	 */
+	public void addPeriodHardConstraint(int examOne, String constraintType, int examTwo) {
+		checkExam(examOne);
+		checkExam(examTwo);
+		periodHardConstraints.add(new PeriodHardConstraint(examOne, constraintType, examTwo));
+	}
+
+	/**
+	 * @param examOne        - the first exam number in this editing session.
+	 * @param constraintType - the constraint type.
+	 * @param examTwo        - the second exam number in this editing session.
+	 * @return whether a matching constraint was found and removed.
+	 */
+	public boolean removePeriodHardConstraint(int examOne, String constraintType, int examTwo) {
+		for (int i = 0; i < periodHardConstraints.size(); i++) {
+			PeriodHardConstraint c = periodHardConstraints.get(i);
+			if (c.examOneNum == examOne && c.examTwoNum == examTwo && c.constraintType.equals(constraintType)) {
+				periodHardConstraints.remove(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param exam           - the exam number in this editing session.
+	 * @param constraintType - the constraint type (ROOM_EXCLUSIVE).
+	 */
+	public void addRoomHardConstraint(int exam, String constraintType) {
+		checkExam(exam);
+		roomHardConstraints.add(new RoomHardConstraint(exam, constraintType));
+	}
+
+	/**
+	 * @param exam           - the exam number in this editing session.
+	 * @param constraintType - the constraint type.
+	 * @return whether a matching constraint was found and removed.
+	 */
+	public boolean removeRoomHardConstraint(int exam, String constraintType) {
+		for (int i = 0; i < roomHardConstraints.size(); i++) {
+			RoomHardConstraint c = roomHardConstraints.get(i);
+			if (c.examNum == exam && c.constraintType.equals(constraintType)) {
+				roomHardConstraints.remove(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void checkExam(int exam) {
+		if (exam < 0 || exam >= numExams || isExamRemoved[exam])
+			throw new IllegalArgumentException("Exam " + exam + " does not exist.");
+	}
+
+	/**
+	 * Builds the new version from the edits made since the last build, and carries on editing from it.
+	 *
+	 * @return the new version, along with the numbers that the exams, periods and rooms of this editing session have
+	 * in it.
+	 */
+	public ProblemUpdate build() {
+		int[] examNumbers = new int[numExams];
+		int newNumExams = 0;
+		for (int exam = 0; exam < numExams; exam++) examNumbers[exam] = isExamRemoved[exam] ? -1 : newNumExams++;
+		boolean isRenumbered = newNumExams != base.exams.size() || numExamsRemoved > 0;
+
+		List<Exam> exams = new ArrayList<>(newNumExams);
+		for (int exam = 0; exam < numExams; exam++) {
+			if (isExamRemoved[exam]) continue;
+			Exam previous = exam < base.exams.size() ? base.exams.get(exam) : null;
+			boolean isUnchanged = previous != null && previous.number == examNumbers[exam] && previous.duration == durations[exam]
+					&& previous.studentIds == examStudents[exam] && previous.dictionary == dictionary;
+			exams.add(isUnchanged ? previous : new Exam(examNumbers[exam], durations[exam], examStudents[exam], dictionary));
+		}
+
+		ClashGraph clashGraph = isClashChanged ? clashGraph(examNumbers, newNumExams) : base.clashGraph;
+		int[][] clashMatrix = null;
+		if (base.clashMatrix != null && !isClashChanged) {
+			clashMatrix = base.clashMatrix;
+		} else if (base.clashMatrix != null && !isRenumbered) {
+			// Every changed weight and enrolment count is in a changed row, so the other rows are shared.
+			clashMatrix = base.clashMatrix.clone();
+			for (int exam = 0; exam < numExams; exam++) {
+				if (!isRowChanged[exam]) continue;
+				int[] row = new int[numExams];
+				row[exam] = examStudents[exam].length;
+				for (int k = clashGraph.offsets[exam]; k < clashGraph.offsets[exam + 1]; k++) row[clashGraph.neighbours[k]] = clashGraph.weights[k];
+				clashMatrix[exam] = row;
+			}
+		} else if (base.clashMatrix != null) {
+			clashMatrix = ExamTimetablingProblem.buildClashMatrix(exams, clashGraph);
+		}
+
+		int[] periodNumbers = new int[periods.size()];
+		List<Period> newPeriods = new ArrayList<>();
+		for (Period period : periods) {
+			if (isPeriodRemoved.get(period.number)) {
+				periodNumbers[period.number] = -1;
+				continue;
+			}
+			periodNumbers[period.number] = newPeriods.size();
+			newPeriods.add(period.number == newPeriods.size() ? period : new Period(newPeriods.size(), period.date, period.time, period.duration, period.penalty));
+		}
+		int[] roomNumbers = new int[rooms.size()];
+		List<Room> newRooms = new ArrayList<>();
+		for (Room room : rooms) {
+			if (isRoomRemoved.get(room.number)) {
+				roomNumbers[room.number] = -1;
+				continue;
+			}
+			roomNumbers[room.number] = newRooms.size();
+			newRooms.add(room.number == newRooms.size() ? room : new Room(newRooms.size(), room.capacity, room.penalty));
+		}
+
+		List<PeriodHardConstraint> newPeriodHardConstraints = new ArrayList<>();
+		for (PeriodHardConstraint c : periodHardConstraints) {
+			int examOne = examNumbers[c.examOneNum];
+			int examTwo = examNumbers[c.examTwoNum];
+			if (examOne == -1 || examTwo == -1) continue;
+			newPeriodHardConstraints.add(examOne == c.examOneNum && examTwo == c.examTwoNum ? c : new PeriodHardConstraint(examOne, c.constraintType, examTwo));
+		}
+		List<RoomHardConstraint> newRoomHardConstraints = new ArrayList<>();
+		for (RoomHardConstraint c : roomHardConstraints) {
+			int exam = examNumbers[c.examNum];
+			if (exam == -1) continue;
+			newRoomHardConstraints.add(exam == c.examNum ? c : new RoomHardConstraint(exam, c.constraintType));
+		}
+
+		ExamTimetablingProblem problem = new ExamTimetablingProblem(exams, dictionary, newPeriods, newRooms, newPeriodHardConstraints,
+				newRoomHardConstraints, base.institutionalWeightings, clashGraph, clashMatrix);
+		ProblemUpdate update = new ProblemUpdate(base, problem, examNumbers, periodNumbers, roomNumbers);
+		carryOver(problem, examNumbers);
+		return update;
+	}
+
+	/**
+	 * @return the clash graph of the remaining exams, assembled from the changed rows and the unchanged rows of the
+	 * clash graph of the base version.
+	 */
+	private ClashGraph clashGraph(int[] examNumbers, int newNumExams) {
+		ClashGraph previous = base.clashGraph;
+		int[] offsets = new int[newNumExams + 1];
+		for (int exam = 0; exam < numExams; exam++) {
+			if (examNumbers[exam] == -1) continue;
+			int length = rowNeighbours[exam] != null ? rowNeighbours[exam].length : previous.degree(exam);
+			offsets[examNumbers[exam] + 1] = offsets[examNumbers[exam]] + length;
+		}
+		int[] neighbours = new int[offsets[newNumExams]];
+		int[] weights = new int[offsets[newNumExams]];
+		for (int exam = 0; exam < numExams; exam++) {
+			int number = examNumbers[exam];
+			if (number == -1) continue;
+			if (rowNeighbours[exam] != null) {
+				System.arraycopy(rowNeighbours[exam], 0, neighbours, offsets[number], rowNeighbours[exam].length);
+				System.arraycopy(rowWeights[exam], 0, weights, offsets[number], rowWeights[exam].length);
+			} else {
+				System.arraycopy(previous.neighbours, previous.offsets[exam], neighbours, offsets[number], previous.degree(exam));
+				System.arraycopy(previous.weights, previous.offsets[exam], weights, offsets[number], previous.degree(exam));
+			}
+		}
+		// Removed exams have no enrolments left, so no remaining exam neighbours one, and renumbering keeps rows sorted.
+		if (numExamsRemoved > 0) {
+			for (int k = 0; k < neighbours.length; k++) neighbours[k] = examNumbers[neighbours[k]];
+		}
+		return new ClashGraph(offsets, neighbours, weights);
+	}
+
+	/**
+	 * Makes the new version the base of further edits, keeping the index of the exams of each student.
+	 */
+	private void carryOver(ExamTimetablingProblem problem, int[] examNumbers) {
+		int[][] studentExams = this.studentExams;
+		int[] studentExamCounts = this.studentExamCounts;
+		boolean isRenumbered = numExamsRemoved > 0;
+		reset(problem);
+		if (studentExams == null) return;
+		if (isRenumbered) {
+			for (int id = 0; id < studentExams.length; id++) {
+				for (int k = 0; k < studentExamCounts[id]; k++) studentExams[id][k] = examNumbers[studentExams[id][k]];
+			}
+		}
+		this.studentExams = studentExams;
+		this.studentExamCounts = studentExamCounts;
+	}
+}
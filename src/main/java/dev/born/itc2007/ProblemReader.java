@@ -0,0 +1,236 @@
+package dev.born.itc2007;
+
+import dev.born.itc2007.metrics.Metrics;
+import dev.born.itc2007.metrics.ParseEvent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a problem instance in a single pass over a stream of bytes, without splitting the input into lines or
+ * running regular expressions over it. All whitespace is ignored, as are blank lines. Identifiers are decoded as
+ * ISO-8859-1, one character per byte, so identifiers that are not ASCII are kept distinct byte for byte.
+ * <p>
+ * See http://www.cs.qub.ac.uk/itc2007/examtrack/exam_track_index_files/Inputformat.htm.
+ */
+class ProblemReader {
+	private static final int EOF = ByteTokenizer.EOF;
+
+	private final ByteTokenizer tokens;
+
+	private byte[] token = new byte[64];
+	private int tokenLength;
+
+	private final StudentDictionary students = new StudentDictionary();
+
+	/**
+	 * @param in - the stream to read the problem from. It does not need to be buffered.
+	 */
+	ProblemReader(InputStream in) {
+		this.tokens = new ByteTokenizer(in);
+	}
+
+	/**
+	 * @param options - the options controlling how the problem is loaded.
+	 * @return the problem described by the stream.
+	 * @throws IOException if the stream could not be read or does not describe a problem.
+	 */
+	ExamTimetablingProblem read(LoadOptions options) throws IOException {
+		boolean timed = Metrics.isEnabled();
+		long start = timed ? System.nanoTime() : 0;
+		ParseEvent event = new ParseEvent();
+		event.begin();
+
+		List<Exam> exams = new ArrayList<>();
+		List<Period> periods = new ArrayList<>();
+		List<Room> rooms = new ArrayList<>();
+		List<PeriodHardConstraint> periodHardConstraints = new ArrayList<>();
+		List<RoomHardConstraint> roomHardConstraints = new ArrayList<>();
+		List<InstitutionalWeighting> institutionalWeightings = new ArrayList<>();
+
+		String section = null;
+		int[] examStudents = new int[64];
+		int c;
+		while ((c = tokens.skipBlank()) != EOF) {
+			if (c == '[') {
+				section = readHeader();
+				if (section.equals("Exams")) {
+					int count = readHeaderCount();
+					if (count > 0) exams = new ArrayList<>(count);
+				}
+				tokens.skipLine();
+				continue;
+			}
+			if (section == null) throw tokens.error("Expected a section header but found " + ByteTokenizer.describe(c));
+
+			switch (section) {
+				case "Exams":
+					int durationInMinutes = readInt();
+					int numExamStudents = 0;
+					int separator;
+					while ((separator = tokens.next()) == ',') {
+						if (numExamStudents == examStudents.length)
+							examStudents = Arrays.copyOf(examStudents, numExamStudents * 2);
+						examStudents[numExamStudents++] = readStudent();
+					}
+					if (separator != '\n' && separator != EOF)
+						throw tokens.error("Expected ',' but found " + ByteTokenizer.describe(separator));
+					int[] studentIds = Arrays.copyOf(examStudents, numExamStudents);
+					Arrays.sort(studentIds);
+					exams.add(new Exam(exams.size(), durationInMinutes, studentIds, students));
+					break;
+				case "Periods":
+					int day = readInt();
+					tokens.expect(':');
+					int month = readInt();
+					tokens.expect(':');
+					int year = readInt();
+					tokens.expect(',');
+					int hour = readInt();
+					tokens.expect(':');
+					int minute = readInt();
+					tokens.expect(':');
+					int second = readInt();
+					tokens.expect(',');
+					int duration = readInt();
+					tokens.expect(',');
+					int penalty = readInt();
+					tokens.endLine();
+					periods.add(new Period(periods.size(), LocalDate.of(year, month, day), LocalTime.of(hour, minute, second), duration, penalty));
+					break;
+				case "Rooms":
+					int capacity = readInt();
+					tokens.expect(',');
+					int roomPenalty = readInt();
+					tokens.endLine();
+					rooms.add(new Room(rooms.size(), capacity, roomPenalty));
+					break;
+				case "PeriodHardConstraints":
+					int examOneNum = readInt();
+					tokens.expect(',');
+					String constraintType = readToken();
+					tokens.expect(',');
+					int examTwoNum = readInt();
+					tokens.endLine();
+					periodHardConstraints.add(new PeriodHardConstraint(examOneNum, constraintType, examTwoNum));
+					break;
+				case "RoomHardConstraints":
+					int examNum = readInt();
+					tokens.expect(',');
+					String roomConstraintType = readToken();
+					tokens.endLine();
+					roomHardConstraints.add(new RoomHardConstraint(examNum, roomConstraintType));
+					break;
+				case "InstitutionalWeightings":
+					String type = readToken();
+					tokens.expect(',');
+					int paramOne = readInt();
+					if (!type.equals("FRONTLOAD")) {
+						tokens.endLine();
+						institutionalWeightings.add(new InstitutionalWeighting(type, paramOne));
+					} else {
+						tokens.expect(',');
+						int paramTwo = readInt();
+						tokens.expect(',');
+						int paramThree = readInt();
+						tokens.endLine();
+						institutionalWeightings.add(new InstitutionalWeighting(type, paramOne, paramTwo, paramThree));
+					}
+					break;
+				default:
+					throw tokens.error("Unknown section [" + section + "]");
+			}
+		}
+
+		// The clash graph is timed on its own, so parsing ends here.
+		if (timed) Metrics.PARSE.recordSince(start);
+		if (event.shouldCommit()) {
+			event.exams = exams.size();
+			event.periods = periods.size();
+			event.rooms = rooms.size();
+			event.commit();
+		}
+
+		return new ExamTimetablingProblem(exams, students, periods, rooms, periodHardConstraints, roomHardConstraints, institutionalWeightings, options);
+	}
+
+	/**
+	 * Reads an integer, which may be negative, after any leading whitespace. Whitespace within the number ends it.
+	 */
+	private int readInt() throws IOException {
+		int c = tokens.skipWhitespace();
+		boolean negative = c == '-';
+		if (negative) {
+			tokens.skip();
+			c = tokens.peek();
+		}
+		if (c < '0' || c > '9') throw tokens.error("Expected a number but found " + ByteTokenizer.describe(c));
+
+		int value = 0;
+		while (c >= '0' && c <= '9') {
+			if (value > (Integer.MAX_VALUE - (c - '0')) / 10) throw tokens.error("Number is too large");
+			value = value * 10 + (c - '0');
+			tokens.skip();
+			c = tokens.peek();
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Reads the bytes up to the next separator into token, ignoring any whitespace within them.
+	 */
+	private void readTokenBytes() throws IOException {
+		tokenLength = 0;
+		int c;
+		while ((c = tokens.skipWhitespace()) != EOF && c != ',' && c != '\n') {
+			if (tokenLength == token.length) token = Arrays.copyOf(token, tokenLength * 2);
+			token[tokenLength++] = (byte) c;
+			tokens.skip();
+		}
+	}
+
+	private String readToken() throws IOException {
+		readTokenBytes();
+		return new String(token, 0, tokenLength, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * @return the id of the student identifier at the current position, shared with every other enrolment of that
+	 * student.
+	 */
+	private int readStudent() throws IOException {
+		readTokenBytes();
+		return students.intern(token, tokenLength);
+	}
+
+	/**
+	 * Reads a section header up to its closing bracket or count separator, with the opening bracket at the current
+	 * position.
+	 */
+	private String readHeader() throws IOException {
+		tokens.skip();
+		StringBuilder name = new StringBuilder();
+		int c;
+		while ((c = tokens.skipWhitespace()) != EOF && c != ':' && c != ']' && c != '\n') {
+			name.append((char) c);
+			tokens.skip();
+		}
+		return name.toString();
+	}
+
+	/**
+	 * @return the count following the header name, or -1 if the header has none.
+	 */
+	private int readHeaderCount() throws IOException {
+		if (tokens.skipWhitespace() != ':') return -1;
+		tokens.skip();
+		int c = tokens.skipWhitespace();
+		return c >= '0' && c <= '9' ? readInt() : -1;
+	}
+}
@@ -0,0 +1,263 @@
+package dev.born.itc2007;
+
+import dev.born.itc2007.metrics.Metrics;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes and reads problems in a versioned binary format. A snapshot holds every exam, period, room, constraint and
+ * weighting along with the clash graph, so loading one needs no parsing or clash computation. Each distinct student is
+ * stored once, and exams refer to students by index.
+ * <p>
+ * All values are big-endian. The file starts with a magic number and a format version; files written by another
+ * version are rejected rather than misread. Every count and the stored clash graph are checked as they are read, so
+ * a truncated or corrupt file fails with an IOException when it is loaded rather than later during a search.
+ * <p>
+ * A snapshot is decoded onto the heap whether or not it is memory-mapped. Only the clash graph is taken as stored;
+ * the constraint index, domains and columns are derived again, in time linear in the size of the problem, and the
+ * dense clash matrix is built only if the load options ask for it.
+ */
+class ProblemSnapshot {
+	private static final int MAGIC = 0x49544337;
+	private static final int VERSION = 1;
+
+	private ProblemSnapshot() {
+	}
+
+	/**
+	 * @param problem - the problem to write.
+	 * @param out     - the stream to write the snapshot to. The stream is flushed but not closed.
+	 * @throws IOException if the stream could not be written.
+	 */
+	static void write(ExamTimetablingProblem problem, OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+
+		StudentDictionary students = problem.students;
+		data.writeInt(students.size());
+		for (int id = 0; id < students.size(); id++) writeString(data, students.name(id));
+
+		data.writeInt(problem.exams.size());
+		for (Exam exam : problem.exams) {
+			data.writeInt(exam.duration);
+			data.writeInt(exam.studentIds.length);
+			for (int id : exam.studentIds) data.writeInt(id);
+		}
+
+		data.writeInt(problem.periods.size());
+		for (Period period : problem.periods) {
+			data.writeLong(period.date.toEpochDay());
+			data.writeLong(period.time.toNanoOfDay());
+			data.writeInt(period.duration);
+			data.writeInt(period.penalty);
+		}
+
+		data.writeInt(problem.rooms.size());
+		for (Room room : problem.rooms) {
+			data.writeInt(room.capacity);
+			data.writeInt(room.penalty);
+		}
+
+		data.writeInt(problem.periodHardConstraints.size());
+		for (PeriodHardConstraint constraint : problem.periodHardConstraints) {
+			data.writeInt(constraint.examOneNum);
+			writeString(data, constraint.constraintType);
+			data.writeInt(constraint.examTwoNum);
+		}
+
+		data.writeInt(problem.roomHardConstraints.size());
+		for (RoomHardConstraint constraint : problem.roomHardConstraints) {
+			data.writeInt(constraint.examNum);
+			writeString(data, constraint.constraintType);
+		}
+
+		data.writeInt(problem.institutionalWeightings.size());
+		for (InstitutionalWeighting weighting : problem.institutionalWeightings) {
+			writeString(data, weighting.weightingType);
+			data.writeInt(weighting.paramOne);
+			data.writeInt(weighting.paramTwo);
+			data.writeInt(weighting.paramThree);
+		}
+
+		ClashGraph clashGraph = problem.clashGraph;
+		data.writeInt(clashGraph.neighbours.length);
+		for (int offset : clashGraph.offsets) data.writeInt(offset);
+		for (int neighbour : clashGraph.neighbours) data.writeInt(neighbour);
+		for (int weight : clashGraph.weights) data.writeInt(weight);
+		data.flush();
+	}
+
+	private static void writeString(DataOutputStream data, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		data.writeInt(bytes.length);
+		data.write(bytes);
+	}
+
+	/**
+	 * @param path    - the path of the snapshot file.
+	 * @param options - the options controlling how the problem is loaded.
+	 * @return the problem held in the snapshot.
+	 * @throws IOException if the file could not be read, or is not a snapshot of this version.
+	 */
+	static ExamTimetablingProblem read(Path path, LoadOptions options) throws IOException {
+		boolean timed = Metrics.isEnabled();
+		long start = timed ? System.nanoTime() : 0;
+
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			// Byte buffers, mapped or not, are indexed by int.
+			if (size > Integer.MAX_VALUE) throw new IOException(path + " is too large to load, as snapshots are limited to 2 GB.");
+			if (options.memoryMapped) {
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			} else {
+				buffer = ByteBuffer.allocate((int) size);
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer) < 0) break;
+				}
+				buffer.flip();
+			}
+		}
+
+		try {
+			ExamTimetablingProblem problem = read(buffer, options);
+			if (timed) Metrics.SNAPSHOT_LOAD.recordSince(start);
+			return problem;
+		} catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException | NegativeArraySizeException | DateTimeException e) {
+			throw new IOException(path + " is truncated or corrupt.", e);
+		}
+	}
+
+	private static ExamTimetablingProblem read(ByteBuffer buffer, LoadOptions options) throws IOException {
+		if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) throw new IOException("Not a problem snapshot.");
+		int version = buffer.getInt();
+		if (version != VERSION)
+			throw new IOException("Snapshot version " + version + " is not supported, expected version " + VERSION + ".");
+
+		// Interning again rather than trusting the stored order keeps ids dense even if a name was stored twice.
+		int[] studentIds = new int[readCount(buffer, Integer.BYTES)];
+		StudentDictionary students = new StudentDictionary(studentIds.length);
+		for (int i = 0; i < studentIds.length; i++) studentIds[i] = students.intern(readString(buffer));
+
+		int numExams = readCount(buffer, 2 * Integer.BYTES);
+		List<Exam> exams = new ArrayList<>(numExams);
+		for (int e = 0; e < numExams; e++) {
+			int duration = buffer.getInt();
+			int[] examStudents = new int[readCount(buffer, Integer.BYTES)];
+			for (int i = 0; i < examStudents.length; i++) examStudents[i] = studentIds[buffer.getInt()];
+			Arrays.sort(examStudents);
+			exams.add(new Exam(e, duration, examStudents, students));
+		}
+
+		int numPeriods = readCount(buffer, 2 * Long.BYTES + 2 * Integer.BYTES);
+		List<Period> periods = new ArrayList<>(numPeriods);
+		for (int p = 0; p < numPeriods; p++) {
+			LocalDate date = LocalDate.ofEpochDay(buffer.getLong());
+			LocalTime time = LocalTime.ofNanoOfDay(buffer.getLong());
+			periods.add(new Period(p, date, time, buffer.getInt(), buffer.getInt()));
+		}
+
+		int numRooms = readCount(buffer, 2 * Integer.BYTES);
+		List<Room> rooms = new ArrayList<>(numRooms);
+		for (int r = 0; r < numRooms; r++) rooms.add(new Room(r, buffer.getInt(), buffer.getInt()));
+
+		int numPeriodHardConstraints = readCount(buffer, 3 * Integer.BYTES);
+		List<PeriodHardConstraint> periodHardConstraints = new ArrayList<>(numPeriodHardConstraints);
+		for (int c = 0; c < numPeriodHardConstraints; c++) {
+			int examOneNum = buffer.getInt();
+			String constraintType = readString(buffer);
+			periodHardConstraints.add(new PeriodHardConstraint(examOneNum, constraintType, buffer.getInt()));
+		}
+
+		int numRoomHardConstraints = readCount(buffer, 2 * Integer.BYTES);
+		List<RoomHardConstraint> roomHardConstraints = new ArrayList<>(numRoomHardConstraints);
+		for (int c = 0; c < numRoomHardConstraints; c++) {
+			int examNum = buffer.getInt();
+			roomHardConstraints.add(new RoomHardConstraint(examNum, readString(buffer)));
+		}
+
+		int numWeightings = readCount(buffer, 4 * Integer.BYTES);
+		List<InstitutionalWeighting> institutionalWeightings = new ArrayList<>(numWeightings);
+		for (int w = 0; w < numWeightings; w++) {
+			String type = readString(buffer);
+			int paramOne = buffer.getInt();
+			int paramTwo = buffer.getInt();
+			int paramThree = buffer.getInt();
+			institutionalWeightings.add(type.equals("FRONTLOAD")
+					? new InstitutionalWeighting(type, paramOne, paramTwo, paramThree)
+					: new InstitutionalWeighting(type, paramOne));
+		}
+
+		int numEntries = readCount(buffer, 2 * Integer.BYTES);
+		int[] offsets = readInts(buffer, numExams + 1);
+		int[] neighbours = readInts(buffer, numEntries);
+		int[] weights = readInts(buffer, numEntries);
+		checkClashGraph(offsets, neighbours, weights);
+		ClashGraph clashGraph = new ClashGraph(offsets, neighbours, weights);
+
+		return new ExamTimetablingProblem(exams, students, periods, rooms, periodHardConstraints, roomHardConstraints, institutionalWeightings, clashGraph, options);
+	}
+
+	/**
+	 * @throws IOException unless the offsets rise from 0 to the number of entries, and every entry is a positive weight
+	 *                     to another exam of the problem.
+	 */
+	private static void checkClashGraph(int[] offsets, int[] neighbours, int[] weights) throws IOException {
+		int numExams = offsets.length - 1;
+		if (offsets[0] != 0 || offsets[numExams] != neighbours.length)
+			throw new IOException("Snapshot is corrupt: the clash graph offsets run from " + offsets[0] + " to " + offsets[numExams] + " for " + neighbours.length + " entries.");
+		for (int e = 0; e < numExams; e++) {
+			if (offsets[e + 1] < offsets[e])
+				throw new IOException("Snapshot is corrupt: the clash graph offsets of exam " + e + " decrease.");
+			for (int k = offsets[e]; k < offsets[e + 1]; k++) {
+				if (neighbours[k] < 0 || neighbours[k] >= numExams || neighbours[k] == e || weights[k] <= 0)
+					throw new IOException("Snapshot is corrupt: exam " + e + " clashes with exam " + neighbours[k] + " with weight " + weights[k] + ".");
+			}
+		}
+	}
+
+	/**
+	 * Reads the number of items that follow, checking it against the bytes that remain, so that a corrupt count fails
+	 * before anything is allocated for it.
+	 *
+	 * @param itemBytes - the fewest bytes that each item takes.
+	 * @throws IOException if the count is negative or the items cannot fit in the rest of the snapshot.
+	 */
+	private static int readCount(ByteBuffer buffer, int itemBytes) throws IOException {
+		int count = buffer.getInt();
+		if (count < 0 || (long) count * itemBytes > buffer.remaining())
+			throw new IOException("Snapshot is truncated or corrupt: " + count + " items cannot fit in the remaining " + buffer.remaining() + " bytes.");
+		return count;
+	}
+
+	private static String readString(ByteBuffer buffer) throws IOException {
+		byte[] bytes = new byte[readCount(buffer, 1)];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static int[] readInts(ByteBuffer buffer, int count) throws IOException {
+		if ((long) count * Integer.BYTES > buffer.remaining())
+			throw new IOException("Snapshot is truncated or corrupt: " + count + " items cannot fit in the remaining " + buffer.remaining() + " bytes.");
+		int[] ints = new int[count];
+		buffer.asIntBuffer().get(ints);
+		buffer.position(buffer.position() + count * Integer.BYTES);
+		return ints;
+	}
+}
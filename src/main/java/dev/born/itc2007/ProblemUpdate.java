@@ -0,0 +1,81 @@
+package dev.born.itc2007;
+
+/**
+ * Models the result of building a ProblemEditor: the new version of a problem, along with where each exam, period and
+ * room of the editing session ended up in it, so that solutions to the previous version can be carried over and
+ * scored against the new one.
+ */
+public class ProblemUpdate {
+	/**
+	 * The version of the problem that the edits were made to.
+	 */
+	public final ExamTimetablingProblem previous;
+
+	/**
+	 * The new version of the problem.
+	 */
+	public final ExamTimetablingProblem problem;
+
+	private final int[] examNumbers;
+	private final int[] periodNumbers;
+	private final int[] roomNumbers;
+
+	ProblemUpdate(ExamTimetablingProblem previous, ExamTimetablingProblem problem, int[] examNumbers, int[] periodNumbers, int[] roomNumbers) {
+		this.previous = previous;
+		this.problem = problem;
+		this.examNumbers = examNumbers;
+		this.periodNumbers = periodNumbers;
+		this.roomNumbers = roomNumbers;
+	}
+
+	/**
+	 * @param exam - the exam number in the editing session, which is its number in the previous version for exams that
+	 *             were already there.
+	 * @return the exam number in the new version, or -1 if the exam was removed.
+	 */
+	public int examNumber(int exam) {
+		return examNumbers[exam];
+	}
+
+	/**
+	 * @param period - the period number in the editing session.
+	 * @return the period number in the new version, or -1 if the period was removed.
+	 */
+	public int periodNumber(int period) {
+		return periodNumbers[period];
+	}
+
+	/**
+	 * @param room - the room number in the editing session.
+	 * @return the room number in the new version, or -1 if the room was removed.
+	 */
+	public int roomNumber(int room) {
+		return roomNumbers[room];
+	}
+
+	/**
+	 * @param solution - a solution to the previous version.
+	 * @return the same bookings in the numbering of the new version. Bookings of removed exams, or in removed periods
+	 * or rooms, are dropped, so those exams and any added exams are not booked.
+	 */
+	public CompactSolution remap(CompactSolution solution) {
+		CompactSolution remapped = new CompactSolution(problem.exams.size());
+		for (int exam = 0; exam < solution.numExams(); exam++) {
+			if (!solution.isBooked(exam)) continue;
+			int newExam = examNumbers[exam];
+			int newPeriod = periodNumbers[solution.periodOf(exam)];
+			int newRoom = roomNumbers[solution.roomOf(exam)];
+			if (newExam != -1 && newPeriod != -1 && newRoom != -1) remapped.book(newExam, newPeriod, newRoom);
+		}
+		return remapped;
+	}
+
+	/**
+	 * @param solution - a solution to the previous version.
+	 * @return the same bookings as a solution to the new version, which can be scored or improved as usual. If an exam
+	 * is booked more than once, its first booking is used.
+	 */
+	public ExamTimetablingSolution remap(ExamTimetablingSolution solution) {
+		return remap(CompactSolution.fromSolution(solution)).toSolution(problem);
+	}
+}
@@ -6,6 +6,7 @@ package dev.born.itc2007;
 public class RoomHardConstraint {
 	public final int examNum;
 	public final String constraintType;
+	public final ConstraintType type;
 
 	/**
 	 * @param examNum        - the exam number of the exam to which the constraint applies.
@@ -17,5 +18,6 @@ public class RoomHardConstraint {
 
 		this.examNum = examNum;
 		this.constraintType = constraintType;
+		this.type = ConstraintType.ROOM_EXCLUSIVE;
 	}
 }
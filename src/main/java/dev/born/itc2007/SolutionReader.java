@@ -0,0 +1,62 @@
+package dev.born.itc2007;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a solution in the format written by ExamTimetablingSolution.toString(): one line per exam, in exam number
+ * order, holding the period number and room number of its booking separated by a comma. Whitespace and blank lines
+ * are ignored. Exams beyond the last line are left unbooked.
+ */
+class SolutionReader {
+	private static final int EOF = ByteTokenizer.EOF;
+
+	private final ByteTokenizer tokens;
+
+	/**
+	 * @param in - the stream to read the solution from. It does not need to be buffered.
+	 */
+	SolutionReader(InputStream in) {
+		this.tokens = new ByteTokenizer(in);
+	}
+
+	/**
+	 * @param problem - the problem that the solution solves.
+	 * @return the solution described by the stream.
+	 * @throws IOException if the stream could not be read, is not in the expected format, or books an exam, period or
+	 *                     room that the problem does not have.
+	 */
+	ExamTimetablingSolution read(ExamTimetablingProblem problem) throws IOException {
+		List<Booking> bookings = new ArrayList<>(problem.exams.size());
+		while (tokens.skipBlank() != EOF) {
+			int exam = bookings.size();
+			if (exam == problem.exams.size())
+				throw tokens.error("The solution books more than the " + problem.exams.size() + " exams of the problem");
+
+			int period = readInt();
+			tokens.expect(',');
+			int room = readInt();
+			tokens.endLine();
+			if (period < 0 || period >= problem.periods.size()) throw tokens.error("Period " + period + " does not exist");
+			if (room < 0 || room >= problem.rooms.size()) throw tokens.error("Room " + room + " does not exist");
+			bookings.add(new Booking(problem.exams.get(exam), problem.periods.get(period), problem.rooms.get(room)));
+		}
+		return new ExamTimetablingSolution(problem, bookings);
+	}
+
+	private int readInt() throws IOException {
+		int c = tokens.skipWhitespace();
+		if (c < '0' || c > '9') throw tokens.error("Expected a number but found " + ByteTokenizer.describe(c));
+
+		int value = 0;
+		while (c >= '0' && c <= '9') {
+			if (value > (Integer.MAX_VALUE - (c - '0')) / 10) throw tokens.error("Number is too large");
+			value = value * 10 + (c - '0');
+			tokens.skip();
+			c = tokens.peek();
+		}
+		return value;
+	}
+}
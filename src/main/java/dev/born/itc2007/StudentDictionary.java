@@ -0,0 +1,142 @@
+package dev.born.itc2007;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Assigns each distinct student a dense integer id, in the order students are first seen, so that enrolments can be
+ * stored and compared as primitives. Every exam of a loaded problem refers to students through the same dictionary,
+ * so equal ids mean the same student.
+ * <p>
+ * Dictionaries only grow while a problem is being loaded, and are then only read, so they may be shared between
+ * threads once loading has finished.
+ */
+public class StudentDictionary {
+	private String[] names;
+	private int size;
+
+	// Open addressing table of id + 1 for each student, or 0 for an empty slot.
+	private int[] slots;
+
+	/**
+	 * Creates an empty dictionary for exams built by hand, which should all be given the same dictionary so that
+	 * their student ids can be compared. The dictionary of a loaded problem must not be given to new exams, since it
+	 * may already be read by other threads.
+	 */
+	public StudentDictionary() {
+		this(1 << 10);
+	}
+
+	/**
+	 * @param expectedStudents - the number of students the dictionary is sized for. It grows beyond that if needed.
+	 */
+	StudentDictionary(int expectedStudents) {
+		int capacity = Math.max(1, expectedStudents);
+		names = new String[capacity];
+		slots = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+	}
+
+	/**
+	 * @return a dictionary that gives every student the same id as this one, and can then grow without changing it.
+	 */
+	StudentDictionary copy() {
+		StudentDictionary copy = new StudentDictionary(1);
+		copy.names = Arrays.copyOf(names, names.length);
+		copy.size = size;
+		copy.slots = slots.clone();
+		return copy;
+	}
+
+	/**
+	 * @return the number of distinct students.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param id - the id of a student.
+	 * @return the identifier the student was given in the problem.
+	 */
+	public String name(int id) {
+		if (id < 0 || id >= size) throw new IndexOutOfBoundsException("Student " + id + " does not exist.");
+		return names[id];
+	}
+
+	/**
+	 * @param name - the identifier of a student.
+	 * @return the id of the student, or -1 if no exam enrols them.
+	 */
+	public int id(String name) {
+		int mask = slots.length - 1;
+		for (int slot = spread(name.hashCode()) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+			if (names[slots[slot] - 1].equals(name)) return slots[slot] - 1;
+		}
+		return -1;
+	}
+
+	/**
+	 * @param name - the identifier of a student.
+	 * @return the id of the student, which is assigned if the student has not been seen before.
+	 */
+	int intern(String name) {
+		int mask = slots.length - 1;
+		int slot = spread(name.hashCode()) & mask;
+		for (; slots[slot] != 0; slot = (slot + 1) & mask) {
+			if (names[slots[slot] - 1].equals(name)) return slots[slot] - 1;
+		}
+		return add(slot, name);
+	}
+
+	/**
+	 * Interns a student identifier held as bytes, without creating a string unless the student is new. Each byte is
+	 * one ISO-8859-1 character, so identifiers that are not ASCII, such as UTF-8 names, keep every byte and match the
+	 * same string passed to intern(String).
+	 *
+	 * @param bytes  - the buffer holding the identifier.
+	 * @param length - the number of bytes of the identifier, starting from the beginning of the buffer.
+	 * @return the id of the student, which is assigned if the student has not been seen before.
+	 */
+	int intern(byte[] bytes, int length) {
+		// The same hash as String.hashCode() of the ISO-8859-1 string, so both forms of intern find the same slot.
+		int hash = 0;
+		for (int i = 0; i < length; i++) hash = 31 * hash + (bytes[i] & 0xFF);
+
+		int mask = slots.length - 1;
+		int slot = spread(hash) & mask;
+		for (; slots[slot] != 0; slot = (slot + 1) & mask) {
+			if (matches(names[slots[slot] - 1], bytes, length)) return slots[slot] - 1;
+		}
+		return add(slot, new String(bytes, 0, length, StandardCharsets.ISO_8859_1));
+	}
+
+	private static boolean matches(String name, byte[] bytes, int length) {
+		if (name.length() != length) return false;
+		for (int i = 0; i < length; i++) {
+			if (name.charAt(i) != (bytes[i] & 0xFF)) return false;
+		}
+		return true;
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	private int add(int slot, String name) {
+		if (size == names.length) names = Arrays.copyOf(names, size * 2);
+		names[size] = name;
+		slots[slot] = ++size;
+		if (size * 2 > slots.length) growSlots();
+		return size - 1;
+	}
+
+	private void growSlots() {
+		slots = new int[slots.length * 2];
+		int mask = slots.length - 1;
+		for (int id = 0; id < size; id++) {
+			int slot = spread(names[id].hashCode()) & mask;
+			while (slots[slot] != 0) slot = (slot + 1) & mask;
+			slots[slot] = id + 1;
+		}
+	}
+}
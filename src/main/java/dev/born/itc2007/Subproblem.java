@@ -0,0 +1,28 @@
+package dev.born.itc2007;
+
+/**
+ * Models one part of a Decomposition: a problem holding a subset of the exams and rooms of the original problem and
+ * all of its periods, along with the numbers that its exams and rooms have in the original problem.
+ */
+public class Subproblem {
+	/**
+	 * The problem made of the exams and rooms of this part, numbered from 0.
+	 */
+	public final ExamTimetablingProblem problem;
+
+	/**
+	 * The number in the original problem of each exam, indexed by its number in this part, in ascending order.
+	 */
+	public final int[] exams;
+
+	/**
+	 * The number in the original problem of each room, indexed by its number in this part, in ascending order.
+	 */
+	public final int[] rooms;
+
+	Subproblem(ExamTimetablingProblem problem, int[] exams, int[] rooms) {
+		this.problem = problem;
+		this.exams = exams;
+		this.rooms = rooms;
+	}
+}
@@ -0,0 +1,22 @@
+package dev.born.itc2007.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded when the clash graph or dense clash matrix of a problem has been built.
+ */
+@Name("dev.born.itc2007.ClashGraph")
+@Label("Clash Graph Build")
+@Category("ITC2007")
+public class ClashGraphEvent extends jdk.jfr.Event {
+	@Label("Exams")
+	public int exams;
+
+	@Label("Clashing Pairs")
+	public int clashingPairs;
+
+	@Label("Dense Matrix")
+	public boolean matrix;
+}
@@ -0,0 +1,54 @@
+package dev.born.itc2007.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Models a count of events, such as moves evaluated by a search, and the rate at which they occur. Adding to the count
+ * does not contend between threads.
+ */
+public class Counter {
+	/**
+	 * The name that the counter is reported under.
+	 */
+	public final String name;
+
+	private final LongAdder total = new LongAdder();
+	private volatile long startNanos = System.nanoTime();
+
+	/**
+	 * @param name - the name that the counter is reported under.
+	 */
+	public Counter(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @param amount - the number of events to add.
+	 */
+	public void add(long amount) {
+		total.add(amount);
+	}
+
+	/**
+	 * @return the number of events since the counter was created or last reset.
+	 */
+	public long total() {
+		return total.sum();
+	}
+
+	/**
+	 * @return the mean number of events per second since the counter was created or last reset.
+	 */
+	public double perSecond() {
+		long elapsedNanos = System.nanoTime() - startNanos;
+		return elapsedNanos <= 0 ? 0 : total.sum() * 1e9 / elapsedNanos;
+	}
+
+	/**
+	 * Sets the count to zero and restarts the rate.
+	 */
+	public void reset() {
+		total.reset();
+		startNanos = System.nanoTime();
+	}
+}
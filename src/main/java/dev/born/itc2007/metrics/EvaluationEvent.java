@@ -0,0 +1,24 @@
+package dev.born.itc2007.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded when a solution has been fully evaluated.
+ */
+@Name("dev.born.itc2007.Evaluation")
+@Label("Solution Evaluation")
+@Category("ITC2007")
+@StackTrace(false)
+public class EvaluationEvent extends jdk.jfr.Event {
+	@Label("Bookings")
+	public int bookings;
+
+	@Label("Hard")
+	public int hard;
+
+	@Label("Soft")
+	public int soft;
+}
@@ -0,0 +1,100 @@
+package dev.born.itc2007.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Models the distribution of the durations of an operation, in power of two buckets of nanoseconds. Recording takes a
+ * few atomic increments and no locks, so it can be shared by every thread.
+ */
+public class LatencyHistogram {
+	private static final int NUM_BUCKETS = 64;
+
+	/**
+	 * The name that the histogram is reported under.
+	 */
+	public final String name;
+
+	/**
+	 * The number of durations in each bucket. Bucket i holds durations below 2^i nanoseconds that are not in a lower
+	 * bucket.
+	 */
+	private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * @param name - the name that the histogram is reported under.
+	 */
+	public LatencyHistogram(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @param nanos - the duration to record.
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) nanos = 0;
+		buckets.incrementAndGet(Math.min(NUM_BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos)));
+		count.increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulate(nanos);
+	}
+
+	/**
+	 * @param startNanos - the value of System.nanoTime() when the operation started.
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * @return the number of durations recorded.
+	 */
+	public long count() {
+		return count.sum();
+	}
+
+	/**
+	 * @return the mean duration recorded, in nanoseconds, or 0 if none has been.
+	 */
+	public double meanNanos() {
+		long n = count.sum();
+		return n == 0 ? 0 : (double) totalNanos.sum() / n;
+	}
+
+	/**
+	 * @return the longest duration recorded, in nanoseconds.
+	 */
+	public long maxNanos() {
+		return maxNanos.get();
+	}
+
+	/**
+	 * @param quantile - the fraction of durations, between 0 and 1, that the result should not be below.
+	 * @return an upper bound on the duration at the given quantile, in nanoseconds, accurate to a factor of two.
+	 */
+	public long percentileNanos(double quantile) {
+		long total = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) total += buckets.get(i);
+		long target = Math.max(1, (long) Math.ceil(quantile * total));
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			seen += buckets.get(i);
+			if (seen >= target) return Math.min(maxNanos(), i == NUM_BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1);
+		}
+		return 0;
+	}
+
+	/**
+	 * Discards every recorded duration.
+	 */
+	public void reset() {
+		for (int i = 0; i < NUM_BUCKETS; i++) buckets.set(i, 0);
+		count.reset();
+		totalNanos.reset();
+		maxNanos.reset();
+	}
+}
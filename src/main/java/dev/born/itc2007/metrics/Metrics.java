@@ -0,0 +1,117 @@
+package dev.born.itc2007.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds the counters and latency histograms recorded while loading, evaluating and searching. Recording is off by
+ * default, in which case instrumented code only reads a single flag; it can be turned on with setEnabled() or by
+ * starting the JVM with -Ditc2007.metrics=true.
+ * <p>
+ * The JFR events in this package are committed independently, whenever a flight recording has them enabled.
+ */
+public class Metrics {
+	private static volatile boolean enabled = Boolean.getBoolean("itc2007.metrics");
+
+	/**
+	 * The time taken to parse a problem file.
+	 */
+	public static final LatencyHistogram PARSE = new LatencyHistogram("parse");
+
+	/**
+	 * The time taken to load a problem snapshot.
+	 */
+	public static final LatencyHistogram SNAPSHOT_LOAD = new LatencyHistogram("snapshotLoad");
+
+	/**
+	 * The time taken to build the clash graph of a problem.
+	 */
+	public static final LatencyHistogram CLASH_GRAPH_BUILD = new LatencyHistogram("clashGraphBuild");
+
+	/**
+	 * The time taken to build the dense clash matrix of a problem.
+	 */
+	public static final LatencyHistogram CLASH_MATRIX_BUILD = new LatencyHistogram("clashMatrixBuild");
+
+	/**
+	 * The time taken to fully evaluate a solution.
+	 */
+	public static final LatencyHistogram EVALUATION = new LatencyHistogram("evaluation");
+
+	/**
+	 * The part of an evaluation spent on the penalties of bookings: conflicts, proximity, occupancy, durations,
+	 * frontload and room and period penalties.
+	 */
+	public static final LatencyHistogram EVALUATION_BOOKINGS = new LatencyHistogram("evaluation.bookings");
+
+	/**
+	 * The part of an evaluation spent on period hard constraints.
+	 */
+	public static final LatencyHistogram EVALUATION_PERIOD_CONSTRAINTS = new LatencyHistogram("evaluation.periodConstraints");
+
+	/**
+	 * The part of an evaluation spent on room hard constraints.
+	 */
+	public static final LatencyHistogram EVALUATION_ROOM_CONSTRAINTS = new LatencyHistogram("evaluation.roomConstraints");
+
+	/**
+	 * The number of moves evaluated by every search.
+	 */
+	public static final Counter MOVES_EVALUATED = new Counter("search.movesEvaluated");
+
+	/**
+	 * The number of moves accepted by every search.
+	 */
+	public static final Counter MOVES_ACCEPTED = new Counter("search.movesAccepted");
+
+	private static final List<LatencyHistogram> HISTOGRAMS = List.of(PARSE, SNAPSHOT_LOAD, CLASH_GRAPH_BUILD, CLASH_MATRIX_BUILD,
+			EVALUATION, EVALUATION_BOOKINGS, EVALUATION_PERIOD_CONSTRAINTS, EVALUATION_ROOM_CONSTRAINTS);
+	private static final List<Counter> COUNTERS = List.of(MOVES_EVALUATED, MOVES_ACCEPTED);
+
+	private Metrics() {
+	}
+
+	/**
+	 * @return whether counters and histograms are being recorded.
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @param enabled - whether counters and histograms should be recorded.
+	 */
+	public static void setEnabled(boolean enabled) {
+		Metrics.enabled = enabled;
+	}
+
+	/**
+	 * Discards everything recorded so far and restarts the rates of counters.
+	 */
+	public static void reset() {
+		for (LatencyHistogram histogram : HISTOGRAMS) histogram.reset();
+		for (Counter counter : COUNTERS) counter.reset();
+	}
+
+	/**
+	 * @return the current value of every metric, keyed by name, in a form suited to exporting to a dashboard. Each
+	 * histogram contributes count, meanNanos, p50Nanos, p99Nanos and maxNanos entries, and each counter contributes
+	 * total and perSecond entries.
+	 */
+	public static Map<String, Number> snapshot() {
+		Map<String, Number> values = new LinkedHashMap<>();
+		for (LatencyHistogram histogram : HISTOGRAMS) {
+			values.put(histogram.name + ".count", histogram.count());
+			values.put(histogram.name + ".meanNanos", histogram.meanNanos());
+			values.put(histogram.name + ".p50Nanos", histogram.percentileNanos(0.5));
+			values.put(histogram.name + ".p99Nanos", histogram.percentileNanos(0.99));
+			values.put(histogram.name + ".maxNanos", histogram.maxNanos());
+		}
+		for (Counter counter : COUNTERS) {
+			values.put(counter.name + ".total", counter.total());
+			values.put(counter.name + ".perSecond", counter.perSecond());
+		}
+		return values;
+	}
+}
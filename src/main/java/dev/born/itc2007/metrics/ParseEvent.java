@@ -0,0 +1,22 @@
+package dev.born.itc2007.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded when a problem file has been parsed.
+ */
+@Name("dev.born.itc2007.Parse")
+@Label("Problem Parse")
+@Category("ITC2007")
+public class ParseEvent extends jdk.jfr.Event {
+	@Label("Exams")
+	public int exams;
+
+	@Label("Periods")
+	public int periods;
+
+	@Label("Rooms")
+	public int rooms;
+}
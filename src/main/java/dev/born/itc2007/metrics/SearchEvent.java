@@ -0,0 +1,30 @@
+package dev.born.itc2007.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded when a search, or one phase of it, has finished.
+ */
+@Name("dev.born.itc2007.Search")
+@Label("Search")
+@Category("ITC2007")
+@StackTrace(false)
+public class SearchEvent extends jdk.jfr.Event {
+	@Label("Search")
+	public String search;
+
+	@Label("Moves Evaluated")
+	public long movesEvaluated;
+
+	@Label("Moves Accepted")
+	public long movesAccepted;
+
+	@Label("Hard")
+	public int hard;
+
+	@Label("Soft")
+	public int soft;
+}
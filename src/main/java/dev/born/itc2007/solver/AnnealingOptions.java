@@ -0,0 +1,133 @@
+package dev.born.itc2007.solver;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Models the parameters of a simulated annealing search. Each with method checks its values and throws an
+ * IllegalArgumentException for ones that no search could use.
+ */
+public class AnnealingOptions {
+	/**
+	 * The options used when none are specified: a one minute search that spends up to a third of its time repairing
+	 * hard constraint violations.
+	 */
+	public static final AnnealingOptions DEFAULT = new AnnealingOptions(0, Duration.ofMinutes(1), Long.MAX_VALUE, 1.0 / 3, 0.2, 20, 0.05, CoolingSchedule.GEOMETRIC);
+
+	/**
+	 * The seed of the random number generator.
+	 */
+	public final long seed;
+
+	/**
+	 * The wall-clock budget of the search.
+	 */
+	public final Duration timeLimit;
+
+	/**
+	 * The maximum number of moves evaluated by the search.
+	 */
+	public final long maxMoves;
+
+	/**
+	 * The largest fraction of the budget spent repairing hard constraint violations before soft constraint violations
+	 * are optimised. Repair stops early once no hard constraint violations remain.
+	 */
+	public final double repairFraction;
+
+	/**
+	 * The probability that a move swaps two exams rather than moving one exam to another period and room.
+	 */
+	public final double swapProbability;
+
+	/**
+	 * The temperature at the start of each phase of the search.
+	 */
+	public final double initialTemperature;
+
+	/**
+	 * The temperature at the end of each phase of the search.
+	 */
+	public final double finalTemperature;
+
+	/**
+	 * How the temperature falls from its initial to its final value.
+	 */
+	public final CoolingSchedule coolingSchedule;
+
+	private AnnealingOptions(long seed, Duration timeLimit, long maxMoves, double repairFraction, double swapProbability, double initialTemperature, double finalTemperature, CoolingSchedule coolingSchedule) {
+		this.seed = seed;
+		this.timeLimit = timeLimit;
+		this.maxMoves = maxMoves;
+		this.repairFraction = repairFraction;
+		this.swapProbability = swapProbability;
+		this.initialTemperature = initialTemperature;
+		this.finalTemperature = finalTemperature;
+		this.coolingSchedule = coolingSchedule;
+	}
+
+	/**
+	 * @param seed - the seed of the random number generator.
+	 * @return a copy of these options with the given seed.
+	 */
+	public AnnealingOptions withSeed(long seed) {
+		return new AnnealingOptions(seed, timeLimit, maxMoves, repairFraction, swapProbability, initialTemperature, finalTemperature, coolingSchedule);
+	}
+
+	/**
+	 * @param timeLimit - the wall-clock budget of the search, which must not be negative.
+	 * @return a copy of these options with the given time limit.
+	 */
+	public AnnealingOptions withTimeLimit(Duration timeLimit) {
+		if (timeLimit.isNegative()) throw new IllegalArgumentException("The time limit must not be negative but was " + timeLimit + ".");
+		return new AnnealingOptions(seed, timeLimit, maxMoves, repairFraction, swapProbability, initialTemperature, finalTemperature, coolingSchedule);
+	}
+
+	/**
+	 * @param maxMoves - the maximum number of moves evaluated by the search, which must not be negative.
+	 * @return a copy of these options with the given move limit.
+	 */
+	public AnnealingOptions withMaxMoves(long maxMoves) {
+		if (maxMoves < 0) throw new IllegalArgumentException("The number of moves must not be negative but was " + maxMoves + ".");
+		return new AnnealingOptions(seed, timeLimit, maxMoves, repairFraction, swapProbability, initialTemperature, finalTemperature, coolingSchedule);
+	}
+
+	/**
+	 * @param repairFraction - the largest fraction of the budget spent repairing hard constraint violations, from 0
+	 *                       to 1.
+	 * @return a copy of these options with the given repair fraction.
+	 */
+	public AnnealingOptions withRepairFraction(double repairFraction) {
+		requireFraction("repair fraction", repairFraction);
+		return new AnnealingOptions(seed, timeLimit, maxMoves, repairFraction, swapProbability, initialTemperature, finalTemperature, coolingSchedule);
+	}
+
+	/**
+	 * @param swapProbability - the probability that a move swaps two exams, from 0 to 1.
+	 * @return a copy of these options with the given swap probability.
+	 */
+	public AnnealingOptions withSwapProbability(double swapProbability) {
+		requireFraction("swap probability", swapProbability);
+		return new AnnealingOptions(seed, timeLimit, maxMoves, repairFraction, swapProbability, initialTemperature, finalTemperature, coolingSchedule);
+	}
+
+	/**
+	 * @param initialTemperature - the temperature at the start of each phase, which must be positive and finite.
+	 * @param finalTemperature   - the temperature at the end of each phase, which must be positive and no higher than
+	 *                           the initial temperature.
+	 * @param coolingSchedule    - how the temperature falls between the two.
+	 * @return a copy of these options with the given cooling schedule.
+	 */
+	public AnnealingOptions withCooling(double initialTemperature, double finalTemperature, CoolingSchedule coolingSchedule) {
+		if (!(initialTemperature > 0 && initialTemperature < Double.POSITIVE_INFINITY))
+			throw new IllegalArgumentException("The initial temperature must be positive and finite but was " + initialTemperature + ".");
+		if (!(finalTemperature > 0 && finalTemperature <= initialTemperature))
+			throw new IllegalArgumentException("The final temperature must be positive and at most the initial temperature of " + initialTemperature + " but was " + finalTemperature + ".");
+		Objects.requireNonNull(coolingSchedule, "coolingSchedule");
+		return new AnnealingOptions(seed, timeLimit, maxMoves, repairFraction, swapProbability, initialTemperature, finalTemperature, coolingSchedule);
+	}
+
+	private static void requireFraction(String name, double value) {
+		if (!(value >= 0 && value <= 1)) throw new IllegalArgumentException("The " + name + " must be between 0 and 1 but was " + value + ".");
+	}
+}
@@ -0,0 +1,34 @@
+package dev.born.itc2007.solver;
+
+/**
+ * Models how the temperature of simulated annealing falls from its initial to its final value as the search runs.
+ */
+public enum CoolingSchedule {
+	/**
+	 * The temperature falls by the same factor in every step of progress.
+	 */
+	GEOMETRIC {
+		@Override
+		public double temperature(double initialTemperature, double finalTemperature, double progress) {
+			return initialTemperature * Math.pow(finalTemperature / initialTemperature, progress);
+		}
+	},
+
+	/**
+	 * The temperature falls by the same amount in every step of progress.
+	 */
+	LINEAR {
+		@Override
+		public double temperature(double initialTemperature, double finalTemperature, double progress) {
+			return initialTemperature + (finalTemperature - initialTemperature) * progress;
+		}
+	};
+
+	/**
+	 * @param initialTemperature - the temperature at the start of the search.
+	 * @param finalTemperature   - the temperature at the end of the search.
+	 * @param progress           - the fraction of the search that has been completed, between 0 and 1.
+	 * @return the temperature at the given progress.
+	 */
+	public abstract double temperature(double initialTemperature, double finalTemperature, double progress);
+}
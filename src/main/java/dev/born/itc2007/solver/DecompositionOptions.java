@@ -0,0 +1,96 @@
+package dev.born.itc2007.solver;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Models the parameters of a DecompositionSolver. Each with method checks its value and throws an
+ * IllegalArgumentException for one that no solve could use.
+ */
+public class DecompositionOptions {
+	/**
+	 * The options used when none are specified: one part per available processor, solved at the same time for 80% of
+	 * one minute, with the rest spent improving the merged solution.
+	 */
+	public static final DecompositionOptions DEFAULT = new DecompositionOptions(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors(), Duration.ofMinutes(1), 0.2, AnnealingOptions.DEFAULT);
+
+	/**
+	 * The number of parts solved at the same time.
+	 */
+	public final int parallelism;
+
+	/**
+	 * The largest number of parts the problem is split into.
+	 */
+	public final int maxParts;
+
+	/**
+	 * The wall-clock budget of the whole solve.
+	 */
+	public final Duration timeLimit;
+
+	/**
+	 * The fraction of the time left after decomposing the problem that is spent improving the merged solution as a
+	 * whole, which repairs clashes between exams in different parts.
+	 */
+	public final double polishFraction;
+
+	/**
+	 * The options of the search of each part and of the merged solution. Their time limit is replaced by a share of
+	 * the time limit of the solve, and the seed of each part is offset by its index.
+	 */
+	public final AnnealingOptions annealing;
+
+	private DecompositionOptions(int parallelism, int maxParts, Duration timeLimit, double polishFraction, AnnealingOptions annealing) {
+		this.parallelism = parallelism;
+		this.maxParts = maxParts;
+		this.timeLimit = timeLimit;
+		this.polishFraction = polishFraction;
+		this.annealing = annealing;
+	}
+
+	/**
+	 * @param parallelism - the number of parts solved at the same time, at least 1.
+	 * @return a copy of these options with the given parallelism.
+	 */
+	public DecompositionOptions withParallelism(int parallelism) {
+		if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1 but was " + parallelism + ".");
+		return new DecompositionOptions(parallelism, maxParts, timeLimit, polishFraction, annealing);
+	}
+
+	/**
+	 * @param maxParts - the largest number of parts the problem is split into, at least 1.
+	 * @return a copy of these options with the given number of parts.
+	 */
+	public DecompositionOptions withMaxParts(int maxParts) {
+		if (maxParts < 1) throw new IllegalArgumentException("The number of parts must be at least 1 but was " + maxParts + ".");
+		return new DecompositionOptions(parallelism, maxParts, timeLimit, polishFraction, annealing);
+	}
+
+	/**
+	 * @param timeLimit - the wall-clock budget of the whole solve, which must not be negative.
+	 * @return a copy of these options with the given time limit.
+	 */
+	public DecompositionOptions withTimeLimit(Duration timeLimit) {
+		if (timeLimit.isNegative()) throw new IllegalArgumentException("The time limit must not be negative but was " + timeLimit + ".");
+		return new DecompositionOptions(parallelism, maxParts, timeLimit, polishFraction, annealing);
+	}
+
+	/**
+	 * @param polishFraction - the fraction of the time limit spent improving the merged solution, from 0 to 1.
+	 * @return a copy of these options with the given polish fraction.
+	 */
+	public DecompositionOptions withPolishFraction(double polishFraction) {
+		if (!(polishFraction >= 0 && polishFraction <= 1))
+			throw new IllegalArgumentException("The polish fraction must be between 0 and 1 but was " + polishFraction + ".");
+		return new DecompositionOptions(parallelism, maxParts, timeLimit, polishFraction, annealing);
+	}
+
+	/**
+	 * @param annealing - the options of the search of each part and of the merged solution.
+	 * @return a copy of these options with the given annealing options.
+	 */
+	public DecompositionOptions withAnnealing(AnnealingOptions annealing) {
+		return new DecompositionOptions(parallelism, maxParts, timeLimit, polishFraction, Objects.requireNonNull(annealing, "annealing"));
+	}
+}
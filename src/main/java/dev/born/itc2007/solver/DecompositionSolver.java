@@ -0,0 +1,104 @@
+package dev.born.itc2007.solver;
+
+import dev.born.itc2007.CompactSolution;
+import dev.born.itc2007.Decomposition;
+import dev.born.itc2007.ExamTimetablingProblem;
+import dev.born.itc2007.ExamTimetablingSolution;
+import dev.born.itc2007.Subproblem;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Solves a problem by splitting it into parts with a Decomposition, solving the parts in parallel with simulated
+ * annealing, and merging their solutions. The merged solution is then improved as a whole for the rest of the time
+ * limit, which repairs clashes between exams in different parts and lets exams trade rooms across parts. The parts
+ * share the time left after decomposing, and when there are more parts than threads each part gets an even share of
+ * it, so the solve ends within the time limit.
+ * <p>
+ * A problem that cannot be split is solved with a single simulated annealing search for the whole time limit.
+ */
+public class DecompositionSolver {
+	private final ExamTimetablingProblem problem;
+	private final DecompositionOptions options;
+	private Decomposition decomposition;
+	private ProgressPublisher publisher;
+
+	/**
+	 * @param problem - the problem to solve.
+	 * @param options - the parameters of the solve.
+	 */
+	public DecompositionSolver(ExamTimetablingProblem problem, DecompositionOptions options) {
+		this.problem = problem;
+		this.options = options;
+	}
+
+	/**
+	 * @param publisher - the publisher that new best solutions are published to, or null to publish nothing. The
+	 *                  parts are solved silently, since their solutions only cover some of the exams, and progress is
+	 *                  published by the search that improves the merged solution, ending with its final event. If no
+	 *                  time is left to improve it, the merged solution is published as the final event.
+	 */
+	public void setProgressPublisher(ProgressPublisher publisher) {
+		this.publisher = publisher;
+	}
+
+	/**
+	 * @return the best solution found.
+	 */
+	public ExamTimetablingSolution solve() {
+		long start = System.nanoTime();
+		long deadline = start + options.timeLimit.toNanos();
+		decomposition = Decomposition.of(problem, options.maxParts);
+		List<Subproblem> subproblems = decomposition.subproblems;
+		if (subproblems.size() == 1) {
+			SimulatedAnnealing annealing = new SimulatedAnnealing(problem, options.annealing.withTimeLimit(remaining(deadline)));
+			annealing.setProgressPublisher(publisher);
+			return annealing.solve();
+		}
+
+		// The decomposition itself takes time, so the parts share what is left rather than the whole limit. Parts
+		// beyond the parallelism wait for a thread, so each round of parts gets an even share.
+		int numRounds = (subproblems.size() + options.parallelism - 1) / options.parallelism;
+		Duration partTimeLimit = Duration.ofNanos((long) (remaining(deadline).toNanos() * (1 - options.polishFraction) / numRounds));
+		List<ExamTimetablingSolution> solutions = new ArrayList<>();
+		ForkJoinPool pool = new ForkJoinPool(options.parallelism);
+		try {
+			List<ForkJoinTask<ExamTimetablingSolution>> searches = new ArrayList<>();
+			for (int i = 0; i < subproblems.size(); i++) {
+				ExamTimetablingProblem subproblem = subproblems.get(i).problem;
+				AnnealingOptions searchOptions = options.annealing.withSeed(options.annealing.seed + i).withTimeLimit(partTimeLimit);
+				searches.add(pool.submit(() -> new SimulatedAnnealing(subproblem, searchOptions).solve()));
+			}
+			for (ForkJoinTask<ExamTimetablingSolution> search : searches) solutions.add(search.join());
+		} finally {
+			pool.shutdownNow();
+		}
+
+		ExamTimetablingSolution merged = decomposition.merge(solutions);
+		Duration polishTimeLimit = remaining(deadline);
+		if (polishTimeLimit.isZero()) {
+			if (publisher != null) {
+				publisher.publish(new ProgressEvent("decomposition", problem, CompactSolution.fromSolution(merged), merged.evaluationReport().cost(), Duration.ofNanos(System.nanoTime() - start), 0, 0, true));
+			}
+			return merged;
+		}
+		SimulatedAnnealing annealing = new SimulatedAnnealing(problem, options.annealing.withTimeLimit(polishTimeLimit));
+		annealing.setProgressPublisher(publisher);
+		return annealing.solve(merged);
+	}
+
+	/**
+	 * @return the decomposition of the last run.
+	 */
+	public Decomposition getDecomposition() {
+		return decomposition;
+	}
+
+	private static Duration remaining(long deadline) {
+		return Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
+	}
+}
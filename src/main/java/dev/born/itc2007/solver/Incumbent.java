@@ -0,0 +1,66 @@
+package dev.born.itc2007.solver;
+
+import dev.born.itc2007.CompactSolution;
+import dev.born.itc2007.Cost;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Models the best solution found so far by a group of searches running in parallel. Searches offer their own best
+ * solutions and adopt the incumbent when it is better. The incumbent is swapped by compare-and-set, so no search ever
+ * waits on another.
+ */
+public class Incumbent {
+	private final AtomicReference<Entry> entry = new AtomicReference<>();
+
+	/**
+	 * A solution paired with its cost. Solutions held here are never modified.
+	 */
+	static final class Entry {
+		final CompactSolution solution;
+		final Cost cost;
+
+		Entry(CompactSolution solution, Cost cost) {
+			this.solution = solution;
+			this.cost = cost;
+		}
+	}
+
+	/**
+	 * @param solution - a solution that the caller will not modify afterwards.
+	 * @param cost     - the cost of the solution.
+	 * @return true if the solution replaced the incumbent, or false if the incumbent was at least as good.
+	 */
+	boolean offer(CompactSolution solution, Cost cost) {
+		Entry offered = new Entry(solution, cost);
+		Entry current;
+		do {
+			current = entry.get();
+			if (current != null && !cost.isBetterThan(current.cost)) return false;
+		} while (!entry.compareAndSet(current, offered));
+		return true;
+	}
+
+	/**
+	 * @return the incumbent, or null if no solution has been offered.
+	 */
+	Entry get() {
+		return entry.get();
+	}
+
+	/**
+	 * @return the cost of the incumbent, or null if no solution has been offered.
+	 */
+	public Cost cost() {
+		Entry current = entry.get();
+		return current == null ? null : current.cost;
+	}
+
+	/**
+	 * @return a copy of the incumbent, or null if no solution has been offered.
+	 */
+	public CompactSolution solution() {
+		Entry current = entry.get();
+		return current == null ? null : current.solution.copy();
+	}
+}
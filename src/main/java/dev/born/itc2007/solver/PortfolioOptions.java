@@ -0,0 +1,95 @@
+package dev.born.itc2007.solver;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Models the parameters of a portfolio of simulated annealing searches run in parallel. Each with method checks its
+ * values and throws an IllegalArgumentException for ones that no portfolio could use.
+ */
+public class PortfolioOptions {
+	/**
+	 * The options used when none are specified: one search per available processor for one minute, sharing the best
+	 * solution every second.
+	 */
+	public static final PortfolioOptions DEFAULT = new PortfolioOptions(Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().availableProcessors(), Duration.ofMinutes(1), Duration.ofSeconds(1), AnnealingOptions.DEFAULT);
+
+	/**
+	 * The number of searches run at the same time.
+	 */
+	public final int parallelism;
+
+	/**
+	 * The number of searches in the portfolio. Searches beyond the parallelism run in later rounds, with the time limit
+	 * split evenly between the rounds, and each round starting from the best solution of the rounds before it.
+	 */
+	public final int numSearches;
+
+	/**
+	 * The wall-clock budget of the whole portfolio.
+	 */
+	public final Duration timeLimit;
+
+	/**
+	 * How often each search offers its best solution to the others and adopts theirs if it is better.
+	 */
+	public final Duration syncInterval;
+
+	/**
+	 * The options that the parameters of each search are varied from. Their time limit is replaced by the time limit
+	 * of the portfolio.
+	 */
+	public final AnnealingOptions annealing;
+
+	private PortfolioOptions(int parallelism, int numSearches, Duration timeLimit, Duration syncInterval, AnnealingOptions annealing) {
+		this.parallelism = parallelism;
+		this.numSearches = numSearches;
+		this.timeLimit = timeLimit;
+		this.syncInterval = syncInterval;
+		this.annealing = annealing;
+	}
+
+	/**
+	 * @param parallelism - the number of searches run at the same time, at least 1.
+	 * @return a copy of these options with the given parallelism.
+	 */
+	public PortfolioOptions withParallelism(int parallelism) {
+		if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1 but was " + parallelism + ".");
+		return new PortfolioOptions(parallelism, numSearches, timeLimit, syncInterval, annealing);
+	}
+
+	/**
+	 * @param numSearches - the number of searches in the portfolio, at least 1.
+	 * @return a copy of these options with the given number of searches.
+	 */
+	public PortfolioOptions withNumSearches(int numSearches) {
+		if (numSearches < 1) throw new IllegalArgumentException("A portfolio needs at least 1 search but was given " + numSearches + ".");
+		return new PortfolioOptions(parallelism, numSearches, timeLimit, syncInterval, annealing);
+	}
+
+	/**
+	 * @param timeLimit - the wall-clock budget of the whole portfolio, which must not be negative.
+	 * @return a copy of these options with the given time limit.
+	 */
+	public PortfolioOptions withTimeLimit(Duration timeLimit) {
+		if (timeLimit.isNegative()) throw new IllegalArgumentException("The time limit must not be negative but was " + timeLimit + ".");
+		return new PortfolioOptions(parallelism, numSearches, timeLimit, syncInterval, annealing);
+	}
+
+	/**
+	 * @param syncInterval - how often searches share their best solutions, which must not be negative.
+	 * @return a copy of these options with the given sync interval.
+	 */
+	public PortfolioOptions withSyncInterval(Duration syncInterval) {
+		if (syncInterval.isNegative()) throw new IllegalArgumentException("The sync interval must not be negative but was " + syncInterval + ".");
+		return new PortfolioOptions(parallelism, numSearches, timeLimit, syncInterval, annealing);
+	}
+
+	/**
+	 * @param annealing - the options that the parameters of each search are varied from.
+	 * @return a copy of these options with the given annealing options.
+	 */
+	public PortfolioOptions withAnnealing(AnnealingOptions annealing) {
+		return new PortfolioOptions(parallelism, numSearches, timeLimit, syncInterval, Objects.requireNonNull(annealing, "annealing"));
+	}
+}
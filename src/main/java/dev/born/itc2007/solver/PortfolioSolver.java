@@ -0,0 +1,151 @@
+package dev.born.itc2007.solver;
+
+import dev.born.itc2007.ExamTimetablingProblem;
+import dev.born.itc2007.ExamTimetablingSolution;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs a portfolio of simulated annealing searches in parallel on a work-stealing pool. Each search has its own seed,
+ * and its temperature and swap probability are varied from the base options, so the searches explore differently.
+ * Every sync interval, each search offers its best solution to a shared Incumbent and continues from the incumbent
+ * if another search has found something better.
+ * <p>
+ * The searches run in rounds of at most parallelism searches, and the time limit is split evenly between the rounds,
+ * so every search gets a share of the time however many searches the portfolio has. Each round after the first starts
+ * from the best solution of the rounds before it. The last round ends at the deadline of the portfolio, so it returns
+ * within its time limit. Searches that would start after the deadline are skipped, except the first, which always
+ * runs so that a solution with every exam booked is returned even when the time limit has already passed.
+ */
+public class PortfolioSolver {
+	private static final double[] TEMPERATURE_SCALES = {1, 0.5, 2, 0.25};
+	private static final double[] SWAP_PROBABILITY_OFFSETS = {0, -0.1, 0.2};
+
+	private final ExamTimetablingProblem problem;
+	private final PortfolioOptions options;
+	private Incumbent incumbent;
+	private long evaluatedMoves;
+	private long acceptedMoves;
+	private ProgressPublisher publisher;
+
+	/**
+	 * @param problem - the problem to solve.
+	 * @param options - the parameters of the portfolio.
+	 */
+	public PortfolioSolver(ExamTimetablingProblem problem, PortfolioOptions options) {
+		this.problem = problem;
+		this.options = options;
+	}
+
+	/**
+	 * @param publisher - the publisher that new best solutions are published to, or null to publish nothing. Every
+	 *                  search publishes to it, and the portfolio publishes a final event when they have all finished.
+	 */
+	public void setProgressPublisher(ProgressPublisher publisher) {
+		this.publisher = publisher;
+	}
+
+	/**
+	 * @return the best solution found, with every search starting from a timetable built by a
+	 * SaturationDegreeConstructor.
+	 */
+	public ExamTimetablingSolution solve() {
+		return solve(new SaturationDegreeConstructor(problem).construct());
+	}
+
+	/**
+	 * @param initial - the solution every search starts from. Exams that it does not book are booked at random.
+	 * @return the best solution found by any search, which books every exam even if no time was left to search.
+	 */
+	public ExamTimetablingSolution solve(ExamTimetablingSolution initial) {
+		long start = System.nanoTime();
+		long deadline = start + options.timeLimit.toNanos();
+		incumbent = new Incumbent();
+
+		int numRounds = (options.numSearches + options.parallelism - 1) / options.parallelism;
+		evaluatedMoves = 0;
+		acceptedMoves = 0;
+		ForkJoinPool pool = new ForkJoinPool(options.parallelism);
+		try {
+			ExamTimetablingSolution roundStart = initial;
+			for (int round = 0; round < numRounds; round++) {
+				long roundDeadline = round == numRounds - 1 ? deadline : start + options.timeLimit.toNanos() / numRounds * (round + 1);
+				List<ForkJoinTask<SimulatedAnnealing>> searches = new ArrayList<>();
+				for (int i = round * options.parallelism; i < Math.min(options.numSearches, (round + 1) * options.parallelism); i++) {
+					AnnealingOptions searchOptions = searchOptions(i);
+					boolean isFirst = i == 0;
+					ExamTimetablingSolution searchStart = roundStart;
+					searches.add(pool.submit(() -> search(searchOptions, searchStart, roundDeadline, isFirst)));
+				}
+
+				for (ForkJoinTask<SimulatedAnnealing> search : searches) {
+					SimulatedAnnealing annealing = search.join();
+					if (annealing == null) continue;
+					evaluatedMoves += annealing.getEvaluatedMoves();
+					acceptedMoves += annealing.getAcceptedMoves();
+				}
+				if (round < numRounds - 1) roundStart = incumbent.get().solution.toSolution(problem);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		Incumbent.Entry best = incumbent.get();
+		if (publisher != null)
+			publisher.publish(new ProgressEvent("portfolio", problem, best.solution, best.cost, Duration.ofNanos(System.nanoTime() - start), evaluatedMoves, acceptedMoves, true));
+		return best.solution.toSolution(problem);
+	}
+
+	/**
+	 * @return the incumbent of the last run, which holds its best solution and cost.
+	 */
+	public Incumbent getIncumbent() {
+		return incumbent;
+	}
+
+	/**
+	 * @return the number of moves evaluated by all searches of the last run.
+	 */
+	public long getEvaluatedMoves() {
+		return evaluatedMoves;
+	}
+
+	/**
+	 * @return the number of moves accepted by all searches of the last run.
+	 */
+	public long getAcceptedMoves() {
+		return acceptedMoves;
+	}
+
+	/**
+	 * @param index - the index of the search in the portfolio.
+	 * @return the options of the search. The first search uses the base options unchanged.
+	 */
+	AnnealingOptions searchOptions(int index) {
+		AnnealingOptions base = options.annealing;
+		double temperatureScale = TEMPERATURE_SCALES[index % TEMPERATURE_SCALES.length];
+		double swapProbability = base.swapProbability + SWAP_PROBABILITY_OFFSETS[index / TEMPERATURE_SCALES.length % SWAP_PROBABILITY_OFFSETS.length];
+		return base.withSeed(base.seed + index)
+				.withSwapProbability(Math.min(1, Math.max(0, swapProbability)))
+				.withCooling(base.initialTemperature * temperatureScale, base.finalTemperature * temperatureScale, base.coolingSchedule);
+	}
+
+	/**
+	 * @param isFirst - whether this is the first search, which runs even after the deadline, with no time to search,
+	 *                so that the incumbent always holds a solution.
+	 * @return the search after it has run, or null if the deadline passed before it started.
+	 */
+	private SimulatedAnnealing search(AnnealingOptions searchOptions, ExamTimetablingSolution initial, long deadline, boolean isFirst) {
+		long remaining = deadline - System.nanoTime();
+		if (remaining <= 0 && !isFirst) return null;
+
+		SimulatedAnnealing annealing = new SimulatedAnnealing(problem, searchOptions.withTimeLimit(Duration.ofNanos(Math.max(0, remaining))), incumbent, options.syncInterval);
+		annealing.setProgressPublisher(publisher);
+		annealing.solve(initial);
+		return annealing;
+	}
+}
@@ -0,0 +1,109 @@
+package dev.born.itc2007.solver;
+
+import dev.born.itc2007.CompactSolution;
+import dev.born.itc2007.Cost;
+import dev.born.itc2007.EvaluationReport;
+import dev.born.itc2007.ExamTimetablingProblem;
+import dev.born.itc2007.ExamTimetablingSolution;
+
+import java.time.Duration;
+
+/**
+ * Models the progress of a search when it publishes a new best solution, or when it finishes. The solution is a
+ * snapshot that the search never modifies, and its full breakdown is only evaluated when a subscriber asks for it, so
+ * the search thread pays for no more than a copy of the timetable.
+ */
+public class ProgressEvent {
+	/**
+	 * The name of the search or phase that published the event, such as "annealing.optimise" or "portfolio".
+	 */
+	public final String search;
+
+	/**
+	 * The time since the search started.
+	 */
+	public final Duration elapsed;
+
+	/**
+	 * The cost of the best solution found so far.
+	 */
+	public final Cost cost;
+
+	/**
+	 * The number of moves evaluated since the search started.
+	 */
+	public final long evaluatedMoves;
+
+	/**
+	 * The number of moves accepted since the search started.
+	 */
+	public final long acceptedMoves;
+
+	/**
+	 * The number of moves evaluated per second since the search started.
+	 */
+	public final double movesPerSecond;
+
+	/**
+	 * The fraction of evaluated moves that were accepted, or 0 if no moves have been evaluated.
+	 */
+	public final double acceptanceRate;
+
+	/**
+	 * Whether the search has finished, in which case this is the last event of the run and the solution is the one it
+	 * returns.
+	 */
+	public final boolean isFinal;
+
+	private final ExamTimetablingProblem problem;
+	private final CompactSolution best;
+	private volatile EvaluationReport breakdown;
+
+	/**
+	 * @param search         - the name of the search or phase publishing the event.
+	 * @param problem        - the problem being solved.
+	 * @param best           - the best solution found so far, which must not be modified afterwards.
+	 * @param cost           - the cost of the best solution.
+	 * @param elapsed        - the time since the search started.
+	 * @param evaluatedMoves - the number of moves evaluated since the search started.
+	 * @param acceptedMoves  - the number of moves accepted since the search started.
+	 * @param isFinal        - whether the search has finished.
+	 */
+	public ProgressEvent(String search, ExamTimetablingProblem problem, CompactSolution best, Cost cost, Duration elapsed,
+						 long evaluatedMoves, long acceptedMoves, boolean isFinal) {
+		this.search = search;
+		this.problem = problem;
+		this.best = best;
+		this.cost = cost;
+		this.elapsed = elapsed;
+		this.evaluatedMoves = evaluatedMoves;
+		this.acceptedMoves = acceptedMoves;
+		this.isFinal = isFinal;
+		long nanos = elapsed.toNanos();
+		this.movesPerSecond = nanos > 0 ? evaluatedMoves * 1e9 / nanos : 0;
+		this.acceptanceRate = evaluatedMoves > 0 ? (double) acceptedMoves / evaluatedMoves : 0;
+	}
+
+	/**
+	 * @return the best solution found so far.
+	 */
+	public ExamTimetablingSolution solution() {
+		return best.toSolution(problem);
+	}
+
+	/**
+	 * @return every hard and soft constraint violation of the best solution. It is evaluated on the first call, on the
+	 * calling thread, and cached.
+	 */
+	public EvaluationReport breakdown() {
+		EvaluationReport report = breakdown;
+		if (report == null) breakdown = report = solution().evaluationReport();
+		return report;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s %s: %s, %.0f moves/s, %.1f%% accepted%s", search, elapsed, cost, movesPerSecond,
+				acceptanceRate * 100, isFinal ? " (final)" : "");
+	}
+}
@@ -0,0 +1,50 @@
+package dev.born.itc2007.solver;
+
+import java.time.Duration;
+
+/**
+ * Models how often a ProgressPublisher passes progress on to its subscribers, and how much it holds for each of them.
+ * Each with method checks its values and throws an IllegalArgumentException for ones that no publisher could use.
+ */
+public class ProgressOptions {
+	/**
+	 * The options used when none are specified: at most one event per second, holding the 16 most recent events for
+	 * each subscriber.
+	 */
+	public static final ProgressOptions DEFAULT = new ProgressOptions(Duration.ofSeconds(1), 16);
+
+	/**
+	 * The shortest time between two new-best events. Improvements found sooner are published at the first clock check
+	 * after the interval has passed, so the latest best is never lost, only delayed.
+	 */
+	public final Duration minInterval;
+
+	/**
+	 * The number of events held for a subscriber that has not requested them yet. When the buffer is full, the oldest
+	 * event is dropped to make room for the newest.
+	 */
+	public final int bufferSize;
+
+	private ProgressOptions(Duration minInterval, int bufferSize) {
+		this.minInterval = minInterval;
+		this.bufferSize = bufferSize;
+	}
+
+	/**
+	 * @param minInterval - the shortest time between two new-best events, not negative.
+	 * @return a copy of these options with the given interval.
+	 */
+	public ProgressOptions withMinInterval(Duration minInterval) {
+		if (minInterval.isNegative()) throw new IllegalArgumentException("The minimum interval must not be negative but was " + minInterval + ".");
+		return new ProgressOptions(minInterval, bufferSize);
+	}
+
+	/**
+	 * @param bufferSize - the number of events held for each subscriber, at least 1.
+	 * @return a copy of these options with the given buffer size.
+	 */
+	public ProgressOptions withBufferSize(int bufferSize) {
+		if (bufferSize < 1) throw new IllegalArgumentException("Buffer size must be at least 1 but was " + bufferSize + ".");
+		return new ProgressOptions(minInterval, bufferSize);
+	}
+}
@@ -0,0 +1,218 @@
+package dev.born.itc2007.solver;
+
+import dev.born.itc2007.Cost;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Publishes the progress of searches to any number of subscribers. Searches check isDue at the points where they
+ * already read the clock, and publish a ProgressEvent only when they have improved on the last published cost and the
+ * minimum interval has passed, so a search with a publisher runs at the same speed as one without.
+ * <p>
+ * Publishing never blocks the search. Each subscriber has its own bounded buffer, from which events are delivered on
+ * the executor as the subscriber requests them. When a subscriber falls behind and its buffer is full, its oldest
+ * event is dropped, so a slow subscriber sees the latest progress and never holds up the search or other subscribers.
+ * <p>
+ * One publisher may be shared by several searches, such as those of a portfolio, in which case the interval and the
+ * last published cost are shared too. A final event resets the last published cost, so the publisher can be reused
+ * for another run.
+ */
+public class ProgressPublisher implements Flow.Publisher<ProgressEvent>, AutoCloseable {
+	private final ProgressOptions options;
+	private final Executor executor;
+	private final long minIntervalNanos;
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+	private final AtomicLong nextEvent;
+	private final AtomicReference<Cost> publishedCost = new AtomicReference<>();
+	private final AtomicLong droppedEvents = new AtomicLong();
+	private volatile boolean isClosed;
+
+	/**
+	 * @param options - how often events are published, and how many are held for each subscriber.
+	 */
+	public ProgressPublisher(ProgressOptions options) {
+		this(options, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param options  - how often events are published, and how many are held for each subscriber.
+	 * @param executor - the executor that delivers events to subscribers. Subscribers that block, for example on I/O,
+	 *                 should be given an executor with a thread for each of them, so they do not delay one another.
+	 */
+	public ProgressPublisher(ProgressOptions options, Executor executor) {
+		this.options = options;
+		this.executor = executor;
+		this.minIntervalNanos = options.minInterval.toNanos();
+		this.nextEvent = new AtomicLong(System.nanoTime());
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super ProgressEvent> subscriber) {
+		Subscription subscription = new Subscription(subscriber);
+		subscriber.onSubscribe(subscription);
+		subscriptions.add(subscription);
+		if (isClosed) subscription.complete();
+	}
+
+	/**
+	 * Checks whether a search should publish its best solution, and if so claims the interval for it, so that the
+	 * caller must then publish an event.
+	 *
+	 * @param best - the cost of the best solution found by the search.
+	 * @param now  - the current System.nanoTime().
+	 * @return true if the best solution is better than the last one published and the minimum interval has passed.
+	 */
+	public boolean isDue(Cost best, long now) {
+		Cost published = publishedCost.get();
+		if (published != null && !best.isBetterThan(published)) return false;
+		long next = nextEvent.get();
+		return now - next >= 0 && nextEvent.compareAndSet(next, now + minIntervalNanos);
+	}
+
+	/**
+	 * Offers an event to every subscriber without waiting for any of them. Final events are published whether or not
+	 * they are due.
+	 *
+	 * @param event - the event to publish.
+	 */
+	public void publish(ProgressEvent event) {
+		if (event.isFinal) publishedCost.set(null);
+		else publishedCost.accumulateAndGet(event.cost, (published, cost) -> published == null || cost.isBetterThan(published) ? cost : published);
+		for (Subscription subscription : subscriptions) subscription.offer(event);
+	}
+
+	/**
+	 * @return the number of events dropped because a subscriber's buffer was full.
+	 */
+	public long getDroppedEvents() {
+		return droppedEvents.get();
+	}
+
+	/**
+	 * Completes every subscription once its buffered events have been delivered. Events published afterwards are
+	 * ignored.
+	 */
+	@Override
+	public void close() {
+		isClosed = true;
+		for (Subscription subscription : subscriptions) subscription.complete();
+	}
+
+	/**
+	 * Holds the events for one subscriber, and delivers them on the executor, one task at a time, as they are
+	 * requested.
+	 */
+	private final class Subscription implements Flow.Subscription {
+		private final Flow.Subscriber<? super ProgressEvent> subscriber;
+		private final ArrayDeque<ProgressEvent> buffer = new ArrayDeque<>();
+		private final AtomicBoolean isDraining = new AtomicBoolean();
+		private long demand;
+		private boolean isCompleted;
+		private boolean isCancelled;
+		private boolean isTerminated;
+
+		Subscription(Flow.Subscriber<? super ProgressEvent> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			synchronized (this) {
+				if (isCancelled) return;
+				if (n <= 0) {
+					isCancelled = true;
+					buffer.clear();
+				} else {
+					demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+				}
+			}
+			if (n <= 0) {
+				subscriptions.remove(this);
+				executor.execute(() -> subscriber.onError(new IllegalArgumentException("Requested " + n + " events")));
+				return;
+			}
+			drain();
+		}
+
+		@Override
+		public void cancel() {
+			synchronized (this) {
+				isCancelled = true;
+				buffer.clear();
+			}
+			subscriptions.remove(this);
+		}
+
+		void offer(ProgressEvent event) {
+			synchronized (this) {
+				if (isCancelled || isCompleted) return;
+				if (buffer.size() == options.bufferSize) {
+					buffer.pollFirst();
+					droppedEvents.incrementAndGet();
+				}
+				buffer.addLast(event);
+			}
+			drain();
+		}
+
+		void complete() {
+			synchronized (this) {
+				isCompleted = true;
+			}
+			drain();
+		}
+
+		/**
+		 * Schedules delivery unless a delivery task is already running, which will pick up whatever is pending.
+		 */
+		private void drain() {
+			if (isDraining.compareAndSet(false, true)) executor.execute(this::deliver);
+		}
+
+		private void deliver() {
+			while (true) {
+				ProgressEvent event = null;
+				boolean isCompleting = false;
+				synchronized (this) {
+					if (isCancelled || isTerminated) break;
+					if (demand > 0 && !buffer.isEmpty()) {
+						event = buffer.pollFirst();
+						demand--;
+					} else if (isCompleted && buffer.isEmpty()) {
+						isTerminated = true;
+						isCompleting = true;
+					} else {
+						break;
+					}
+				}
+				if (isCompleting) {
+					subscriptions.remove(this);
+					subscriber.onComplete();
+					break;
+				}
+				try {
+					subscriber.onNext(event);
+				} catch (RuntimeException e) {
+					cancel();
+					subscriber.onError(e);
+					break;
+				}
+			}
+			isDraining.set(false);
+			if (hasPending()) drain();
+		}
+
+		private synchronized boolean hasPending() {
+			if (isCancelled || isTerminated) return false;
+			return (demand > 0 && !buffer.isEmpty()) || (isCompleted && buffer.isEmpty());
+		}
+	}
+}
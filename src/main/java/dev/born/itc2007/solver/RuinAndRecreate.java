@@ -0,0 +1,477 @@
+package dev.born.itc2007.solver;
+
+import dev.born.itc2007.ClashGraph;
+import dev.born.itc2007.CompactSolution;
+import dev.born.itc2007.ConstraintIndex;
+import dev.born.itc2007.Cost;
+import dev.born.itc2007.ExamDomains;
+import dev.born.itc2007.ExamTimetablingProblem;
+import dev.born.itc2007.ExamTimetablingSolution;
+import dev.born.itc2007.MutableSolution;
+import dev.born.itc2007.Period;
+import dev.born.itc2007.metrics.Metrics;
+import dev.born.itc2007.metrics.SearchEvent;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntPredicate;
+
+/**
+ * Searches for a good timetable by large neighbourhood search, for instances where single exam moves stall. Each step
+ * removes a block of related exams chosen by a RuinStrategy, then books them again one at a time, hardest first, in
+ * the period and room that add the least cost. A few exams per step take their second best booking instead, which
+ * gives a randomised limited discrepancy search around the greedy timetable. The step is kept if the cost, hard
+ * constraint violations first, is no worse than before, and undone otherwise.
+ * <p>
+ * Several workers run in parallel on a work-stealing pool, each choosing and rebuilding its own blocks on its own
+ * MutableSolution. Every sync interval, each worker offers its best solution to a shared Incumbent and continues from
+ * the incumbent if another worker has found something better.
+ */
+public class RuinAndRecreate {
+	private static final int BEST_FIT_ROOMS = 2;
+	private static final int STEPS_PER_CLOCK_CHECK = 16;
+
+	private final ExamTimetablingProblem problem;
+	private final ExamDomains domains;
+	private final RuinAndRecreateOptions options;
+	private final RuinStrategy[] strategies = RuinStrategy.values();
+
+	/**
+	 * The position of each exam in the order in which removed exams are booked again.
+	 */
+	private final int[] insertionRank;
+	private final int[] examAtRank;
+
+	private final int numDays;
+
+	private Incumbent incumbent;
+	private long evaluatedMoves;
+	private long acceptedMoves;
+	private long solveStart;
+	private ProgressPublisher publisher;
+
+	/**
+	 * @param problem - the problem to solve.
+	 * @param options - the parameters of the search.
+	 */
+	public RuinAndRecreate(ExamTimetablingProblem problem, RuinAndRecreateOptions options) {
+		this.problem = problem;
+		this.domains = problem.domains;
+		this.options = options;
+
+		// Exams with the fewest periods to choose from go first, then those with the most clashing enrolments.
+		int numExams = problem.exams.size();
+		ClashGraph clashGraph = problem.clashGraph;
+		long[] clashes = new long[numExams];
+		for (int e = 0; e < numExams; e++) {
+			for (int k = clashGraph.offsets[e]; k < clashGraph.offsets[e + 1]; k++) clashes[e] += clashGraph.weights[k];
+		}
+		Integer[] order = new Integer[numExams];
+		for (int e = 0; e < numExams; e++) order[e] = e;
+		Arrays.sort(order, (e1, e2) -> {
+			if (domains.periodCount(e1) != domains.periodCount(e2)) return Integer.compare(domains.periodCount(e1), domains.periodCount(e2));
+			if (clashes[e1] != clashes[e2]) return Long.compare(clashes[e2], clashes[e1]);
+			return Integer.compare(e1, e2);
+		});
+		this.insertionRank = new int[numExams];
+		this.examAtRank = new int[numExams];
+		for (int i = 0; i < numExams; i++) {
+			insertionRank[order[i]] = i;
+			examAtRank[i] = order[i];
+		}
+
+		int numDays = 0;
+		for (Period period : problem.periods) numDays = Math.max(numDays, problem.dayIndex(period.number) + 1);
+		this.numDays = numDays;
+	}
+
+	/**
+	 * @param publisher - the publisher that new best solutions are published to, or null to publish nothing. Every
+	 *                  worker publishes to it, and a final event is published when they have all finished.
+	 */
+	public void setProgressPublisher(ProgressPublisher publisher) {
+		this.publisher = publisher;
+	}
+
+	/**
+	 * @return the best solution found, with every worker starting from a timetable built by a
+	 * SaturationDegreeConstructor.
+	 */
+	public ExamTimetablingSolution solve() {
+		return solve(new SaturationDegreeConstructor(problem).construct());
+	}
+
+	/**
+	 * @param initial - the solution every worker starts from. Exams that it does not book are booked at random.
+	 * @return the best solution found by any worker.
+	 */
+	public ExamTimetablingSolution solve(ExamTimetablingSolution initial) {
+		solveStart = System.nanoTime();
+		long deadline = solveStart + options.timeLimit.toNanos();
+		incumbent = new Incumbent();
+
+		ForkJoinPool pool = new ForkJoinPool(options.parallelism);
+		try {
+			List<ForkJoinTask<Worker>> workers = new ArrayList<>();
+			for (int i = 0; i < options.parallelism; i++) {
+				long seed = options.seed + i;
+				workers.add(pool.submit(() -> {
+					Worker worker = new Worker(initial, seed);
+					worker.search(deadline);
+					return worker;
+				}));
+			}
+
+			evaluatedMoves = 0;
+			acceptedMoves = 0;
+			for (ForkJoinTask<Worker> task : workers) {
+				Worker worker = task.join();
+				evaluatedMoves += worker.evaluatedMoves;
+				acceptedMoves += worker.acceptedMoves;
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		Incumbent.Entry best = incumbent.get();
+		if (best == null) return initial;
+		if (publisher != null)
+			publisher.publish(new ProgressEvent("ruinAndRecreate", problem, best.solution, best.cost, Duration.ofNanos(System.nanoTime() - solveStart), evaluatedMoves, acceptedMoves, true));
+		return best.solution.toSolution(problem);
+	}
+
+	/**
+	 * @return the incumbent of the last run, which holds its best solution and cost.
+	 */
+	public Incumbent getIncumbent() {
+		return incumbent;
+	}
+
+	/**
+	 * @return the number of ruin and recreate steps tried by all workers of the last run. Each step counts as one move,
+	 * so that the moves accepted are counted in the same unit.
+	 */
+	public long getEvaluatedMoves() {
+		return evaluatedMoves;
+	}
+
+	/**
+	 * @return the number of ruin and recreate steps that all workers of the last run kept.
+	 */
+	public long getAcceptedMoves() {
+		return acceptedMoves;
+	}
+
+	/**
+	 * Ruins and recreates its own copy of the timetable. Only the incumbent is shared with other workers.
+	 */
+	private final class Worker {
+		private final SplittableRandom random;
+		private final MutableSolution solution;
+		private final long syncIntervalNanos = options.syncInterval.toNanos();
+
+		private Cost cost;
+		private Cost bestCost;
+		private CompactSolution best;
+		private long evaluatedMoves;
+		private long acceptedMoves;
+		private long reportedEvaluatedMoves;
+		private long reportedAcceptedMoves;
+
+		/**
+		 * The exams removed by the current step, and a stamp marking each exam that has been added to them.
+		 */
+		private int[] ruined = new int[0];
+		private int numRuined;
+		private final int[] ruinedStamp;
+		private int stamp;
+		private final int[] queue;
+
+		/**
+		 * Scratch space for recreating: the room each ruined exam had, the insertion ranks of the ruined exams, the
+		 * periods of the exam being booked and the rooms it is tried in.
+		 */
+		private final int[] previousRoom;
+		private int[] ranks = new int[0];
+		private final int[] periods;
+		private final int[] candidateRooms = new int[BEST_FIT_ROOMS + 2];
+
+		Worker(ExamTimetablingSolution initial, long seed) {
+			this.random = new SplittableRandom(seed);
+			this.solution = new MutableSolution(initial);
+			for (int exam = 0; exam < problem.exams.size(); exam++) {
+				if (solution.periodOf(exam) == -1)
+					solution.assign(exam, domains.randomPeriod(exam, random), domains.randomRoom(exam, random));
+			}
+			solution.commit();
+			this.cost = solution.cost();
+			this.bestCost = cost;
+			this.best = solution.toCompactSolution();
+			this.ruinedStamp = new int[problem.exams.size()];
+			this.queue = new int[problem.exams.size()];
+			this.previousRoom = new int[problem.exams.size()];
+			this.periods = new int[problem.periods.size()];
+		}
+
+		void search(long deadline) {
+			SearchEvent event = new SearchEvent();
+			event.begin();
+			long nextSync = System.nanoTime() + syncIntervalNanos;
+			incumbent.offer(best, bestCost);
+
+			int numExams = problem.exams.size();
+			int minSize = Math.max(1, Math.min(options.minRuinSize, numExams));
+			int maxSize = Math.max(minSize, Math.min(options.maxRuinSize, numExams));
+			while (numExams > 0) {
+				if (evaluatedMoves % STEPS_PER_CLOCK_CHECK == 0) {
+					long now = System.nanoTime();
+					if (now >= deadline) break;
+					if (Metrics.isEnabled()) reportMoves();
+					if (now >= nextSync) {
+						share();
+						nextSync = now + syncIntervalNanos;
+					}
+					if (publisher != null && publisher.isDue(bestCost, now))
+						publisher.publish(new ProgressEvent("ruinAndRecreate", problem, best, bestCost, Duration.ofNanos(now - solveStart), evaluatedMoves, acceptedMoves, false));
+				}
+
+				ruin(strategies[random.nextInt(strategies.length)], minSize + random.nextInt(maxSize - minSize + 1));
+				int mark = solution.mark();
+				recreate();
+				evaluatedMoves++;
+
+				Cost newCost = solution.cost();
+				if (cost.isBetterThan(newCost)) {
+					solution.rollback(mark);
+				} else {
+					cost = newCost;
+					acceptedMoves++;
+					if (cost.isBetterThan(bestCost)) {
+						bestCost = cost;
+						best = solution.toCompactSolution();
+					}
+				}
+				solution.commit();
+			}
+
+			incumbent.offer(best, bestCost);
+			if (Metrics.isEnabled()) reportMoves();
+			if (event.shouldCommit()) {
+				event.search = "ruinAndRecreate";
+				event.movesEvaluated = evaluatedMoves;
+				event.movesAccepted = acceptedMoves;
+				event.hard = bestCost.hard;
+				event.soft = bestCost.soft;
+				event.commit();
+			}
+		}
+
+		/**
+		 * Chooses the exams to remove, falling back to clash neighbours if the strategy finds none.
+		 */
+		private void ruin(RuinStrategy strategy, int size) {
+			if (ruined.length < size) {
+				ruined = new int[size];
+				ranks = new int[size];
+			}
+			numRuined = 0;
+			stamp++;
+			switch (strategy) {
+				case DAY:
+					int day = random.nextInt(Math.max(1, numDays));
+					sample(exam -> problem.dayIndex(solution.periodOf(exam)) == day, size);
+					break;
+				case ROOM:
+					int room = random.nextInt(problem.rooms.size());
+					sample(exam -> solution.roomOf(exam) == room, size);
+					break;
+				default:
+			}
+			if (numRuined == 0) clashNeighbours(size);
+		}
+
+		/**
+		 * Adds the neighbours of random exams in the clash graph and constraint index, breadth first, until the ruin
+		 * has the given size.
+		 */
+		private void clashNeighbours(int size) {
+			ClashGraph clashGraph = problem.clashGraph;
+			ConstraintIndex constraints = problem.constraintIndex;
+			while (numRuined < size) {
+				int seed = random.nextInt(problem.exams.size());
+				if (ruinedStamp[seed] == stamp) continue;
+				int head = 0;
+				int tail = 0;
+				add(seed);
+				queue[tail++] = seed;
+				while (head < tail && numRuined < size) {
+					int exam = queue[head++];
+					for (int k = constraints.offsets[exam]; k < constraints.offsets[exam + 1] && numRuined < size; k++) {
+						int c = constraints.constraints[k];
+						int other = constraints.examOne[c] == exam ? constraints.examTwo[c] : constraints.examOne[c];
+						if (ruinedStamp[other] == stamp) continue;
+						add(other);
+						queue[tail++] = other;
+					}
+					for (int k = clashGraph.offsets[exam]; k < clashGraph.offsets[exam + 1] && numRuined < size; k++) {
+						int other = clashGraph.neighbours[k];
+						if (ruinedStamp[other] == stamp) continue;
+						add(other);
+						queue[tail++] = other;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Adds a uniform sample of the given size of the exams that match, or all of them if there are fewer.
+		 */
+		private void sample(IntPredicate matches, int size) {
+			int numMatching = 0;
+			for (int exam = 0; exam < problem.exams.size(); exam++) {
+				if (solution.periodOf(exam) == -1 || !matches.test(exam)) continue;
+				queue[numMatching++] = exam;
+			}
+			for (int i = 0; i < Math.min(size, numMatching); i++) {
+				int j = i + random.nextInt(numMatching - i);
+				int exam = queue[j];
+				queue[j] = queue[i];
+				add(exam);
+			}
+		}
+
+		private void add(int exam) {
+			ruinedStamp[exam] = stamp;
+			ruined[numRuined++] = exam;
+		}
+
+		/**
+		 * Removes the ruined exams and books them again, hardest first. Each booking is the best of the allowed
+		 * periods, paired with the exam's previous room, the best fitting rooms and one other room at random.
+		 */
+		private void recreate() {
+			for (int i = 0; i < numRuined; i++) {
+				int exam = ruined[i];
+				previousRoom[exam] = solution.roomOf(exam);
+				solution.unassign(exam);
+				ranks[i] = insertionRank[exam];
+			}
+			Arrays.sort(ranks, 0, numRuined);
+
+			// Each of the exams still to book is equally likely to take one of the remaining discrepancies.
+			int discrepancies = Math.min(numRuined, random.nextInt(options.maxDiscrepancies + 1));
+			for (int k = 0; k < numRuined; k++) {
+				boolean isDiscrepancy = random.nextInt(numRuined - k) < discrepancies;
+				if (isDiscrepancy) discrepancies--;
+				int exam = examAtRank[ranks[k]];
+				book(exam, previousRoom[exam], isDiscrepancy);
+			}
+		}
+
+		private void book(int exam, int previousRoom, boolean isSecondBest) {
+			int numPeriods = domains.periods(exam, periods);
+			int numRooms = domains.roomCount(exam);
+			int numCandidateRooms = 0;
+			candidateRooms[numCandidateRooms++] = previousRoom;
+			for (int r = 0; r < Math.min(BEST_FIT_ROOMS, numRooms); r++) {
+				int room = domains.room(exam, r);
+				if (room != previousRoom) candidateRooms[numCandidateRooms++] = room;
+			}
+
+			// The random room is drawn from the rooms of the domain that are not candidates already.
+			int numOtherRooms = 0;
+			for (int r = 0; r < numRooms; r++) {
+				if (!isCandidate(domains.room(exam, r), numCandidateRooms)) numOtherRooms++;
+			}
+			if (numOtherRooms > 0) {
+				int other = random.nextInt(numOtherRooms);
+				for (int r = 0; ; r++) {
+					int room = domains.room(exam, r);
+					if (!isCandidate(room, numCandidateRooms) && other-- == 0) {
+						candidateRooms[numCandidateRooms++] = room;
+						break;
+					}
+				}
+			}
+
+			int bestHard = 0;
+			int bestSoft = 0;
+			int secondHard = 0;
+			int secondSoft = 0;
+			int bestPeriod = -1;
+			int bestRoom = -1;
+			int secondPeriod = -1;
+			int secondRoom = -1;
+			int offset = random.nextInt(numPeriods);
+			for (int i = 0; i < numPeriods; i++) {
+				int period = periods[(offset + i) % numPeriods];
+				for (int r = 0; r < numCandidateRooms; r++) {
+					solution.evaluateMove(exam, period, candidateRooms[r]);
+					int hard = solution.deltaHard();
+					int soft = solution.deltaSoft();
+					if (bestPeriod == -1 || Cost.compare(hard, soft, bestHard, bestSoft) < 0) {
+						secondHard = bestHard;
+						secondSoft = bestSoft;
+						secondPeriod = bestPeriod;
+						secondRoom = bestRoom;
+						bestHard = hard;
+						bestSoft = soft;
+						bestPeriod = period;
+						bestRoom = candidateRooms[r];
+					} else if (secondPeriod == -1 || Cost.compare(hard, soft, secondHard, secondSoft) < 0) {
+						secondHard = hard;
+						secondSoft = soft;
+						secondPeriod = period;
+						secondRoom = candidateRooms[r];
+					}
+				}
+			}
+			if (isSecondBest && secondPeriod != -1) solution.assign(exam, secondPeriod, secondRoom);
+			else solution.assign(exam, bestPeriod, bestRoom);
+		}
+
+		private boolean isCandidate(int room, int numCandidateRooms) {
+			for (int r = 0; r < numCandidateRooms; r++) {
+				if (candidateRooms[r] == room) return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Adds the steps tried and kept since the last report to the global move counters.
+		 */
+		private void reportMoves() {
+			Metrics.MOVES_EVALUATED.add(evaluatedMoves - reportedEvaluatedMoves);
+			Metrics.MOVES_ACCEPTED.add(acceptedMoves - reportedAcceptedMoves);
+			reportedEvaluatedMoves = evaluatedMoves;
+			reportedAcceptedMoves = acceptedMoves;
+		}
+
+		/**
+		 * Offers the best solution found to the incumbent if it is better, or continues from the incumbent if that is
+		 * better.
+		 */
+		private void share() {
+			Incumbent.Entry shared = incumbent.get();
+			if (shared == null || bestCost.isBetterThan(shared.cost)) {
+				incumbent.offer(best, bestCost);
+			} else if (shared.cost.isBetterThan(bestCost)) {
+				for (int exam = 0; exam < problem.exams.size(); exam++) {
+					int period = shared.solution.periodOf(exam);
+					int room = shared.solution.roomOf(exam);
+					if (period == -1 || (period == solution.periodOf(exam) && room == solution.roomOf(exam))) continue;
+					solution.move(exam, period, room);
+				}
+				solution.commit();
+				cost = solution.cost();
+				bestCost = cost;
+				best = shared.solution;
+			}
+		}
+	}
+}
@@ -0,0 +1,118 @@
+package dev.born.itc2007.solver;
+
+import java.time.Duration;
+
+/**
+ * Models the parameters of a RuinAndRecreate search. Each with method checks its values and throws an
+ * IllegalArgumentException for ones that no search could use.
+ */
+public class RuinAndRecreateOptions {
+	/**
+	 * The options used when none are specified: one worker per available processor for one minute, removing between 5
+	 * and 30 exams at a time and sharing the best solution every second.
+	 */
+	public static final RuinAndRecreateOptions DEFAULT = new RuinAndRecreateOptions(Runtime.getRuntime().availableProcessors(), Duration.ofMinutes(1), Duration.ofSeconds(1), 0, 5, 30, 2);
+
+	/**
+	 * The number of workers that ruin and recreate at the same time, each on its own copy of the timetable.
+	 */
+	public final int parallelism;
+
+	/**
+	 * The wall-clock budget of the whole search.
+	 */
+	public final Duration timeLimit;
+
+	/**
+	 * How often each worker offers its best solution to the others and adopts theirs if it is better.
+	 */
+	public final Duration syncInterval;
+
+	/**
+	 * The seed of the first worker. Each other worker adds its index to it.
+	 */
+	public final long seed;
+
+	/**
+	 * The fewest exams removed at a time.
+	 */
+	public final int minRuinSize;
+
+	/**
+	 * The most exams removed at a time.
+	 */
+	public final int maxRuinSize;
+
+	/**
+	 * The most exams per recreate that take their second best booking instead of their best.
+	 */
+	public final int maxDiscrepancies;
+
+	private RuinAndRecreateOptions(int parallelism, Duration timeLimit, Duration syncInterval, long seed, int minRuinSize, int maxRuinSize, int maxDiscrepancies) {
+		this.parallelism = parallelism;
+		this.timeLimit = timeLimit;
+		this.syncInterval = syncInterval;
+		this.seed = seed;
+		this.minRuinSize = minRuinSize;
+		this.maxRuinSize = maxRuinSize;
+		this.maxDiscrepancies = maxDiscrepancies;
+	}
+
+	/**
+	 * @param parallelism - the number of workers that ruin and recreate at the same time, at least 1.
+	 * @return a copy of these options with the given parallelism.
+	 */
+	public RuinAndRecreateOptions withParallelism(int parallelism) {
+		if (parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1 but was " + parallelism + ".");
+		return new RuinAndRecreateOptions(parallelism, timeLimit, syncInterval, seed, minRuinSize, maxRuinSize, maxDiscrepancies);
+	}
+
+	/**
+	 * @param timeLimit - the wall-clock budget of the whole search, which must not be negative.
+	 * @return a copy of these options with the given time limit.
+	 */
+	public RuinAndRecreateOptions withTimeLimit(Duration timeLimit) {
+		if (timeLimit.isNegative()) throw new IllegalArgumentException("The time limit must not be negative but was " + timeLimit + ".");
+		return new RuinAndRecreateOptions(parallelism, timeLimit, syncInterval, seed, minRuinSize, maxRuinSize, maxDiscrepancies);
+	}
+
+	/**
+	 * @param syncInterval - how often workers share their best solutions, which must not be negative.
+	 * @return a copy of these options with the given sync interval.
+	 */
+	public RuinAndRecreateOptions withSyncInterval(Duration syncInterval) {
+		if (syncInterval.isNegative()) throw new IllegalArgumentException("The sync interval must not be negative but was " + syncInterval + ".");
+		return new RuinAndRecreateOptions(parallelism, timeLimit, syncInterval, seed, minRuinSize, maxRuinSize, maxDiscrepancies);
+	}
+
+	/**
+	 * @param seed - the seed of the first worker.
+	 * @return a copy of these options with the given seed.
+	 */
+	public RuinAndRecreateOptions withSeed(long seed) {
+		return new RuinAndRecreateOptions(parallelism, timeLimit, syncInterval, seed, minRuinSize, maxRuinSize, maxDiscrepancies);
+	}
+
+	/**
+	 * @param minRuinSize - the fewest exams removed at a time, at least 1.
+	 * @param maxRuinSize - the most exams removed at a time, at least minRuinSize.
+	 * @return a copy of these options with the given ruin sizes.
+	 */
+	public RuinAndRecreateOptions withRuinSize(int minRuinSize, int maxRuinSize) {
+		if (minRuinSize < 1) throw new IllegalArgumentException("The smallest ruin must be at least 1 exam but was " + minRuinSize + ".");
+		if (maxRuinSize < minRuinSize)
+			throw new IllegalArgumentException("The largest ruin must be at least the smallest ruin of " + minRuinSize + " exams but was " + maxRuinSize + ".");
+		return new RuinAndRecreateOptions(parallelism, timeLimit, syncInterval, seed, minRuinSize, maxRuinSize, maxDiscrepancies);
+	}
+
+	/**
+	 * @param maxDiscrepancies - the most exams per recreate that take their second best booking, from 0 to
+	 *                         Integer.MAX_VALUE - 1.
+	 * @return a copy of these options with the given number of discrepancies.
+	 */
+	public RuinAndRecreateOptions withMaxDiscrepancies(int maxDiscrepancies) {
+		if (maxDiscrepancies < 0 || maxDiscrepancies == Integer.MAX_VALUE)
+			throw new IllegalArgumentException("The number of discrepancies must be between 0 and " + (Integer.MAX_VALUE - 1) + " but was " + maxDiscrepancies + ".");
+		return new RuinAndRecreateOptions(parallelism, timeLimit, syncInterval, seed, minRuinSize, maxRuinSize, maxDiscrepancies);
+	}
+}
@@ -0,0 +1,21 @@
+package dev.born.itc2007.solver;
+
+/**
+ * Models how a RuinAndRecreate search chooses the block of related exams that it removes from the timetable.
+ */
+public enum RuinStrategy {
+	/**
+	 * A random exam, then the exams that clash with it or share a period hard constraint with it, breadth first.
+	 */
+	CLASH_NEIGHBOURS,
+
+	/**
+	 * The exams booked in the periods of a random day.
+	 */
+	DAY,
+
+	/**
+	 * The exams booked in a random room, in any period.
+	 */
+	ROOM
+}
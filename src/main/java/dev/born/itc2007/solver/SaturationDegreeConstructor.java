@@ -0,0 +1,548 @@
+package dev.born.itc2007.solver;
+
+import dev.born.itc2007.ClashGraph;
+import dev.born.itc2007.CompactSolution;
+import dev.born.itc2007.ConstraintIndex;
+import dev.born.itc2007.ExamTimetablingProblem;
+import dev.born.itc2007.ExamTimetablingSolution;
+import dev.born.itc2007.InstitutionalWeighting;
+import dev.born.itc2007.Period;
+import dev.born.itc2007.ProblemColumns;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Builds an initial timetable greedily, booking the most constrained exam first. An exam is more constrained the
+ * more periods are ruled out by the clashing exams already booked (its saturation degree), then the more exams it
+ * clashes with, the more students it has and the more hard constraints it is part of.
+ * <p>
+ * Each exam is booked in the period and room that break no hard constraint and add the least estimated soft
+ * penalty. When no such period remains, the exams that rule out the cheapest period are removed and queued again.
+ * Removals are bounded in total and for each exam, and exams that may no longer be removed are left where they are,
+ * breaking the fewest hard constraints, so construction always finishes quickly, with a feasible or near-feasible
+ * timetable.
+ * <p>
+ * Period hard constraints are interpreted as the solution scores them. Instances are not thread-safe.
+ */
+public class SaturationDegreeConstructor {
+	private static final int COINCIDENCE = 0;
+	private static final int EXCLUSION = 1;
+	private static final int NOT_AFTER = 2;
+	private static final int NOT_BEFORE = 3;
+
+	/**
+	 * The number of removals per exam allowed in total when no bound is given.
+	 */
+	private static final int DEFAULT_EVICTIONS_PER_EXAM = 10;
+
+	/**
+	 * The number of times any one exam may be removed.
+	 */
+	private static final int MAX_EVICTIONS_OF_EXAM = 3;
+
+	/**
+	 * The cost of choosing a period in which no room has space, counted in removed exams.
+	 */
+	private static final int NO_ROOM_COST = 4;
+
+	private final ExamTimetablingProblem problem;
+	private final ClashGraph clashGraph;
+	private final int maxEvictions;
+	private final int numExams;
+	private final int numPeriods;
+	private final int numRooms;
+
+	private final int[] examSize;
+	private final int[] examDuration;
+	private final int[] examDurationIndex;
+	private final int numDurations;
+	private final boolean[] examRoomExclusive;
+	private final boolean[] examFrontload;
+	private final int[] examByRank;
+	private final int[] rankOfExam;
+
+	/**
+	 * The period hard constraints of each exam, as the exams they link it to and the type of each link.
+	 */
+	private final int[] constraintOffsets;
+	private final int[] constraintPartners;
+	private final int[] constraintTypes;
+
+	private final int[] periodDuration;
+	private final int[] periodOrder;
+	private final int[] periodDay;
+	private final int[] periodPenalty;
+	private final boolean[] periodLast;
+	private final int[] roomCapacity;
+	private final int[] roomPenalty;
+
+	private final int twoInARowWeight;
+	private final int twoInADayWeight;
+	private final int periodSpread;
+	private final int mixedDurationsWeight;
+	private final int frontloadWeight;
+
+	private int[] periodOf;
+	private int[] roomOf;
+	private int[] blockers;
+	private int[] saturation;
+	private int[] coincidentPartners;
+	private int[] evictionCounts;
+	private int[] slotSeats;
+	private int[] slotExams;
+	private int[] slotExclusiveExams;
+	/**
+	 * The number of exams of each duration in each slot, indexed by slot and then by duration index, so that a slot
+	 * knows its durations exactly however its exams come and go.
+	 */
+	private int[] slotDurationCounts;
+	private int[] periodCost;
+	private long[] periodsByCost;
+	private int[] victimCosts;
+
+	/**
+	 * The unbooked exams, as a binary heap ordered by key, and the position of each exam in the heap or -1.
+	 */
+	private int[] queue;
+	private int[] queuePositions;
+	private int queueSize;
+	private int evictions;
+	private int roomCost;
+
+	/**
+	 * @param problem - the problem to build timetables for.
+	 */
+	public SaturationDegreeConstructor(ExamTimetablingProblem problem) {
+		this(problem, DEFAULT_EVICTIONS_PER_EXAM * problem.exams.size());
+	}
+
+	/**
+	 * @param problem      - the problem to build timetables for.
+	 * @param maxEvictions - the largest number of times that booked exams are removed to make way for others.
+	 */
+	public SaturationDegreeConstructor(ExamTimetablingProblem problem, int maxEvictions) {
+		this.problem = problem;
+		this.clashGraph = problem.clashGraph;
+		this.maxEvictions = maxEvictions;
+		this.numExams = problem.exams.size();
+		this.numPeriods = problem.periods.size();
+		this.numRooms = problem.rooms.size();
+
+		ProblemColumns columns = problem.columns;
+		this.periodDuration = columns.periodDuration;
+		this.periodDay = columns.periodDay;
+		this.periodPenalty = columns.periodPenalty;
+		this.periodOrder = problem.constraintIndex.periodOrder;
+		this.periodLast = columns.periodFrontload;
+		this.roomCapacity = columns.roomCapacity;
+		this.roomPenalty = columns.roomPenalty;
+		this.examSize = columns.examSize;
+		this.examDuration = columns.examDuration;
+		this.examDurationIndex = columns.examDurationIndex;
+		this.numDurations = columns.numDurations;
+		this.examFrontload = columns.examFrontload;
+
+		InstitutionalWeighting twoInARow = weighting("TWOINAROW");
+		InstitutionalWeighting twoInADay = weighting("TWOINADAY");
+		InstitutionalWeighting spread = weighting("PERIOD_SPREAD");
+		InstitutionalWeighting mixedDurations = weighting("NONMIXEDDURATIONS");
+		InstitutionalWeighting frontload = weighting("FRONTLOAD");
+		this.twoInARowWeight = twoInARow == null ? 0 : twoInARow.paramOne;
+		this.twoInADayWeight = twoInADay == null ? 0 : twoInADay.paramOne;
+		this.periodSpread = spread == null ? 0 : spread.paramOne;
+		this.mixedDurationsWeight = mixedDurations == null ? 0 : mixedDurations.paramOne;
+		this.frontloadWeight = frontload == null ? 0 : frontload.paramThree;
+
+		int[] tightness = new int[numExams];
+		ConstraintIndex constraintIndex = problem.constraintIndex;
+		this.examRoomExclusive = new boolean[numExams];
+		for (int e = 0; e < numExams; e++) {
+			examRoomExclusive[e] = constraintIndex.roomExclusive[e] > 0;
+			tightness[e] += constraintIndex.roomExclusive[e];
+		}
+
+		List<int[]> links = new ArrayList<>();
+		for (int c = 0; c < constraintIndex.types.length; c++) {
+			int one = constraintIndex.examOne[c];
+			int two = constraintIndex.examTwo[c];
+			if (one == two) continue;
+			switch (constraintIndex.types[c]) {
+				case EXAM_COINCIDENCE:
+					links.add(new int[]{one, two, COINCIDENCE});
+					links.add(new int[]{two, one, COINCIDENCE});
+					break;
+				case EXCLUSION:
+					links.add(new int[]{one, two, EXCLUSION});
+					links.add(new int[]{two, one, EXCLUSION});
+					break;
+				default:
+					links.add(new int[]{one, two, NOT_AFTER});
+					links.add(new int[]{two, one, NOT_BEFORE});
+			}
+			tightness[one]++;
+			tightness[two]++;
+		}
+		this.constraintOffsets = new int[numExams + 1];
+		for (int[] link : links) constraintOffsets[link[0] + 1]++;
+		for (int i = 0; i < numExams; i++) constraintOffsets[i + 1] += constraintOffsets[i];
+		this.constraintPartners = new int[links.size()];
+		this.constraintTypes = new int[links.size()];
+		int[] next = Arrays.copyOf(constraintOffsets, numExams);
+		for (int[] link : links) {
+			constraintPartners[next[link[0]]] = link[1];
+			constraintTypes[next[link[0]]++] = link[2];
+		}
+
+		for (int e = 0; e < numExams; e++) {
+			for (int p = 0; p < numPeriods; p++) {
+				if (examDuration[e] > periodDuration[p]) tightness[e]++;
+			}
+		}
+		Integer[] order = new Integer[numExams];
+		for (int e = 0; e < numExams; e++) order[e] = e;
+		Arrays.sort(order, Comparator.<Integer>comparingInt(clashGraph::degree).reversed()
+				.thenComparing(Comparator.<Integer>comparingInt(e -> examSize[e]).reversed())
+				.thenComparing(Comparator.<Integer>comparingInt(e -> tightness[e]).reversed())
+				.thenComparingInt(e -> e));
+		this.examByRank = new int[numExams];
+		this.rankOfExam = new int[numExams];
+		for (int rank = 0; rank < numExams; rank++) {
+			examByRank[rank] = order[rank];
+			rankOfExam[order[rank]] = rank;
+		}
+	}
+
+	private InstitutionalWeighting weighting(String weightingType) {
+		return problem.institutionalWeightings.stream().filter(w -> w.weightingType.equals(weightingType)).findFirst().orElse(null);
+	}
+
+	/**
+	 * @return a timetable booking every exam, or no exam if the problem has no periods or no rooms.
+	 */
+	public ExamTimetablingSolution construct() {
+		CompactSolution solution = new CompactSolution(numExams);
+		if (numPeriods == 0 || numRooms == 0) return solution.toSolution(problem);
+
+		periodOf = new int[numExams];
+		roomOf = new int[numExams];
+		Arrays.fill(periodOf, -1);
+		Arrays.fill(roomOf, -1);
+		blockers = new int[numExams * numPeriods];
+		saturation = new int[numExams];
+		coincidentPartners = new int[numExams];
+		evictionCounts = new int[numExams];
+		slotSeats = new int[numPeriods * numRooms];
+		slotExams = new int[numPeriods * numRooms];
+		slotExclusiveExams = new int[numPeriods * numRooms];
+		slotDurationCounts = new int[numPeriods * numRooms * numDurations];
+		periodCost = new int[numPeriods];
+		periodsByCost = new long[numPeriods];
+		victimCosts = new int[numPeriods];
+		queue = new int[numExams];
+		queuePositions = new int[numExams];
+		Arrays.fill(queuePositions, -1);
+		queueSize = 0;
+		evictions = 0;
+
+		for (int exam = 0; exam < numExams; exam++) enqueue(exam);
+		while (queueSize > 0) book(dequeue());
+
+		for (int exam = 0; exam < numExams; exam++) solution.book(exam, periodOf[exam], roomOf[exam]);
+		return solution.toSolution(problem);
+	}
+
+	/**
+	 * @return the priority of an unbooked exam, smallest first. An exam whose coincident exam is booked is ranked as
+	 * though every other period were ruled out.
+	 */
+	private long key(int exam) {
+		int priority = coincidentPartners[exam] > 0 ? numPeriods : saturation[exam];
+		return ((long) (numPeriods - priority) << 32) | rankOfExam[exam];
+	}
+
+	/**
+	 * Books an exam in its cheapest feasible period and room, removing other exams if there is none.
+	 */
+	private void book(int exam) {
+		estimatePeriodCosts(exam);
+		for (int p = 0; p < numPeriods; p++) periodsByCost[p] = (long) periodCost[p] << 32 | p;
+		Arrays.sort(periodsByCost);
+
+		// Room penalties are never negative, so no period costing more than the best found so far can do better.
+		int bestPeriod = -1;
+		int bestRoom = -1;
+		long bestCost = Long.MAX_VALUE;
+		for (long periodByCost : periodsByCost) {
+			int p = (int) periodByCost;
+			if (periodCost[p] >= bestCost) break;
+			if (blockers[exam * numPeriods + p] > 0 || examDuration[exam] > periodDuration[p]) continue;
+			if (constraintVictims(exam, p, false) > 0) continue;
+			int room = bestRoom(exam, p);
+			if (room == -1) continue;
+			long cost = (long) periodCost[p] + roomCost;
+			if (cost < bestCost) {
+				bestCost = cost;
+				bestPeriod = p;
+				bestRoom = room;
+			}
+		}
+
+		if (bestPeriod == -1) bookWithEvictions(exam);
+		else place(exam, bestPeriod, bestRoom);
+	}
+
+	/**
+	 * Books an exam in the period that needs the fewest other exams removed, and removes them. An exam is removed at
+	 * most a few times, and then stays where it is, so exams whose constraints cannot all be met do not take turns
+	 * removing each other.
+	 */
+	private void bookWithEvictions(int exam) {
+		boolean hasLongEnoughPeriod = false;
+		for (int p = 0; p < numPeriods && !hasLongEnoughPeriod; p++) hasLongEnoughPeriod = examDuration[exam] <= periodDuration[p];
+
+		Arrays.fill(victimCosts, 0);
+		for (int k = clashGraph.offsets[exam]; k < clashGraph.offsets[exam + 1]; k++) {
+			int neighbour = clashGraph.neighbours[k];
+			if (periodOf[neighbour] != -1) victimCosts[periodOf[neighbour]] += victimCost(neighbour);
+		}
+
+		int bestPeriod = -1;
+		long bestCost = Long.MAX_VALUE;
+		for (int p = 0; p < numPeriods; p++) {
+			if (hasLongEnoughPeriod && examDuration[exam] > periodDuration[p]) continue;
+			long victims = victimCosts[p] + constraintVictims(exam, p, false);
+			if (bestRoom(exam, p) == -1) victims += NO_ROOM_COST;
+			long cost = victims * Integer.MAX_VALUE + periodCost[p];
+			if (cost < bestCost) {
+				bestCost = cost;
+				bestPeriod = p;
+			}
+		}
+
+		for (int k = clashGraph.offsets[exam]; k < clashGraph.offsets[exam + 1]; k++) {
+			int neighbour = clashGraph.neighbours[k];
+			if (periodOf[neighbour] == bestPeriod && isEvictable(neighbour)) evict(neighbour);
+		}
+		constraintVictims(exam, bestPeriod, true);
+
+		int room = bestRoom(exam, bestPeriod);
+		if (room == -1) room = roomWithMostSpace(bestPeriod);
+		place(exam, bestPeriod, room);
+	}
+
+	private boolean isEvictable(int exam) {
+		return evictions < maxEvictions && evictionCounts[exam] < MAX_EVICTIONS_OF_EXAM;
+	}
+
+	/**
+	 * @return the cost of removing a booked exam: one if it may be removed, or more than any number of removals if not.
+	 */
+	private int victimCost(int exam) {
+		return isEvictable(exam) ? 1 : numExams + 1;
+	}
+
+	/**
+	 * @param evict - whether to remove the booked exams whose constraints the period would break, where allowed.
+	 * @return the total victimCost of the booked exams whose period hard constraints booking the exam in the period
+	 * would break.
+	 */
+	private int constraintVictims(int exam, int period, boolean evict) {
+		int victims = 0;
+		for (int c = constraintOffsets[exam]; c < constraintOffsets[exam + 1]; c++) {
+			int partner = constraintPartners[c];
+			int partnerPeriod = periodOf[partner];
+			if (partnerPeriod == -1) continue;
+			boolean isViolated;
+			switch (constraintTypes[c]) {
+				case COINCIDENCE:
+					isViolated = partnerPeriod != period;
+					break;
+				case EXCLUSION:
+					isViolated = partnerPeriod == period;
+					break;
+				case NOT_AFTER:
+					isViolated = periodOrder[period] > periodOrder[partnerPeriod];
+					break;
+				default:
+					isViolated = periodOrder[partnerPeriod] > periodOrder[period];
+			}
+			if (!isViolated) continue;
+			victims += victimCost(partner);
+			if (evict && isEvictable(partner)) evict(partner);
+		}
+		return victims;
+	}
+
+	/**
+	 * Fills periodCost with an estimate of the soft penalty of booking the exam in each period: the period penalty,
+	 * the frontload penalty and the proximity penalties with the clashing exams already booked.
+	 */
+	private void estimatePeriodCosts(int exam) {
+		for (int p = 0; p < numPeriods; p++) {
+			periodCost[p] = periodPenalty[p] + (examFrontload[exam] && periodLast[p] ? frontloadWeight : 0);
+		}
+		for (int k = clashGraph.offsets[exam]; k < clashGraph.offsets[exam + 1]; k++) {
+			int period = periodOf[clashGraph.neighbours[k]];
+			if (period == -1) continue;
+			int weight = clashGraph.weights[k];
+			for (int p = Math.max(0, period - periodSpread); p <= Math.min(numPeriods - 1, period + periodSpread); p++) {
+				if (p != period) periodCost[p] += weight;
+			}
+			for (int p = period - 1; p >= 0 && periodDay[p] == periodDay[period]; p--) {
+				periodCost[p] += 2 * weight * (p == period - 1 ? twoInARowWeight : twoInADayWeight);
+			}
+			for (int p = period + 1; p < numPeriods && periodDay[p] == periodDay[period]; p++) {
+				periodCost[p] += 2 * weight * (p == period + 1 ? twoInARowWeight : twoInADayWeight);
+			}
+		}
+	}
+
+	/**
+	 * Finds the room with space for the exam in the period that adds the least room and mixed duration penalty,
+	 * preferring the tightest fit, and stores that penalty in roomCost.
+	 *
+	 * @return the room number, or -1 if no room has space.
+	 */
+	private int bestRoom(int exam, int period) {
+		int bestRoom = -1;
+		int bestSlack = Integer.MAX_VALUE;
+		roomCost = Integer.MAX_VALUE;
+		for (int r = 0; r < numRooms; r++) {
+			int slot = period * numRooms + r;
+			int slack = roomCapacity[r] - slotSeats[slot] - examSize[exam];
+			if (slack < 0 || slotExclusiveExams[slot] > 0 || (examRoomExclusive[exam] && slotExams[slot] > 0)) continue;
+			boolean isMixed = slotExams[slot] > 0 && slotDurationCounts[slot * numDurations + examDurationIndex[exam]] == 0;
+			int cost = roomPenalty[r] + (isMixed ? mixedDurationsWeight : 0);
+			if (cost < roomCost || (cost == roomCost && slack < bestSlack)) {
+				roomCost = cost;
+				bestSlack = slack;
+				bestRoom = r;
+			}
+		}
+		return bestRoom;
+	}
+
+	private int roomWithMostSpace(int period) {
+		int bestRoom = 0;
+		for (int r = 1; r < numRooms; r++) {
+			int space = roomCapacity[r] - slotSeats[period * numRooms + r];
+			if (space > roomCapacity[bestRoom] - slotSeats[period * numRooms + bestRoom]) bestRoom = r;
+		}
+		return bestRoom;
+	}
+
+	private void place(int exam, int period, int room) {
+		periodOf[exam] = period;
+		roomOf[exam] = room;
+		int slot = period * numRooms + room;
+		slotExams[slot]++;
+		slotDurationCounts[slot * numDurations + examDurationIndex[exam]]++;
+		slotSeats[slot] += examSize[exam];
+		if (examRoomExclusive[exam]) slotExclusiveExams[slot]++;
+
+		for (int k = clashGraph.offsets[exam]; k < clashGraph.offsets[exam + 1]; k++) {
+			int neighbour = clashGraph.neighbours[k];
+			if (blockers[neighbour * numPeriods + period]++ == 0) {
+				saturation[neighbour]++;
+				if (periodOf[neighbour] == -1) enqueue(neighbour);
+			}
+		}
+		for (int c = constraintOffsets[exam]; c < constraintOffsets[exam + 1]; c++) {
+			if (constraintTypes[c] != COINCIDENCE) continue;
+			int partner = constraintPartners[c];
+			coincidentPartners[partner]++;
+			if (periodOf[partner] == -1) enqueue(partner);
+		}
+	}
+
+	/**
+	 * Removes a booked exam and queues it to be booked again.
+	 */
+	private void evict(int exam) {
+		int period = periodOf[exam];
+		int slot = period * numRooms + roomOf[exam];
+		slotExams[slot]--;
+		slotDurationCounts[slot * numDurations + examDurationIndex[exam]]--;
+		slotSeats[slot] -= examSize[exam];
+		if (examRoomExclusive[exam]) slotExclusiveExams[slot]--;
+		periodOf[exam] = -1;
+		roomOf[exam] = -1;
+		evictionCounts[exam]++;
+		evictions++;
+
+		for (int k = clashGraph.offsets[exam]; k < clashGraph.offsets[exam + 1]; k++) {
+			int neighbour = clashGraph.neighbours[k];
+			if (--blockers[neighbour * numPeriods + period] == 0) {
+				saturation[neighbour]--;
+				if (periodOf[neighbour] == -1) enqueue(neighbour);
+			}
+		}
+		for (int c = constraintOffsets[exam]; c < constraintOffsets[exam + 1]; c++) {
+			if (constraintTypes[c] != COINCIDENCE) continue;
+			int partner = constraintPartners[c];
+			coincidentPartners[partner]--;
+			if (periodOf[partner] == -1) enqueue(partner);
+		}
+		enqueue(exam);
+	}
+
+	/**
+	 * Adds an exam to the queue, or moves it to its place if its key has changed.
+	 */
+	private void enqueue(int exam) {
+		int position = queuePositions[exam];
+		if (position == -1) {
+			position = queueSize++;
+			queue[position] = exam;
+			queuePositions[exam] = position;
+		}
+		siftDown(siftUp(position));
+	}
+
+	/**
+	 * @return the queued exam with the smallest key, which is removed from the queue.
+	 */
+	private int dequeue() {
+		int exam = queue[0];
+		queuePositions[exam] = -1;
+		if (--queueSize > 0) {
+			queue[0] = queue[queueSize];
+			queuePositions[queue[0]] = 0;
+			siftDown(0);
+		}
+		return exam;
+	}
+
+	private int siftUp(int position) {
+		int exam = queue[position];
+		long key = key(exam);
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			if (key(queue[parent]) <= key) break;
+			queue[position] = queue[parent];
+			queuePositions[queue[position]] = position;
+			position = parent;
+		}
+		queue[position] = exam;
+		queuePositions[exam] = position;
+		return position;
+	}
+
+	private void siftDown(int position) {
+		int exam = queue[position];
+		long key = key(exam);
+		while (2 * position + 1 < queueSize) {
+			int child = 2 * position + 1;
+			if (child + 1 < queueSize && key(queue[child + 1]) < key(queue[child])) child++;
+			if (key <= key(queue[child])) break;
+			queue[position] = queue[child];
+			queuePositions[queue[position]] = position;
+			position = child;
+		}
+		queue[position] = exam;
+		queuePositions[exam] = position;
+	}
+}
@@ -0,0 +1,287 @@
+package dev.born.itc2007.solver;
+
+import dev.born.itc2007.CompactSolution;
+import dev.born.itc2007.Cost;
+import dev.born.itc2007.DeltaEvaluator;
+import dev.born.itc2007.ExamDomains;
+import dev.born.itc2007.ExamTimetablingProblem;
+import dev.born.itc2007.ExamTimetablingSolution;
+import dev.born.itc2007.metrics.Metrics;
+import dev.born.itc2007.metrics.SearchEvent;
+
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+/**
+ * Searches for a good timetable with simulated annealing over move and swap neighbourhoods. Moves only go to periods
+ * and rooms in the ExamDomains of the exam, and every candidate is scored with a DeltaEvaluator, so a move costs time
+ * in proportion to the clash neighbours of the exams involved.
+ * <p>
+ * The search runs in two phases. The repair phase anneals the hard constraint violations, accepting any move that
+ * keeps them level. Once none remain, or the repair share of the budget is used, the optimisation phase anneals the
+ * soft constraint violations and rejects every move that adds hard constraint violations. Instances are not
+ * thread-safe, but searches run by a PortfolioSolver share their best solutions through an Incumbent.
+ */
+public class SimulatedAnnealing {
+	private static final double INITIAL_REPAIR_TEMPERATURE = 1.0;
+	private static final double FINAL_REPAIR_TEMPERATURE = 0.01;
+	private static final int MOVES_PER_CLOCK_CHECK = 256;
+
+	private final ExamTimetablingProblem problem;
+	private final ExamDomains domains;
+	private final AnnealingOptions options;
+	private final SplittableRandom random;
+	private final Incumbent incumbent;
+	private final long syncIntervalNanos;
+
+	private DeltaEvaluator evaluator;
+	private Cost cost;
+	private Cost bestCost;
+	private CompactSolution best;
+	private boolean isBestCurrent;
+	private long evaluatedMoves;
+	private long acceptedMoves;
+	private long reportedEvaluatedMoves;
+	private long reportedAcceptedMoves;
+	private long nextSync;
+	private long solveStart;
+	private ProgressPublisher publisher;
+
+	/**
+	 * @param problem - the problem to solve.
+	 * @param options - the parameters of the search.
+	 */
+	public SimulatedAnnealing(ExamTimetablingProblem problem, AnnealingOptions options) {
+		this(problem, options, null, Duration.ZERO);
+	}
+
+	/**
+	 * @param problem      - the problem to solve.
+	 * @param options      - the parameters of the search.
+	 * @param incumbent    - the best solution shared with other searches, or null to search alone.
+	 * @param syncInterval - how often the best solution found is offered to the incumbent, and the incumbent adopted
+	 *                     if it is better.
+	 */
+	SimulatedAnnealing(ExamTimetablingProblem problem, AnnealingOptions options, Incumbent incumbent, Duration syncInterval) {
+		this.problem = problem;
+		this.domains = problem.domains;
+		this.options = options;
+		this.random = new SplittableRandom(options.seed);
+		this.incumbent = incumbent;
+		this.syncIntervalNanos = syncInterval.toNanos();
+	}
+
+	/**
+	 * @param publisher - the publisher that new best solutions are published to, or null to publish nothing. A search
+	 *                  that is not part of a portfolio also publishes a final event when it finishes.
+	 */
+	public void setProgressPublisher(ProgressPublisher publisher) {
+		this.publisher = publisher;
+	}
+
+	/**
+	 * @return the best solution found, starting from a timetable built by a SaturationDegreeConstructor.
+	 */
+	public ExamTimetablingSolution solve() {
+		return solve(new SaturationDegreeConstructor(problem).construct());
+	}
+
+	/**
+	 * @param initial - the solution to start from. Exams that it does not book are booked at random first.
+	 * @return the best solution found.
+	 * @throws IllegalArgumentException if the problem has exams but no periods or no rooms to book them in.
+	 */
+	public ExamTimetablingSolution solve(ExamTimetablingSolution initial) {
+		if (!problem.exams.isEmpty() && problem.periods.isEmpty())
+			throw new IllegalArgumentException("The problem has " + problem.exams.size() + " exams but no periods to book them in.");
+		if (!problem.exams.isEmpty() && problem.rooms.isEmpty())
+			throw new IllegalArgumentException("The problem has " + problem.exams.size() + " exams but no rooms to book them in.");
+
+		long start = System.nanoTime();
+		long deadline = start + options.timeLimit.toNanos();
+		long repairDeadline = start + (long) (options.timeLimit.toNanos() * options.repairFraction);
+		long repairMoves = (long) (options.maxMoves * options.repairFraction);
+
+		evaluator = new DeltaEvaluator(initial);
+		for (int exam = 0; exam < problem.exams.size(); exam++) {
+			if (evaluator.periodOf(exam) == -1)
+				evaluator.move(exam, domains.randomPeriod(exam, random), domains.randomRoom(exam, random));
+		}
+		cost = evaluator.cost();
+		bestCost = cost;
+		isBestCurrent = true;
+		evaluatedMoves = 0;
+		acceptedMoves = 0;
+		reportedEvaluatedMoves = 0;
+		reportedAcceptedMoves = 0;
+		nextSync = start + syncIntervalNanos;
+		solveStart = start;
+
+		SearchEvent repairEvent = new SearchEvent();
+		repairEvent.begin();
+		anneal(true, start, repairDeadline, repairMoves);
+		endPhase(repairEvent, "annealing.repair", 0, 0);
+
+		long repairEvaluatedMoves = evaluatedMoves;
+		long repairAcceptedMoves = acceptedMoves;
+		SearchEvent optimiseEvent = new SearchEvent();
+		optimiseEvent.begin();
+		anneal(false, System.nanoTime(), deadline, options.maxMoves - evaluatedMoves);
+		endPhase(optimiseEvent, "annealing.optimise", repairEvaluatedMoves, repairAcceptedMoves);
+
+		if (isBestCurrent) best = evaluator.toCompactSolution();
+		if (incumbent != null) incumbent.offer(best, bestCost);
+		else if (publisher != null) publishProgress("annealing", System.nanoTime(), true);
+		return best.toSolution(problem);
+	}
+
+	/**
+	 * @return the number of moves evaluated by the last search.
+	 */
+	public long getEvaluatedMoves() {
+		return evaluatedMoves;
+	}
+
+	/**
+	 * @return the number of moves accepted by the last search.
+	 */
+	public long getAcceptedMoves() {
+		return acceptedMoves;
+	}
+
+	/**
+	 * Runs one phase of the search until its deadline or move budget is reached.
+	 *
+	 * @param isRepair - whether hard constraint violations are being repaired rather than soft ones optimised.
+	 */
+	private void anneal(boolean isRepair, long start, long deadline, long maxMoves) {
+		double initialTemperature = isRepair ? INITIAL_REPAIR_TEMPERATURE : options.initialTemperature;
+		double finalTemperature = isRepair ? FINAL_REPAIR_TEMPERATURE : options.finalTemperature;
+		double temperature = initialTemperature;
+		int numExams = problem.exams.size();
+		if (numExams == 0 || (numExams < 2 && options.swapProbability >= 1)) return;
+
+		for (long moves = 0; moves < maxMoves; moves++) {
+			if (isRepair && cost.hard == 0) return;
+			if (moves % MOVES_PER_CLOCK_CHECK == 0) {
+				long now = System.nanoTime();
+				if (now >= deadline) return;
+				if (Metrics.isEnabled()) reportMoves();
+				if (incumbent != null && now >= nextSync) {
+					share();
+					nextSync = now + syncIntervalNanos;
+				}
+				if (publisher != null && publisher.isDue(bestCost, now))
+					publishProgress(isRepair ? "annealing.repair" : "annealing.optimise", now, false);
+				double progress = Math.max((double) (now - start) / (deadline - start), (double) moves / maxMoves);
+				temperature = options.coolingSchedule.temperature(initialTemperature, finalTemperature, Math.min(1, progress));
+			}
+
+			int exam = random.nextInt(numExams);
+			boolean isSwap = numExams > 1 && random.nextDouble() < options.swapProbability;
+			int otherExam = -1;
+			int period = -1;
+			int room = -1;
+			if (isSwap) {
+				otherExam = random.nextInt(numExams - 1);
+				if (otherExam >= exam) otherExam++;
+				evaluator.evaluateSwap(exam, otherExam);
+			} else {
+				period = domains.randomPeriod(exam, random);
+				room = domains.randomRoom(exam, random);
+				evaluator.evaluateMove(exam, period, room);
+			}
+			evaluatedMoves++;
+
+			// Only kept moves allocate their cost.
+			if (!isAccepted(evaluator.deltaHard(), evaluator.deltaSoft(), isRepair, temperature)) continue;
+			Cost newCost = new Cost(cost.hard + evaluator.deltaHard(), cost.soft + evaluator.deltaSoft());
+			if (isBestCurrent && bestCost.isBetterThan(newCost)) {
+				best = evaluator.toCompactSolution();
+				isBestCurrent = false;
+			}
+			if (isSwap) evaluator.swap(exam, otherExam);
+			else evaluator.move(exam, period, room);
+			cost = newCost;
+			acceptedMoves++;
+			if (!bestCost.isBetterThan(cost)) {
+				bestCost = cost;
+				isBestCurrent = true;
+			}
+		}
+	}
+
+	/**
+	 * Adds the moves made since the last report to the global move counters.
+	 */
+	private void reportMoves() {
+		Metrics.MOVES_EVALUATED.add(evaluatedMoves - reportedEvaluatedMoves);
+		Metrics.MOVES_ACCEPTED.add(acceptedMoves - reportedAcceptedMoves);
+		reportedEvaluatedMoves = evaluatedMoves;
+		reportedAcceptedMoves = acceptedMoves;
+	}
+
+	/**
+	 * Reports the moves of a finished phase, and commits its event if it is being recorded.
+	 *
+	 * @param evaluatedMovesBefore - the number of moves evaluated before the phase started.
+	 * @param acceptedMovesBefore  - the number of moves accepted before the phase started.
+	 */
+	private void endPhase(SearchEvent event, String phase, long evaluatedMovesBefore, long acceptedMovesBefore) {
+		if (Metrics.isEnabled()) reportMoves();
+		if (event.shouldCommit()) {
+			event.search = phase;
+			event.movesEvaluated = evaluatedMoves - evaluatedMovesBefore;
+			event.movesAccepted = acceptedMoves - acceptedMovesBefore;
+			event.hard = bestCost.hard;
+			event.soft = bestCost.soft;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Publishes the best solution found, taking a snapshot of it first if it is the current solution.
+	 */
+	private void publishProgress(String search, long now, boolean isFinal) {
+		if (isBestCurrent) {
+			best = evaluator.toCompactSolution();
+			isBestCurrent = false;
+		}
+		publisher.publish(new ProgressEvent(search, problem, best, bestCost, Duration.ofNanos(now - solveStart), evaluatedMoves, acceptedMoves, isFinal));
+	}
+
+	/**
+	 * Offers the best solution found to the incumbent if it is better, or continues from the incumbent if that is
+	 * better.
+	 */
+	private void share() {
+		Incumbent.Entry shared = incumbent.get();
+		if (shared == null || bestCost.isBetterThan(shared.cost)) {
+			if (isBestCurrent) {
+				best = evaluator.toCompactSolution();
+				isBestCurrent = false;
+			}
+			incumbent.offer(best, bestCost);
+		} else if (shared.cost.isBetterThan(bestCost)) {
+			for (int exam = 0; exam < problem.exams.size(); exam++) {
+				int period = shared.solution.periodOf(exam);
+				int room = shared.solution.roomOf(exam);
+				if (period == -1 || (period == evaluator.periodOf(exam) && room == evaluator.roomOf(exam))) continue;
+				evaluator.move(exam, period, room);
+			}
+			cost = evaluator.cost();
+			bestCost = cost;
+			best = shared.solution;
+			isBestCurrent = false;
+		}
+	}
+
+	private boolean isAccepted(int deltaHard, int deltaSoft, boolean isRepair, double temperature) {
+		if (deltaHard < 0) return true;
+		if (isRepair) {
+			return deltaHard == 0 || random.nextDouble() < Math.exp(-deltaHard / temperature);
+		}
+		if (deltaHard > 0) return false;
+		return deltaSoft <= 0 || random.nextDouble() < Math.exp(-deltaSoft / temperature);
+	}
+}
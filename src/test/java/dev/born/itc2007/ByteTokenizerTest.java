@@ -0,0 +1,69 @@
+package dev.born.itc2007;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ByteTokenizerTest {
+	private static ByteTokenizer tokenize(byte... bytes) {
+		return new ByteTokenizer(new ByteArrayInputStream(bytes));
+	}
+
+	@Test
+	void highBytesAreNotTheEndOfTheInput() throws IOException {
+		ByteTokenizer tokens = tokenize((byte) 0xFF, (byte) 0x80);
+		assertEquals(0xFF, tokens.next());
+		assertEquals(0x80, tokens.next());
+		assertEquals(ByteTokenizer.EOF, tokens.next());
+	}
+
+	@Test
+	void linesAreCountedByEveryWayOfCrossingThem() throws IOException {
+		ByteTokenizer tokens = tokenize("\n \n1\n2 \n3,x\n4".getBytes());
+		assertEquals('1', tokens.skipBlank());
+		assertEquals(3, tokens.lineNumber());
+		tokens.skip();
+		tokens.endLine();
+		assertEquals('2', tokens.next());
+		assertEquals('\n', tokens.next());
+		assertEquals(5, tokens.lineNumber());
+		tokens.skipLine();
+		assertEquals(6, tokens.lineNumber());
+		assertEquals('4', tokens.peek());
+	}
+
+	@Test
+	void errorsNameTheLine() throws IOException {
+		ByteTokenizer tokens = tokenize("\n\n1;2".getBytes());
+		tokens.skipBlank();
+		tokens.skip();
+		IOException e = assertThrows(IOException.class, () -> tokens.expect(','));
+		assertEquals("Expected ',' but found ';' on line 3.", e.getMessage());
+		assertTrue(assertThrows(IOException.class, tokens::endLine).getMessage().endsWith("on line 3."));
+	}
+
+	@Test
+	void problemReaderErrorsNameTheLine() {
+		byte[] instance = "[Exams:1]\n10, 1\n[Periods:1]\n15:04:2005, 09:30:00, 180; 0\n".getBytes();
+		IOException e = assertThrows(IOException.class, () -> ExamTimetablingProblem.fromStream(new ByteArrayInputStream(instance), LoadOptions.DEFAULT));
+		assertEquals("Expected ',' but found ';' on line 4.", e.getMessage());
+	}
+
+	@Test
+	void problemReaderRejectsNumbersThatAreSplitOrTooLarge() throws IOException {
+		IOException split = assertThrows(IOException.class, () -> read("[Exams:1]\n10, 1\n[Periods:1]\n15:04:2005, 09:30:00, 1 80, 0\n"));
+		assertEquals("Expected ',' but found '8' on line 4.", split.getMessage());
+		IOException large = assertThrows(IOException.class, () -> read("[Exams:1]\n10, 1\n[Rooms:1]\n2147483648, 0\n"));
+		assertEquals("Number is too large on line 4.", large.getMessage());
+		assertEquals(-5, read("[Exams:1]\n10, 1\n[Rooms:1]\n  2147483647 ,-5\n").rooms.get(0).penalty);
+	}
+
+	private static ExamTimetablingProblem read(String instance) throws IOException {
+		return ExamTimetablingProblem.fromStream(new ByteArrayInputStream(instance.getBytes()), LoadOptions.DEFAULT);
+	}
+}
@@ -0,0 +1,58 @@
+package dev.born.itc2007;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DeltaEvaluatorTest {
+	private static final int STEPS = 1500;
+
+	@Test
+	void deltasMatchFullEvaluationWithDenseClashMatrix() throws IOException {
+		checkDeltas(LoadOptions.DEFAULT);
+	}
+
+	@Test
+	void deltasMatchFullEvaluationWithSparseClashGraph() throws IOException {
+		checkDeltas(LoadOptions.DEFAULT.withDenseClashMatrix(false));
+	}
+
+	/**
+	 * Applies random moves and swaps, and checks after each one that the cost plus the predicted delta is the new
+	 * cost, and that the new cost is what a full evaluation of the solution gives.
+	 */
+	private static void checkDeltas(LoadOptions options) throws IOException {
+		for (long seed = 1; seed <= 3; seed++) {
+			ExamTimetablingProblem problem = TestProblems.generate(seed, options);
+			SplittableRandom random = new SplittableRandom(seed);
+			int numExams = problem.exams.size();
+			DeltaEvaluator evaluator = new DeltaEvaluator(problem, TestProblems.randomSolution(problem, random));
+			assertEquals(TestProblems.fullCost(evaluator.toSolution()), evaluator.cost(), "initial cost");
+
+			for (int step = 0; step < STEPS; step++) {
+				Cost before = evaluator.cost();
+				int exam = random.nextInt(numExams);
+				Cost delta;
+				if (random.nextBoolean()) {
+					int period = random.nextInt(problem.periods.size());
+					int room = random.nextInt(problem.rooms.size());
+					delta = evaluator.moveDelta(exam, period, room);
+					evaluator.evaluateMove(exam, period, room);
+					assertEquals(delta, new Cost(evaluator.deltaHard(), evaluator.deltaSoft()), "seed " + seed + ", step " + step + " evaluated move");
+					evaluator.move(exam, period, room);
+				} else {
+					int otherExam = (exam + 1 + random.nextInt(numExams - 1)) % numExams;
+					delta = evaluator.swapDelta(exam, otherExam);
+					evaluator.evaluateSwap(exam, otherExam);
+					assertEquals(delta, new Cost(evaluator.deltaHard(), evaluator.deltaSoft()), "seed " + seed + ", step " + step + " evaluated swap");
+					evaluator.swap(exam, otherExam);
+				}
+				assertEquals(before.plus(delta), evaluator.cost(), "seed " + seed + ", step " + step + " delta");
+				assertEquals(TestProblems.fullCost(evaluator.toSolution()), evaluator.cost(), "seed " + seed + ", step " + step + " cost");
+			}
+		}
+	}
+}
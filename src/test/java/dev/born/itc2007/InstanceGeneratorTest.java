@@ -0,0 +1,55 @@
+package dev.born.itc2007;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InstanceGeneratorTest {
+	@Test
+	void settingsThatCannotDescribeAnInstanceAreRejected() {
+		InstanceGenerator generator = new InstanceGenerator(1);
+		assertThrows(IllegalArgumentException.class, () -> generator.exams(0, 100, 500));
+		assertThrows(IllegalArgumentException.class, () -> generator.exams(10, 0, 500));
+		assertThrows(IllegalArgumentException.class, () -> generator.exams(10, 100, -1));
+		assertThrows(IllegalArgumentException.class, () -> generator.faculties(0, 0.1));
+		assertThrows(IllegalArgumentException.class, () -> generator.faculties(2, 1.5));
+		assertThrows(IllegalArgumentException.class, () -> generator.faculties(2, Double.NaN));
+		assertThrows(IllegalArgumentException.class, () -> generator.durations());
+		assertThrows(IllegalArgumentException.class, () -> generator.durations(60, 0));
+		assertThrows(IllegalArgumentException.class, () -> generator.periods(0, 3, 180, 0));
+		assertThrows(IllegalArgumentException.class, () -> generator.periods(10, 0, 180, 0));
+		assertThrows(IllegalArgumentException.class, () -> generator.periods(10, 3, 180, -1));
+		assertThrows(IllegalArgumentException.class, () -> generator.periods(10, 3, 180, Integer.MAX_VALUE));
+		assertThrows(IllegalArgumentException.class, () -> generator.rooms(0, 50, 100, 0));
+		assertThrows(IllegalArgumentException.class, () -> generator.rooms(5, 100, 50, 0));
+		assertThrows(IllegalArgumentException.class, () -> generator.constraints(-1, 0, 0, 0));
+		assertThrows(IllegalArgumentException.class, () -> generator.weightings(7, 5, -5, 10, 100, 5, 5));
+		assertThrows(NullPointerException.class, () -> generator.startDate(null));
+	}
+
+	@Test
+	void outputDoesNotDependOnTheDefaultLocale() throws IOException {
+		InstanceGenerator generator = new InstanceGenerator(7).exams(20, 50, 200).periods(12, 3, 180, 10).rooms(3, 20, 60, 5);
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		generator.write(expected);
+
+		Locale locale = Locale.getDefault();
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		try {
+			Locale.setDefault(Locale.forLanguageTag("th-TH-u-nu-thai"));
+			generator.write(actual);
+		} finally {
+			Locale.setDefault(locale);
+		}
+		assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+		ExamTimetablingProblem problem = ExamTimetablingProblem.fromStream(new ByteArrayInputStream(actual.toByteArray()), LoadOptions.DEFAULT);
+		assertEquals(12, problem.periods.size());
+	}
+}
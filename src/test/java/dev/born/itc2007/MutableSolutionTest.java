@@ -0,0 +1,98 @@
+package dev.born.itc2007;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MutableSolutionTest {
+	private static final int ROUNDS = 200;
+	private static final int CHANGES_PER_ROUND = 30;
+
+	@Test
+	void rollbackRestoresBookingsAndCost() throws IOException {
+		for (long seed = 1; seed <= 3; seed++) {
+			ExamTimetablingProblem problem = TestProblems.generate(seed, LoadOptions.DEFAULT);
+			SplittableRandom random = new SplittableRandom(seed);
+			int numExams = problem.exams.size();
+
+			// Start with half of the exams unbooked, so assign and unassign are exercised too.
+			CompactSolution initial = TestProblems.randomSolution(problem, random);
+			for (int exam = 0; exam < numExams; exam += 2) initial.unbook(exam);
+			MutableSolution solution = new MutableSolution(problem, initial);
+
+			for (int round = 0; round < ROUNDS; round++) {
+				Cost before = solution.cost();
+				CompactSolution bookingsBefore = solution.toCompactSolution();
+				int mark = solution.mark();
+				for (int change = 0; change < CHANGES_PER_ROUND; change++) change(solution, problem, random);
+				assertEquals(TestProblems.fullCost(solution.snapshot()), solution.cost(), "seed " + seed + ", round " + round + " cost");
+
+				if (random.nextBoolean()) {
+					solution.rollback(mark);
+					assertEquals(before, solution.cost(), "seed " + seed + ", round " + round + " rolled back cost");
+					assertEquals(bookingsBefore, solution.toCompactSolution(), "seed " + seed + ", round " + round + " rolled back bookings");
+				} else {
+					solution.commit();
+				}
+			}
+		}
+	}
+
+	@Test
+	void nestedMarksRollBackInOrder() throws IOException {
+		ExamTimetablingProblem problem = TestProblems.generate(4, LoadOptions.DEFAULT);
+		SplittableRandom random = new SplittableRandom(4);
+		MutableSolution solution = new MutableSolution(problem, TestProblems.randomSolution(problem, random));
+
+		CompactSolution first = solution.toCompactSolution();
+		int outer = solution.mark();
+		for (int change = 0; change < CHANGES_PER_ROUND; change++) change(solution, problem, random);
+		CompactSolution second = solution.toCompactSolution();
+		Cost secondCost = solution.cost();
+		int inner = solution.mark();
+		for (int change = 0; change < CHANGES_PER_ROUND; change++) change(solution, problem, random);
+
+		solution.rollback(inner);
+		assertEquals(second, solution.toCompactSolution());
+		assertEquals(secondCost, solution.cost());
+		solution.rollback(outer);
+		assertEquals(first, solution.toCompactSolution());
+		assertEquals(TestProblems.fullCost(solution.snapshot()), solution.cost());
+	}
+
+	@Test
+	void rejectsInvalidMarksAndBookings() throws IOException {
+		ExamTimetablingProblem problem = TestProblems.generate(5, LoadOptions.DEFAULT);
+		MutableSolution solution = new MutableSolution(problem, TestProblems.randomSolution(problem, new SplittableRandom(5)));
+		solution.move(0, 1, 1);
+		assertThrows(IllegalArgumentException.class, () -> solution.rollback(1));
+		assertThrows(IllegalArgumentException.class, () -> solution.rollback(solution.mark() + 3));
+		assertThrows(IllegalStateException.class, () -> solution.assign(0, 0, 0));
+		solution.unassign(0);
+		assertThrows(IllegalStateException.class, () -> solution.move(0, 0, 0));
+	}
+
+	private static void change(MutableSolution solution, ExamTimetablingProblem problem, SplittableRandom random) {
+		int numExams = problem.exams.size();
+		int exam = random.nextInt(numExams);
+		int period = random.nextInt(problem.periods.size());
+		int room = random.nextInt(problem.rooms.size());
+		switch (random.nextInt(4)) {
+			case 0:
+				if (solution.periodOf(exam) == -1) solution.assign(exam, period, room);
+				break;
+			case 1:
+				if (solution.periodOf(exam) != -1) solution.move(exam, period, room);
+				break;
+			case 2:
+				solution.swap(exam, (exam + 1 + random.nextInt(numExams - 1)) % numExams);
+				break;
+			default:
+				solution.unassign(exam);
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package dev.born.itc2007;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProblemEditorTest {
+	private static final int BUILDS = 40;
+
+	@Test
+	void editsMatchFreshLoadWithDenseClashMatrix() throws IOException {
+		checkEdits(LoadOptions.DEFAULT);
+	}
+
+	@Test
+	void editsMatchFreshLoadWithSparseClashGraph() throws IOException {
+		checkEdits(LoadOptions.DEFAULT.withDenseClashMatrix(false));
+	}
+
+	@Test
+	void remapKeepsBookingsOfSurvivingExams() throws IOException {
+		ExamTimetablingProblem problem = TestProblems.generate(6, LoadOptions.DEFAULT);
+		CompactSolution solution = TestProblems.randomSolution(problem, new SplittableRandom(6));
+		ProblemEditor editor = new ProblemEditor(problem);
+		editor.removeExam(3);
+		int newExam = editor.addExam(60, List.of("S1", "S2"));
+		editor.removePeriod(0);
+		ProblemUpdate update = editor.build();
+
+		assertEquals(-1, update.examNumber(3));
+		assertEquals(-1, update.periodNumber(0));
+		CompactSolution remapped = update.remap(solution);
+		assertFalse(remapped.isBooked(update.examNumber(newExam)));
+		for (int exam = 0; exam < problem.exams.size(); exam++) {
+			int newNumber = update.examNumber(exam);
+			if (newNumber == -1) continue;
+			if (solution.periodOf(exam) == 0) {
+				assertFalse(remapped.isBooked(newNumber));
+			} else {
+				assertEquals(update.periodNumber(solution.periodOf(exam)), remapped.periodOf(newNumber));
+				assertEquals(update.roomNumber(solution.roomOf(exam)), remapped.roomOf(newNumber));
+			}
+		}
+	}
+
+	@Test
+	void unenrolRejectsStudentsWhoAreNotEnrolled() throws IOException {
+		ExamTimetablingProblem problem = TestProblems.generate(7, LoadOptions.DEFAULT);
+		ProblemEditor editor = new ProblemEditor(problem);
+		assertThrows(IllegalArgumentException.class, () -> editor.unenrol("nobody", 0));
+	}
+
+	/**
+	 * Builds versions from random edit sessions, and checks each against the same problem written out and loaded from
+	 * scratch: exams, clash structures, columns and the cost of a remapped solution must all agree, and the previous
+	 * version must be left as it was.
+	 */
+	private static void checkEdits(LoadOptions options) throws IOException {
+		ExamTimetablingProblem problem = TestProblems.generate(8, options);
+		SplittableRandom random = new SplittableRandom(8);
+		ProblemEditor editor = new ProblemEditor(problem);
+		for (int build = 0; build < BUILDS; build++) {
+			ExamTimetablingProblem previous = editor.getBase();
+			CompactSolution solution = TestProblems.randomSolution(previous, random);
+			Cost previousCost = TestProblems.fullCost(solution.toSolution(previous));
+			edit(editor, previous, random);
+			ProblemUpdate update = editor.build();
+			ExamTimetablingProblem edited = update.problem;
+			ExamTimetablingProblem fresh = TestProblems.reload(edited, options);
+			String at = "build " + build;
+
+			assertEquals(fresh.exams.size(), edited.exams.size(), at + " exams");
+			for (int exam = 0; exam < edited.exams.size(); exam++) {
+				assertEquals(exam, edited.exams.get(exam).number, at + " exam number");
+				assertEquals(new TreeSet<>(fresh.exams.get(exam).students), new TreeSet<>(edited.exams.get(exam).students), at + " students of exam " + exam);
+			}
+			assertArrayEquals(fresh.clashGraph.offsets, edited.clashGraph.offsets, at + " clash offsets");
+			assertArrayEquals(fresh.clashGraph.neighbours, edited.clashGraph.neighbours, at + " clash neighbours");
+			assertArrayEquals(fresh.clashGraph.weights, edited.clashGraph.weights, at + " clash weights");
+			if (options.denseClashMatrix)
+				assertTrue(Arrays.deepEquals(fresh.clashMatrix, edited.clashMatrix), at + " clash matrix");
+			assertArrayEquals(fresh.columns.examSize, edited.columns.examSize, at + " exam sizes");
+			assertArrayEquals(fresh.columns.periodDay, edited.columns.periodDay, at + " period days");
+
+			CompactSolution remapped = update.remap(solution);
+			assertEquals(TestProblems.fullCost(remapped.toSolution(fresh)), TestProblems.fullCost(remapped.toSolution(edited)), at + " remapped cost");
+			assertEquals(TestProblems.fullCost(remapped.toSolution(fresh)), new DeltaEvaluator(edited, remapped).cost(), at + " incremental cost");
+			assertEquals(previousCost, TestProblems.fullCost(solution.toSolution(previous)), at + " previous version changed");
+		}
+	}
+
+	private static void edit(ProblemEditor editor, ExamTimetablingProblem previous, SplittableRandom random) {
+		List<Integer> exams = new ArrayList<>();
+		for (int exam = 0; exam < previous.exams.size(); exam++) exams.add(exam);
+		int numEdits = 1 + random.nextInt(10);
+		for (int i = 0; i < numEdits; i++) {
+			int exam = exams.get(random.nextInt(exams.size()));
+			String student = previous.students.name(random.nextInt(previous.students.size()));
+			switch (random.nextInt(8)) {
+				case 0:
+				case 1:
+					editor.enrol(random.nextBoolean() ? "new" + random.nextInt(100) : student, exam);
+					break;
+				case 2:
+					if (exam < previous.exams.size() && previous.exams.get(exam).studentIds.length > 0) {
+						Exam original = previous.exams.get(exam);
+						String enrolled = original.students.get(random.nextInt(original.studentIds.length));
+						try {
+							editor.unenrol(enrolled, exam);
+						} catch (IllegalArgumentException e) {
+							// Already unenrolled earlier in this session.
+						}
+					}
+					break;
+				case 3:
+					if (exams.size() > 10) {
+						editor.removeExam(exam);
+						exams.remove((Integer) exam);
+					}
+					break;
+				case 4:
+					List<String> students = new ArrayList<>();
+					for (int k = 0; k < 5; k++) students.add(previous.students.name(random.nextInt(previous.students.size())));
+					exams.add(editor.addExam(60, students));
+					break;
+				case 5:
+					editor.addPeriodHardConstraint(exam, "EXCLUSION", exams.get(random.nextInt(exams.size())));
+					break;
+				case 6:
+					editor.addRoomHardConstraint(exam, "ROOM_EXCLUSIVE");
+					break;
+				default:
+					editor.removeStudent(student);
+			}
+		}
+		if (random.nextInt(5) == 0) editor.addRoom(100, 5);
+		if (random.nextInt(5) == 0 && previous.rooms.size() > 2) editor.removeRoom(0);
+		if (random.nextInt(5) == 0) editor.addPeriod(LocalDate.of(2030, 1, 1 + random.nextInt(20)), LocalTime.of(9, 0), 180, 10);
+		if (random.nextInt(5) == 0 && previous.periods.size() > 5) editor.removePeriod(previous.periods.size() - 1);
+	}
+}
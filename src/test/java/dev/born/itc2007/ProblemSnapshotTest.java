@@ -0,0 +1,80 @@
+package dev.born.itc2007;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProblemSnapshotTest {
+	@Test
+	void roundTripKeepsTheProblem() throws IOException {
+		ExamTimetablingProblem problem = TestProblems.generate(9, LoadOptions.DEFAULT);
+		CompactSolution solution = TestProblems.randomSolution(problem, new SplittableRandom(9));
+		Path path = Files.createTempFile("itc2007-", ".snapshot");
+		try {
+			problem.saveSnapshot(path);
+			for (boolean memoryMapped : new boolean[]{false, true}) {
+				ExamTimetablingProblem loaded = ExamTimetablingProblem.fromSnapshot(path, LoadOptions.DEFAULT.withMemoryMapped(memoryMapped));
+				assertArrayEquals(problem.clashGraph.neighbours, loaded.clashGraph.neighbours);
+				assertArrayEquals(problem.clashGraph.weights, loaded.clashGraph.weights);
+				assertEquals(TestProblems.fullCost(solution.toSolution(problem)), TestProblems.fullCost(solution.toSolution(loaded)));
+			}
+			ExamTimetablingProblem sparse = ExamTimetablingProblem.fromSnapshot(path);
+			assertNull(sparse.clashMatrix);
+			assertEquals(TestProblems.fullCost(solution.toSolution(problem)), TestProblems.fullCost(solution.toSolution(sparse)));
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	void truncatedOrCorruptSnapshotsFailWithIOException() throws IOException {
+		ExamTimetablingProblem problem = TestProblems.generate(10, LoadOptions.DEFAULT);
+		Path path = Files.createTempFile("itc2007-", ".snapshot");
+		try {
+			problem.saveSnapshot(path);
+			byte[] bytes = Files.readAllBytes(path);
+
+			for (int length = 0; length < bytes.length; length += 1 + length / 8) {
+				Files.write(path, Arrays.copyOf(bytes, length));
+				assertThrows(IOException.class, () -> ExamTimetablingProblem.fromSnapshot(path, LoadOptions.DEFAULT), "truncated to " + length);
+			}
+
+			// The number of students follows the magic number and version.
+			for (int count : new int[]{-1, Integer.MAX_VALUE, bytes.length}) {
+				byte[] corrupt = bytes.clone();
+				ByteBuffer.wrap(corrupt).putInt(8, count);
+				Files.write(path, corrupt);
+				for (boolean memoryMapped : new boolean[]{false, true}) {
+					assertThrows(IOException.class, () -> ExamTimetablingProblem.fromSnapshot(path, LoadOptions.DEFAULT.withMemoryMapped(memoryMapped)), "count " + count);
+				}
+			}
+
+			// The clash graph ends the file: its offsets, then its neighbours, then its weights.
+			int numEntries = problem.clashGraph.neighbours.length;
+			int weightsStart = bytes.length - numEntries * Integer.BYTES;
+			int neighboursStart = weightsStart - numEntries * Integer.BYTES;
+			int offsetsStart = neighboursStart - (problem.exams.size() + 1) * Integer.BYTES;
+			int[][] corruptions = {
+					{neighboursStart, problem.exams.size()}, {neighboursStart, -1}, {weightsStart, 0},
+					{offsetsStart, 1}, {offsetsStart + Integer.BYTES, numEntries + 1}, {neighboursStart - Integer.BYTES, numEntries - 1}};
+			for (int[] corruption : corruptions) {
+				byte[] corrupt = bytes.clone();
+				ByteBuffer.wrap(corrupt).putInt(corruption[0], corruption[1]);
+				Files.write(path, corrupt);
+				assertThrows(IOException.class, () -> ExamTimetablingProblem.fromSnapshot(path), "value " + corruption[1] + " at " + corruption[0]);
+			}
+		} finally {
+			Files.delete(path);
+		}
+	}
+}
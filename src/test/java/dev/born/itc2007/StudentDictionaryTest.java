@@ -0,0 +1,80 @@
+package dev.born.itc2007;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class StudentDictionaryTest {
+	@Test
+	void bytesAndStringsInternToTheSameId() {
+		StudentDictionary dictionary = new StudentDictionary();
+		byte[] ascii = "S123".getBytes(StandardCharsets.ISO_8859_1);
+		byte[] utf8 = "\u00e91".getBytes(StandardCharsets.UTF_8);
+		int asciiId = dictionary.intern(ascii, ascii.length);
+		int utf8Id = dictionary.intern(utf8, utf8.length);
+
+		assertEquals(asciiId, dictionary.intern(ascii, ascii.length));
+		assertEquals(utf8Id, dictionary.intern(utf8, utf8.length));
+		assertEquals(asciiId, dictionary.intern("S123"));
+		assertEquals(utf8Id, dictionary.intern(new String(utf8, StandardCharsets.ISO_8859_1)));
+		assertEquals(utf8Id, dictionary.id(dictionary.name(utf8Id)));
+		assertEquals(2, dictionary.size());
+	}
+
+	@Test
+	void nonAsciiStudentsClash() throws IOException {
+		String instance = "[Exams:3]\n"
+				+ "60, \u00e91, S1\n"
+				+ "60, \u00e91, \u00fc2\n"
+				+ "60, \u00fc2, S1\n"
+				+ "[Periods:1]\n"
+				+ "15:04:2005, 09:30:00, 180, 0\n"
+				+ "[Rooms:1]\n"
+				+ "100, 0\n"
+				+ "[PeriodHardConstraints]\n"
+				+ "[RoomHardConstraints]\n"
+				+ "[InstitutionalWeightings]\n";
+		for (LoadOptions options : new LoadOptions[]{LoadOptions.DEFAULT, LoadOptions.DEFAULT.withDenseClashMatrix(false)}) {
+			ExamTimetablingProblem problem = ExamTimetablingProblem.fromStream(new ByteArrayInputStream(instance.getBytes(StandardCharsets.UTF_8)), options);
+			assertEquals(3, problem.students.size());
+			assertEquals(1, problem.clashGraph.weight(0, 1));
+			assertEquals(1, problem.clashGraph.weight(1, 2));
+			assertEquals(1, problem.clashGraph.weight(0, 2));
+		}
+	}
+
+	@Test
+	void examsBuiltByHandClashWithOrWithoutASharedDictionary() {
+		List<List<String>> enrolments = Arrays.asList(
+				Arrays.asList("a", "b", "b"), Arrays.asList("b", "c"), Arrays.asList("c", "a", "d"), Arrays.asList("e"));
+		StudentDictionary shared = new StudentDictionary();
+		List<Exam> sharing = new ArrayList<>();
+		List<Exam> separate = new ArrayList<>();
+		for (int i = 0; i < enrolments.size(); i++) {
+			sharing.add(new Exam(i, 60, enrolments.get(i), shared));
+			separate.add(new Exam(i, 60, enrolments.get(i)));
+		}
+		assertEquals(5, shared.size());
+		assertSame(shared, sharing.get(3).dictionary);
+		assertEquals(enrolments.get(2).size(), sharing.get(2).students.size());
+
+		for (boolean parallel : new boolean[]{false, true}) {
+			ClashGraph expected = ClashGraph.of(separate, parallel);
+			ClashGraph actual = ClashGraph.of(sharing, parallel);
+			assertArrayEquals(expected.offsets, actual.offsets);
+			assertArrayEquals(expected.neighbours, actual.neighbours);
+			assertArrayEquals(expected.weights, actual.weights);
+			assertEquals(2, actual.weight(0, 1));
+			assertEquals(0, actual.weight(0, 3));
+		}
+	}
+}
@@ -0,0 +1,85 @@
+package dev.born.itc2007;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Builds small generated problems and random solutions for tests.
+ */
+final class TestProblems {
+	private TestProblems() {
+	}
+
+	/**
+	 * @param seed    - the seed of the instance generator.
+	 * @param options - the options to load the instance with.
+	 * @return a problem of 60 exams over 15 periods and 4 rooms, with every kind of hard constraint and weighting.
+	 */
+	static ExamTimetablingProblem generate(long seed, LoadOptions options) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new InstanceGenerator(seed)
+				.exams(60, 300, 1500)
+				.faculties(3, 0.1)
+				.periods(15, 3, 180, 20)
+				.rooms(4, 40, 200, 10)
+				.constraints(4, 4, 4, 3)
+				.weightings(7, 5, 5, 10, 10, 3, 5)
+				.write(out);
+		return ExamTimetablingProblem.fromStream(new ByteArrayInputStream(out.toByteArray()), options);
+	}
+
+	/**
+	 * @return a solution that books every exam in a random period and room.
+	 */
+	static CompactSolution randomSolution(ExamTimetablingProblem problem, SplittableRandom random) {
+		CompactSolution solution = new CompactSolution(problem.exams.size());
+		for (int exam = 0; exam < problem.exams.size(); exam++)
+			solution.book(exam, random.nextInt(problem.periods.size()), random.nextInt(problem.rooms.size()));
+		return solution;
+	}
+
+	/**
+	 * @return the cost of the solution as evaluated from scratch.
+	 */
+	static Cost fullCost(ExamTimetablingSolution solution) {
+		return new Cost(solution.distanceToFeasibility(), solution.softConstraintViolations());
+	}
+
+	/**
+	 * @return the problem written out in the ITC2007 format and loaded again, so that every derived structure is built
+	 * from scratch.
+	 */
+	static ExamTimetablingProblem reload(ExamTimetablingProblem problem, LoadOptions options) throws IOException {
+		StringBuilder out = new StringBuilder();
+		out.append("[Exams:").append(problem.exams.size()).append("]\n");
+		for (Exam exam : problem.exams) {
+			out.append(exam.duration);
+			for (String student : exam.students) out.append(", ").append(student);
+			out.append('\n');
+		}
+		out.append("[Periods:").append(problem.periods.size()).append("]\n");
+		for (Period period : problem.periods) {
+			out.append(String.format(Locale.ROOT, "%02d:%02d:%04d, %02d:%02d:%02d, %d, %d\n", period.date.getDayOfMonth(), period.date.getMonthValue(),
+					period.date.getYear(), period.time.getHour(), period.time.getMinute(), period.time.getSecond(), period.duration, period.penalty));
+		}
+		out.append("[Rooms:").append(problem.rooms.size()).append("]\n");
+		for (Room room : problem.rooms) out.append(room.capacity).append(", ").append(room.penalty).append('\n');
+		out.append("[PeriodHardConstraints]\n");
+		for (PeriodHardConstraint constraint : problem.periodHardConstraints)
+			out.append(constraint.examOneNum).append(", ").append(constraint.constraintType).append(", ").append(constraint.examTwoNum).append('\n');
+		out.append("[RoomHardConstraints]\n");
+		for (RoomHardConstraint constraint : problem.roomHardConstraints)
+			out.append(constraint.examNum).append(", ").append(constraint.constraintType).append('\n');
+		out.append("[InstitutionalWeightings]\n");
+		for (InstitutionalWeighting weighting : problem.institutionalWeightings) {
+			out.append(weighting.weightingType).append(", ").append(weighting.paramOne);
+			if (weighting.weightingType.equals("FRONTLOAD")) out.append(", ").append(weighting.paramTwo).append(", ").append(weighting.paramThree);
+			out.append('\n');
+		}
+		return ExamTimetablingProblem.fromStream(new ByteArrayInputStream(out.toString().getBytes(StandardCharsets.ISO_8859_1)), options);
+	}
+}
@@ -0,0 +1,37 @@
+package dev.born.itc2007.solver;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AnnealingOptionsTest {
+	@Test
+	void unusableValuesAreRejected() {
+		AnnealingOptions options = AnnealingOptions.DEFAULT;
+		assertThrows(NullPointerException.class, () -> options.withTimeLimit(null));
+		assertThrows(IllegalArgumentException.class, () -> options.withTimeLimit(Duration.ofSeconds(-1)));
+		assertThrows(IllegalArgumentException.class, () -> options.withMaxMoves(-1));
+		assertThrows(IllegalArgumentException.class, () -> options.withRepairFraction(-0.1));
+		assertThrows(IllegalArgumentException.class, () -> options.withRepairFraction(Double.NaN));
+		assertThrows(IllegalArgumentException.class, () -> options.withSwapProbability(1.5));
+		assertThrows(IllegalArgumentException.class, () -> options.withSwapProbability(Double.NaN));
+		assertThrows(IllegalArgumentException.class, () -> options.withCooling(0, 0.05, CoolingSchedule.GEOMETRIC));
+		assertThrows(IllegalArgumentException.class, () -> options.withCooling(20, 0, CoolingSchedule.GEOMETRIC));
+		assertThrows(IllegalArgumentException.class, () -> options.withCooling(20, 30, CoolingSchedule.LINEAR));
+		assertThrows(IllegalArgumentException.class, () -> options.withCooling(Double.NaN, 0.05, CoolingSchedule.GEOMETRIC));
+		assertThrows(IllegalArgumentException.class, () -> options.withCooling(Double.POSITIVE_INFINITY, 0.05, CoolingSchedule.GEOMETRIC));
+		assertThrows(NullPointerException.class, () -> options.withCooling(20, 0.05, null));
+	}
+
+	@Test
+	void boundaryValuesAreAccepted() {
+		AnnealingOptions options = AnnealingOptions.DEFAULT.withTimeLimit(Duration.ZERO).withMaxMoves(0)
+				.withRepairFraction(1).withSwapProbability(0).withCooling(5, 5, CoolingSchedule.LINEAR);
+		assertEquals(0L, options.maxMoves);
+		assertEquals(1.0, options.repairFraction);
+		assertEquals(5.0, options.finalTemperature);
+	}
+}
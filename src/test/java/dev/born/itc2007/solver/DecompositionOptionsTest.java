@@ -0,0 +1,28 @@
+package dev.born.itc2007.solver;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DecompositionOptionsTest {
+	@Test
+	void unusableValuesAreRejected() {
+		DecompositionOptions options = DecompositionOptions.DEFAULT;
+		assertThrows(IllegalArgumentException.class, () -> options.withParallelism(0));
+		assertThrows(IllegalArgumentException.class, () -> options.withMaxParts(-1));
+		assertThrows(IllegalArgumentException.class, () -> options.withTimeLimit(Duration.ofSeconds(-1)));
+		assertThrows(IllegalArgumentException.class, () -> options.withPolishFraction(1.5));
+		assertThrows(IllegalArgumentException.class, () -> options.withPolishFraction(Double.NaN));
+		assertThrows(NullPointerException.class, () -> options.withAnnealing(null));
+	}
+
+	@Test
+	void boundaryValuesAreAccepted() {
+		DecompositionOptions options = DecompositionOptions.DEFAULT.withParallelism(1).withMaxParts(1).withTimeLimit(Duration.ZERO).withPolishFraction(1);
+		assertEquals(1, options.maxParts);
+		assertEquals(1.0, options.polishFraction);
+	}
+}
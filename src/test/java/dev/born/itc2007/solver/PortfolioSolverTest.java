@@ -0,0 +1,62 @@
+package dev.born.itc2007.solver;
+
+import dev.born.itc2007.Booking;
+import dev.born.itc2007.ExamTimetablingProblem;
+import dev.born.itc2007.ExamTimetablingSolution;
+import dev.born.itc2007.InstanceGenerator;
+import dev.born.itc2007.LoadOptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PortfolioSolverTest {
+	private static ExamTimetablingProblem generate() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new InstanceGenerator(3).exams(30, 120, 500).periods(10, 3, 180, 5).rooms(3, 40, 150, 5).write(out);
+		return ExamTimetablingProblem.fromStream(new ByteArrayInputStream(out.toByteArray()), LoadOptions.DEFAULT);
+	}
+
+	@Test
+	void spentBudgetStillBooksEveryExam() throws IOException {
+		ExamTimetablingProblem problem = generate();
+
+		PortfolioOptions options = PortfolioOptions.DEFAULT.withParallelism(2).withNumSearches(4).withTimeLimit(Duration.ZERO);
+		ExamTimetablingSolution solution = new PortfolioSolver(problem, options).solve(new ExamTimetablingSolution(problem, Collections.emptyList()));
+
+		assertEquals(problem.exams.size(), solution.bookings.size());
+		for (Booking booking : solution.bookings) assertTrue(booking.period != null && booking.room != null);
+	}
+
+	@Test
+	void searchesBeyondTheParallelismRunInRoundsWithinTheTimeLimit() throws IOException {
+		ExamTimetablingProblem problem = generate();
+		PortfolioOptions options = PortfolioOptions.DEFAULT.withParallelism(1).withNumSearches(3).withTimeLimit(Duration.ofMillis(300));
+		PortfolioSolver solver = new PortfolioSolver(problem, options);
+		long start = System.nanoTime();
+		ExamTimetablingSolution solution = solver.solve();
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+		assertEquals(problem.exams.size(), solution.bookings.size());
+		assertTrue(elapsedMillis < 2000, "took " + elapsedMillis + " ms");
+		assertTrue(solver.getEvaluatedMoves() > 0);
+	}
+
+	@Test
+	void unusableOptionsAreRejected() {
+		PortfolioOptions options = PortfolioOptions.DEFAULT;
+		assertThrows(IllegalArgumentException.class, () -> options.withNumSearches(0));
+		assertThrows(IllegalArgumentException.class, () -> options.withParallelism(0));
+		assertThrows(IllegalArgumentException.class, () -> options.withTimeLimit(Duration.ofSeconds(-1)));
+		assertThrows(NullPointerException.class, () -> options.withTimeLimit(null));
+		assertThrows(IllegalArgumentException.class, () -> options.withSyncInterval(Duration.ofSeconds(-1)));
+		assertThrows(NullPointerException.class, () -> options.withAnnealing(null));
+	}
+}
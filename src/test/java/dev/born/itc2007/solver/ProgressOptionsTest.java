@@ -0,0 +1,25 @@
+package dev.born.itc2007.solver;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProgressOptionsTest {
+	@Test
+	void unusableValuesAreRejected() {
+		ProgressOptions options = ProgressOptions.DEFAULT;
+		assertThrows(IllegalArgumentException.class, () -> options.withMinInterval(Duration.ofMillis(-1)));
+		assertThrows(NullPointerException.class, () -> options.withMinInterval(null));
+		assertThrows(IllegalArgumentException.class, () -> options.withBufferSize(0));
+	}
+
+	@Test
+	void boundaryValuesAreAccepted() {
+		ProgressOptions options = ProgressOptions.DEFAULT.withMinInterval(Duration.ZERO).withBufferSize(1);
+		assertEquals(Duration.ZERO, options.minInterval);
+		assertEquals(1, options.bufferSize);
+	}
+}
@@ -0,0 +1,31 @@
+package dev.born.itc2007.solver;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RuinAndRecreateOptionsTest {
+	@Test
+	void unusableValuesAreRejected() {
+		RuinAndRecreateOptions options = RuinAndRecreateOptions.DEFAULT;
+		assertThrows(IllegalArgumentException.class, () -> options.withParallelism(0));
+		assertThrows(IllegalArgumentException.class, () -> options.withTimeLimit(Duration.ofSeconds(-1)));
+		assertThrows(IllegalArgumentException.class, () -> options.withSyncInterval(Duration.ofSeconds(-1)));
+		assertThrows(IllegalArgumentException.class, () -> options.withRuinSize(0, 10));
+		assertThrows(IllegalArgumentException.class, () -> options.withRuinSize(-5, 10));
+		assertThrows(IllegalArgumentException.class, () -> options.withRuinSize(10, 5));
+		assertThrows(IllegalArgumentException.class, () -> options.withMaxDiscrepancies(-1));
+		assertThrows(IllegalArgumentException.class, () -> options.withMaxDiscrepancies(Integer.MAX_VALUE));
+	}
+
+	@Test
+	void boundaryValuesAreAccepted() {
+		RuinAndRecreateOptions options = RuinAndRecreateOptions.DEFAULT.withParallelism(1).withRuinSize(3, 3).withMaxDiscrepancies(0).withTimeLimit(Duration.ZERO);
+		assertEquals(3, options.minRuinSize);
+		assertEquals(3, options.maxRuinSize);
+		assertEquals(0, options.maxDiscrepancies);
+	}
+}
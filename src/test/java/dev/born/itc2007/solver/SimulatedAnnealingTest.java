@@ -0,0 +1,48 @@
+package dev.born.itc2007.solver;
+
+import dev.born.itc2007.ExamTimetablingProblem;
+import dev.born.itc2007.ExamTimetablingSolution;
+import dev.born.itc2007.LoadOptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimulatedAnnealingTest {
+	private static ExamTimetablingProblem load(String periods, String rooms) throws IOException {
+		String instance = "[Exams:2]\n60, S1, S2\n60, S2\n"
+				+ "[Periods:1]\n" + periods
+				+ "[Rooms:1]\n" + rooms
+				+ "[PeriodHardConstraints]\n[RoomHardConstraints]\n[InstitutionalWeightings]\n";
+		return ExamTimetablingProblem.fromStream(new ByteArrayInputStream(instance.getBytes(StandardCharsets.US_ASCII)), LoadOptions.DEFAULT);
+	}
+
+	private static ExamTimetablingSolution solve(ExamTimetablingProblem problem) {
+		AnnealingOptions options = AnnealingOptions.DEFAULT.withTimeLimit(Duration.ofMillis(50));
+		return new SimulatedAnnealing(problem, options).solve(new ExamTimetablingSolution(problem, Collections.emptyList()));
+	}
+
+	@Test
+	void problemsWithoutPeriodsOrRoomsFailClearly() throws IOException {
+		ExamTimetablingProblem noPeriods = load("", "100, 0\n");
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> solve(noPeriods));
+		assertTrue(e.getMessage().contains("no periods"));
+
+		ExamTimetablingProblem noRooms = load("15:04:2005, 09:30:00, 180, 0\n", "");
+		e = assertThrows(IllegalArgumentException.class, () -> solve(noRooms));
+		assertTrue(e.getMessage().contains("no rooms"));
+	}
+
+	@Test
+	void problemWithPeriodsAndRoomsIsSolved() throws IOException {
+		ExamTimetablingProblem problem = load("15:04:2005, 09:30:00, 180, 0\n", "100, 0\n");
+		assertEquals(2, solve(problem).bookings.size());
+	}
+}